@@ -0,0 +1,66 @@
+package com.fastcode.audit;
+
+import com.fastcode.audit.utils.AuditBodyCapture;
+import com.fastcode.audit.utils.PathExclusionMatcher;
+import com.fastcode.audit.utils.SensitiveDataMasker;
+import com.fastcode.audit.utils.SensitiveDataMaskingPolicy;
+import lombok.Builder;
+import lombok.Getter;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable view of the audit settings read on every event
+ * Resolved once by AuditPropertiesConfiguration and replaced as a whole when the environment refreshes,
+ * so readers see either the old or the new settings but never a mix
+ * Patterns, path lists and keys are compiled when the snapshot is built, not per event
+ */
+@Getter
+@Builder
+public class AuditConfigSnapshot {
+
+    // Increases with every refresh or reload
+    private final long version;
+    private final boolean consoleEnabled;
+    private final boolean fileEnabled;
+    private final boolean databaseEnabled;
+    private final String filePath;
+    private final String filePrefix;
+    private final String layoutTemplate;
+    private final boolean secureLayoutEnabled;
+    private final String secureLayoutKey;
+    private final String secureLayoutSalt;
+    // AES key derived from secureLayoutKey and secureLayoutSalt, null unless secure layout is enabled
+    private final SecretKeySpec secureLayoutKeySpec;
+    private final boolean encryptionEnabled;
+    private final String encryptionSecretKey;
+    private final SecretKeySpec encryptionKey;
+    // audit.encryption.mode=envelope: details are serialized once and sealed with AES-GCM under envelopeKey
+    private final boolean encryptionEnvelopeMode;
+    private final SecretKeySpec envelopeKey;
+    private final String envelopeKeyId;
+    // HMAC key of the blind index columns, null unless audit.blind.index.enabled is true
+    private final SecretKeySpec blindIndexKey;
+    private final boolean apiDisabled;
+    private final String excludedApiPath;
+    private final Set<String> excludedApiPaths;
+    private final PathExclusionMatcher excludedApiPathMatcher;
+    private final boolean entityDisabled;
+    private final boolean securityDisabled;
+    private final boolean sensitiveDataMaskingEnabled;
+    private final Map<String, String> sensitiveDataKeys;
+    private final Map<String, Pattern> sensitiveDataPatterns;
+    private final SensitiveDataMasker sensitiveDataMasker;
+    private final List<String> sensitiveDataMaskFields;
+    private final List<String> sensitiveDataSkipFields;
+    private final SensitiveDataMaskingPolicy sensitiveDataMaskingPolicy;
+    private final List<String> apiBodyBinaryTypes;
+    private final AuditBodyCapture apiBodyCapture;
+    private final int databaseBatchSize;
+    private final int databaseLingerMs;
+    private final boolean databaseCopyMode;
+}
@@ -1,12 +1,33 @@
 package com.fastcode.audit;
 
+import com.fastcode.audit.utils.AuditBodyCapture;
+import com.fastcode.audit.utils.PathExclusionMatcher;
+import com.fastcode.audit.utils.SensitiveDataMasker;
+import com.fastcode.audit.utils.SensitiveDataMaskingPolicy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
 
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 @Component
 public class AuditPropertiesConfiguration {
@@ -58,6 +79,9 @@ public class AuditPropertiesConfiguration {
     private static final String ENCRYPTION_SECRET_KEY_ENV = "ENCRYPTION_SECRET_KEY";
     private static final String ENCRYPTION_SECRET_KEY_SYSPROP = "encryption.secret.key";
 
+    private static final String AUDIT_ENCRYPTION_MODE_ENV = "AUDIT_ENCRYPTION_MODE";
+    private static final String AUDIT_ENCRYPTION_MODE_SYSPROP = "audit.encryption.mode";
+
     private static final String AUDIT_LAYOUT_TEMPLATE_ENV = "AUDIT_LAYOUT_TEMPLATE";
     private static final String AUDIT_LAYOUT_TEMPLATE_SYSPROP = "audit.layout.template";
 
@@ -100,63 +124,442 @@ public class AuditPropertiesConfiguration {
     private static final String SENSITIVE_DATA_KEYS_ENV = "SENSITIVE_DATA_KEYS";
     private static final String SENSITIVE_DATA_KEYS_SYSPROP = "sensitive.data.keys";
 
+    private static final String SENSITIVE_DATA_MASK_FIELDS_ENV = "SENSITIVE_DATA_MASK_FIELDS";
+    private static final String SENSITIVE_DATA_MASK_FIELDS_SYSPROP = "sensitive.data.mask.fields";
+
+    private static final String SENSITIVE_DATA_SKIP_FIELDS_ENV = "SENSITIVE_DATA_SKIP_FIELDS";
+    private static final String SENSITIVE_DATA_SKIP_FIELDS_SYSPROP = "sensitive.data.skip.fields";
+
+    private static final String AUDIT_QUEUE_CAPACITY_ENV = "AUDIT_QUEUE_CAPACITY";
+    private static final String AUDIT_QUEUE_CAPACITY_SYSPROP = "audit.queue.capacity";
+
+    private static final String AUDIT_BATCH_SIZE_ENV = "AUDIT_BATCH_SIZE";
+    private static final String AUDIT_BATCH_SIZE_SYSPROP = "audit.batch.size";
+
+    private static final String AUDIT_DATABASE_BATCH_SIZE_ENV = "AUDIT_DATABASE_BATCH_SIZE";
+    private static final String AUDIT_DATABASE_BATCH_SIZE_SYSPROP = "audit.database.batch.size";
+
+    private static final String AUDIT_DATABASE_LINGER_MS_ENV = "AUDIT_DATABASE_LINGER_MS";
+    private static final String AUDIT_DATABASE_LINGER_MS_SYSPROP = "audit.database.linger.ms";
+
+    private static final String AUDIT_DATABASE_WRITE_MODE_ENV = "AUDIT_DATABASE_WRITE_MODE";
+    private static final String AUDIT_DATABASE_WRITE_MODE_SYSPROP = "audit.database.write.mode";
+
+    private static final String AUDIT_OVERFLOW_JOURNAL_ENABLED_ENV = "AUDIT_OVERFLOW_JOURNAL_ENABLED";
+    private static final String AUDIT_OVERFLOW_JOURNAL_ENABLED_SYSPROP = "audit.overflow.journal.enabled";
+
+    private static final String AUDIT_OVERFLOW_JOURNAL_PATH_ENV = "AUDIT_OVERFLOW_JOURNAL_PATH";
+    private static final String AUDIT_OVERFLOW_JOURNAL_PATH_SYSPROP = "audit.overflow.journal.path";
+
+    private static final String AUDIT_OVERFLOW_JOURNAL_SIZE_MB_ENV = "AUDIT_OVERFLOW_JOURNAL_SIZE_MB";
+    private static final String AUDIT_OVERFLOW_JOURNAL_SIZE_MB_SYSPROP = "audit.overflow.journal.size.mb";
+
+    private static final String AUDIT_BACKPRESSURE_ENV_PREFIX = "AUDIT_BACKPRESSURE_";
+    private static final String AUDIT_BACKPRESSURE_SYSPROP_PREFIX = "audit.backpressure.";
+
+    private static final String AUDIT_LANE_ENV_PREFIX = "AUDIT_LANE_";
+    private static final String AUDIT_LANE_SYSPROP_PREFIX = "audit.lane.";
+
+    private static final String AUDIT_DATABASE_MAX_CONCURRENT_WRITES_ENV = "AUDIT_DATABASE_MAX_CONCURRENT_WRITES";
+    private static final String AUDIT_DATABASE_MAX_CONCURRENT_WRITES_SYSPROP = "audit.database.max.concurrent.writes";
+
+    private static final String AUDIT_SHUTDOWN_TIMEOUT_MS_ENV = "AUDIT_SHUTDOWN_TIMEOUT_MS";
+    private static final String AUDIT_SHUTDOWN_TIMEOUT_MS_SYSPROP = "audit.shutdown.timeout.ms";
+
+    private static final String AUDIT_IDENTIFIER_STRATEGY_ENV = "AUDIT_IDENTIFIER_STRATEGY";
+    private static final String AUDIT_IDENTIFIER_STRATEGY_SYSPROP = "audit.identifier.strategy";
+
+    private static final String AUDIT_SYNC_MAX_GROUP_SIZE_ENV = "AUDIT_SYNC_MAX_GROUP_SIZE";
+    private static final String AUDIT_SYNC_MAX_GROUP_SIZE_SYSPROP = "audit.sync.max.group.size";
+
+    private static final String AUDIT_API_CORRELATED_ENV = "AUDIT_API_CORRELATED";
+    private static final String AUDIT_API_CORRELATED_SYSPROP = "audit.api.correlated";
+
+    private static final String AUDIT_API_CORRELATION_MAX_PENDING_ENV = "AUDIT_API_CORRELATION_MAX_PENDING";
+    private static final String AUDIT_API_CORRELATION_MAX_PENDING_SYSPROP = "audit.api.correlation.max.pending";
+
+    private static final String AUDIT_API_CORRELATION_TIMEOUT_MS_ENV = "AUDIT_API_CORRELATION_TIMEOUT_MS";
+    private static final String AUDIT_API_CORRELATION_TIMEOUT_MS_SYSPROP = "audit.api.correlation.timeout.ms";
+
+    private static final String AUDIT_API_DEFERRED_ENABLED_ENV = "AUDIT_API_DEFERRED_ENABLED";
+    private static final String AUDIT_API_DEFERRED_ENABLED_SYSPROP = "audit.api.deferred.enabled";
+
+    private static final String AUDIT_API_DEFERRED_THREADS_ENV = "AUDIT_API_DEFERRED_THREADS";
+    private static final String AUDIT_API_DEFERRED_THREADS_SYSPROP = "audit.api.deferred.threads";
+
+    private static final String AUDIT_API_DEFERRED_QUEUE_CAPACITY_ENV = "AUDIT_API_DEFERRED_QUEUE_CAPACITY";
+    private static final String AUDIT_API_DEFERRED_QUEUE_CAPACITY_SYSPROP = "audit.api.deferred.queue.capacity";
+
+    private static final String AUDIT_DEDUP_ENABLED_ENV = "AUDIT_DEDUP_ENABLED";
+    private static final String AUDIT_DEDUP_ENABLED_SYSPROP = "audit.dedup.enabled";
+
+    private static final String AUDIT_DEDUP_WINDOW_MS_ENV = "AUDIT_DEDUP_WINDOW_MS";
+    private static final String AUDIT_DEDUP_WINDOW_MS_SYSPROP = "audit.dedup.window.ms";
+
+    private static final String AUDIT_DEDUP_MAX_ENTRIES_ENV = "AUDIT_DEDUP_MAX_ENTRIES";
+    private static final String AUDIT_DEDUP_MAX_ENTRIES_SYSPROP = "audit.dedup.max.entries";
+
+    private static final String AUDIT_DEDUP_CATEGORIES_ENV = "AUDIT_DEDUP_CATEGORIES";
+    private static final String AUDIT_DEDUP_CATEGORIES_SYSPROP = "audit.dedup.categories";
+
+    private static final String AUDIT_API_SAMPLING_ENABLED_ENV = "AUDIT_API_SAMPLING_ENABLED";
+    private static final String AUDIT_API_SAMPLING_ENABLED_SYSPROP = "audit.api.sampling.enabled";
+
+    private static final String AUDIT_API_SAMPLING_RULES_ENV = "AUDIT_API_SAMPLING_RULES";
+    private static final String AUDIT_API_SAMPLING_RULES_SYSPROP = "audit.api.sampling.rules";
+
+    private static final String AUDIT_API_SAMPLING_DEFAULT_RATE_ENV = "AUDIT_API_SAMPLING_DEFAULT_RATE";
+    private static final String AUDIT_API_SAMPLING_DEFAULT_RATE_SYSPROP = "audit.api.sampling.default.rate";
+
+    private static final String AUDIT_API_SAMPLING_TARGET_EPS_ENV = "AUDIT_API_SAMPLING_TARGET_EPS";
+    private static final String AUDIT_API_SAMPLING_TARGET_EPS_SYSPROP = "audit.api.sampling.target.eps";
+
+    private static final String AUDIT_API_BODY_MAX_BYTES_ENV = "AUDIT_API_BODY_MAX_BYTES";
+    private static final String AUDIT_API_BODY_MAX_BYTES_SYSPROP = "audit.api.body.max.bytes";
+
+    private static final String AUDIT_API_BODY_BINARY_TYPES_ENV = "AUDIT_API_BODY_BINARY_TYPES";
+    private static final String AUDIT_API_BODY_BINARY_TYPES_SYSPROP = "audit.api.body.binary.types";
+
+    private static final String AUDIT_READ_DECRYPT_THREADS_ENV = "AUDIT_READ_DECRYPT_THREADS";
+    private static final String AUDIT_READ_DECRYPT_THREADS_SYSPROP = "audit.read.decrypt.threads";
+
+    private static final String AUDIT_BLIND_INDEX_ENABLED_ENV = "AUDIT_BLIND_INDEX_ENABLED";
+    private static final String AUDIT_BLIND_INDEX_ENABLED_SYSPROP = "audit.blind.index.enabled";
+
+    private static final String AUDIT_BLIND_INDEX_KEY_ENV = "AUDIT_BLIND_INDEX_KEY";
+    private static final String AUDIT_BLIND_INDEX_KEY_SYSPROP = "audit.blind.index.key";
+
+    private static final String AUDIT_CONFIG_ADMIN_ROLE_ENV = "AUDIT_CONFIG_ADMIN_ROLE";
+    private static final String AUDIT_CONFIG_ADMIN_ROLE_SYSPROP = "audit.config.admin.role";
+
+    private static final String AUDIT_SINK_ENV_PREFIX = "AUDIT_SINK_";
+    private static final String AUDIT_SINK_SYSPROP_PREFIX = "audit.sink.";
+
+    // Spring Cloud events published after the environment changed; matched by name as Spring Cloud is optional
+    private static final Set<String> ENVIRONMENT_REFRESH_EVENTS = Set.of(
+            "org.springframework.cloud.context.environment.EnvironmentChangeEvent",
+            "org.springframework.cloud.context.scope.refresh.RefreshScopeRefreshedEvent");
+
+    // Snapshot settings that can be changed at runtime through reload(), by system property name
+    private static final Set<String> RELOADABLE_PROPERTIES = Set.of(
+            AUDIT_CONSOLE_ENABLED_SYSPROP, AUDIT_FILE_ENABLED_SYSPROP, AUDIT_DATABASE_ENABLED_SYSPROP,
+            AUDIT_FILE_PATH_SYSPROP, AUDIT_FILE_PREFIX_SYSPROP,
+            SECURE_LAYOUT_ENABLED_SYSPROP, SECURE_LAYOUT_KEY_SYSPROP, SECURE_LAYOUT_SALT_SYSPROP,
+            ENCRYPTION_SECRET_ENABLED_SYSPROP, ENCRYPTION_SECRET_KEY_SYSPROP, AUDIT_ENCRYPTION_MODE_SYSPROP,
+            AUDIT_API_DISABLED_SYSPROP, EXCLUDE_API_PATH_SYSPROP, AUDIT_ENTITY_DISABLED_SYSPROP, AUDIT_SECURITY_DISABLED_SYSPROP,
+            SENSITIVE_DATA_MASKING_ENABLED_SYSPROP, SENSITIVE_DATA_KEYS_SYSPROP,
+            SENSITIVE_DATA_MASK_FIELDS_SYSPROP, SENSITIVE_DATA_SKIP_FIELDS_SYSPROP,
+            AUDIT_API_BODY_MAX_BYTES_SYSPROP, AUDIT_API_BODY_BINARY_TYPES_SYSPROP,
+            AUDIT_DATABASE_BATCH_SIZE_SYSPROP, AUDIT_DATABASE_LINGER_MS_SYSPROP, AUDIT_DATABASE_WRITE_MODE_SYSPROP);
+
+    private static final Set<String> BOOLEAN_PROPERTIES = Set.of(
+            AUDIT_CONSOLE_ENABLED_SYSPROP, AUDIT_FILE_ENABLED_SYSPROP, AUDIT_DATABASE_ENABLED_SYSPROP,
+            SECURE_LAYOUT_ENABLED_SYSPROP, ENCRYPTION_SECRET_ENABLED_SYSPROP, AUDIT_API_DISABLED_SYSPROP,
+            AUDIT_ENTITY_DISABLED_SYSPROP, AUDIT_SECURITY_DISABLED_SYSPROP, SENSITIVE_DATA_MASKING_ENABLED_SYSPROP);
+
+    private static final Set<String> SECRET_PROPERTIES = Set.of(
+            SECURE_LAYOUT_KEY_SYSPROP, SECURE_LAYOUT_SALT_SYSPROP, ENCRYPTION_SECRET_KEY_SYSPROP);
+
+    // Settings read on every event, resolved once instead of on each call
+    private volatile AuditConfigSnapshot snapshot;
+
+    // Values set through reload(), taking precedence over the environment; guarded by this
+    private Map<String, String> runtimeOverrides = Map.of();
+    private long version;
+
+    /**
+     * @return the current settings, resolving them on first use
+     */
+    public AuditConfigSnapshot getSnapshot() {
+        AuditConfigSnapshot current = snapshot;
+        return current != null ? current : refresh();
+    }
+
+    /**
+     * Resolve the settings again and publish them as a new snapshot
+     * Invalid values are logged and skipped so a bad environment never stops auditing
+     * @return the new snapshot
+     */
+    public synchronized AuditConfigSnapshot refresh() {
+        List<String> errors = new ArrayList<>();
+        snapshot = resolveSnapshot(runtimeOverrides, ++version, errors, snapshot);
+        errors.forEach(error -> logger.warn("Ignoring invalid audit configuration: {}", error));
+        logger.debug("Audit configuration snapshot refreshed to version {}", version);
+        return snapshot;
+    }
+
+    /**
+     * Validate and apply runtime changes to the reloadable settings
+     * The new snapshot, with its patterns and keys compiled, replaces the current one in a single write,
+     * so events in flight see either the old or the new settings
+     * @param changes values by system property name; a blank value removes an earlier runtime change
+     * @return the new snapshot
+     * @throws IllegalArgumentException if any change is invalid; the current settings are then kept
+     */
+    public AuditConfigSnapshot reload(Map<String, String> changes) {
+        return reload(changes, candidate -> { });
+    }
+
+    /**
+     * Validate runtime changes to the reloadable settings and apply them once beforeApply has returned
+     * @param beforeApply called with the validated snapshot before it is published, e.g. to audit the change;
+     *                    if it throws, the change is not applied
+     */
+    public synchronized AuditConfigSnapshot reload(Map<String, String> changes, Consumer<AuditConfigSnapshot> beforeApply) {
+        List<String> errors = new ArrayList<>();
+        Map<String, String> overrides = new HashMap<>(runtimeOverrides);
+        changes.forEach((property, value) -> {
+            if (!RELOADABLE_PROPERTIES.contains(property)) {
+                errors.add(property + ": not a reloadable audit property");
+            } else if (value == null || value.trim().isEmpty()) {
+                overrides.remove(property);
+            } else if (BOOLEAN_PROPERTIES.contains(property) && !"true".equalsIgnoreCase(value.trim()) && !"false".equalsIgnoreCase(value.trim())) {
+                errors.add(property + ": expected true or false");
+            } else if (AUDIT_DATABASE_WRITE_MODE_SYSPROP.equals(property) && !"insert".equalsIgnoreCase(value.trim()) && !"copy".equalsIgnoreCase(value.trim())) {
+                errors.add(property + ": expected insert or copy");
+            } else if (AUDIT_ENCRYPTION_MODE_SYSPROP.equals(property) && !"field".equalsIgnoreCase(value.trim()) && !"envelope".equalsIgnoreCase(value.trim())) {
+                errors.add(property + ": expected field or envelope");
+            } else {
+                overrides.put(property, value.trim());
+            }
+        });
+
+        AuditConfigSnapshot current = getSnapshot();
+        List<String> resolveErrors = new ArrayList<>();
+        AuditConfigSnapshot candidate = resolveSnapshot(overrides, version + 1, resolveErrors, current);
+        if (!resolveErrors.isEmpty()) {
+            // Problems the current settings already have, such as a bad environment value, were not caused
+            // by this change and are only logged, as refresh() does; problems with a changed value are not
+            List<String> currentErrors = new ArrayList<>();
+            resolveSnapshot(runtimeOverrides, version, currentErrors, current);
+            for (String error : resolveErrors) {
+                String property = error.substring(0, Math.max(0, error.indexOf(':')));
+                if (changes.containsKey(property) || !currentErrors.contains(error)) {
+                    errors.add(error);
+                } else {
+                    logger.warn("Ignoring invalid audit configuration: {}", error);
+                }
+            }
+        }
+        if (!errors.isEmpty()) {
+            throw new IllegalArgumentException(String.join("; ", errors));
+        }
+
+        beforeApply.accept(candidate);
+        runtimeOverrides = Collections.unmodifiableMap(overrides);
+        version = candidate.getVersion();
+        snapshot = candidate;
+        logger.info("Audit configuration reloaded to version {}: {}", version, describe(changes));
+        return candidate;
+    }
+
+    /**
+     * @return the reloadable settings of the current snapshot, with secrets redacted
+     */
+    public Map<String, String> describeReloadable() {
+        Map<String, String> values = new LinkedHashMap<>();
+        AuditConfigSnapshot current = getSnapshot();
+        values.put(AUDIT_CONSOLE_ENABLED_SYSPROP, String.valueOf(current.isConsoleEnabled()));
+        values.put(AUDIT_FILE_ENABLED_SYSPROP, String.valueOf(current.isFileEnabled()));
+        values.put(AUDIT_DATABASE_ENABLED_SYSPROP, String.valueOf(current.isDatabaseEnabled()));
+        values.put(AUDIT_FILE_PATH_SYSPROP, current.getFilePath());
+        values.put(AUDIT_FILE_PREFIX_SYSPROP, current.getFilePrefix());
+        values.put(SECURE_LAYOUT_ENABLED_SYSPROP, String.valueOf(current.isSecureLayoutEnabled()));
+        values.put(SECURE_LAYOUT_KEY_SYSPROP, redact(current.getSecureLayoutKey()));
+        values.put(SECURE_LAYOUT_SALT_SYSPROP, redact(current.getSecureLayoutSalt()));
+        values.put(ENCRYPTION_SECRET_ENABLED_SYSPROP, String.valueOf(current.isEncryptionEnabled()));
+        values.put(ENCRYPTION_SECRET_KEY_SYSPROP, redact(current.getEncryptionSecretKey()));
+        values.put(AUDIT_ENCRYPTION_MODE_SYSPROP, current.isEncryptionEnvelopeMode() ? "envelope" : "field");
+        values.put(AUDIT_API_DISABLED_SYSPROP, String.valueOf(current.isApiDisabled()));
+        values.put(EXCLUDE_API_PATH_SYSPROP, current.getExcludedApiPath());
+        values.put(AUDIT_ENTITY_DISABLED_SYSPROP, String.valueOf(current.isEntityDisabled()));
+        values.put(AUDIT_SECURITY_DISABLED_SYSPROP, String.valueOf(current.isSecurityDisabled()));
+        values.put(SENSITIVE_DATA_MASKING_ENABLED_SYSPROP, String.valueOf(current.isSensitiveDataMaskingEnabled()));
+        values.put(SENSITIVE_DATA_KEYS_SYSPROP, String.join(",", current.getSensitiveDataKeys().keySet()));
+        values.put(SENSITIVE_DATA_MASK_FIELDS_SYSPROP, String.join(",", current.getSensitiveDataMaskFields()));
+        values.put(SENSITIVE_DATA_SKIP_FIELDS_SYSPROP, String.join(",", current.getSensitiveDataSkipFields()));
+        values.put(AUDIT_API_BODY_MAX_BYTES_SYSPROP, String.valueOf(current.getApiBodyCapture().getMaxBytes()));
+        values.put(AUDIT_API_BODY_BINARY_TYPES_SYSPROP, String.join(",", current.getApiBodyBinaryTypes()));
+        values.put(AUDIT_DATABASE_BATCH_SIZE_SYSPROP, String.valueOf(current.getDatabaseBatchSize()));
+        values.put(AUDIT_DATABASE_LINGER_MS_SYSPROP, String.valueOf(current.getDatabaseLingerMs()));
+        values.put(AUDIT_DATABASE_WRITE_MODE_SYSPROP, current.isDatabaseCopyMode() ? "copy" : "insert");
+        return values;
+    }
+
+    /**
+     * @return the changes as property=value pairs with secrets redacted, for logs and audit events
+     */
+    public Map<String, String> describe(Map<String, String> changes) {
+        Map<String, String> described = new LinkedHashMap<>();
+        changes.forEach((property, value) ->
+                described.put(property, SECRET_PROPERTIES.contains(property) ? redact(value) : value));
+        return described;
+    }
+
+    private static String redact(String secret) {
+        return secret == null || secret.isEmpty() ? "" : "******";
+    }
+
+    /**
+     * Rebuild the snapshot when Spring Cloud reports an environment change
+     */
+    @EventListener
+    public void onApplicationEvent(ApplicationEvent event) {
+        if (ENVIRONMENT_REFRESH_EVENTS.contains(event.getClass().getName())) {
+            refresh();
+        }
+    }
+
+    /**
+     * Resolve the snapshot settings, runtime overrides first, and compile their patterns and keys
+     * Problems are added to errors and the offending value is skipped or replaced by its default
+     * @param current snapshot whose settings that cannot change at runtime are kept, or null to resolve them
+     */
+    private AuditConfigSnapshot resolveSnapshot(Map<String, String> overrides, long snapshotVersion, List<String> errors,
+                                                AuditConfigSnapshot current) {
+        Map<String, String> sensitiveDataKeys = resolveSensitiveDataKeys(
+                getConfigurationProperty(overrides, SENSITIVE_DATA_KEYS_ENV, SENSITIVE_DATA_KEYS_SYSPROP, ""));
+        Map<String, Pattern> sensitiveDataPatterns = new LinkedHashMap<>();
+        sensitiveDataKeys.entrySet().removeIf(entry -> {
+            try {
+                sensitiveDataPatterns.put(entry.getKey(), Pattern.compile(entry.getValue()));
+                return false;
+            } catch (PatternSyntaxException e) {
+                errors.add(SENSITIVE_DATA_KEYS_SYSPROP + ": invalid pattern for '" + entry.getKey() + "': " + e.getDescription());
+                return true;
+            }
+        });
+
+        SensitiveDataMasker sensitiveDataMasker = SensitiveDataMasker.of(sensitiveDataPatterns);
+        List<String> sensitiveDataMaskFields = resolveFieldList(
+                getConfigurationProperty(overrides, SENSITIVE_DATA_MASK_FIELDS_ENV, SENSITIVE_DATA_MASK_FIELDS_SYSPROP, ""),
+                SensitiveDataMaskingPolicy.DEFAULT_MASK_FIELDS);
+        List<String> sensitiveDataSkipFields = resolveFieldList(
+                getConfigurationProperty(overrides, SENSITIVE_DATA_SKIP_FIELDS_ENV, SENSITIVE_DATA_SKIP_FIELDS_SYSPROP, ""),
+                SensitiveDataMaskingPolicy.DEFAULT_SKIP_FIELDS);
+
+        String excludedApiPath = getConfigurationProperty(overrides, EXCLUDE_API_PATH_ENV, EXCLUDE_API_PATH_SYSPROP, "/");
+        Set<String> excludedApiPaths = new LinkedHashSet<>();
+        for (String path : excludedApiPath.split("\\s*,\\s*")) {
+            if (!path.trim().isEmpty()) {
+                excludedApiPaths.add(path.trim());
+            }
+        }
+
+        boolean encryptionEnabled = Boolean.parseBoolean(getConfigurationProperty(overrides, ENCRYPTION_SECRET_ENABLED_ENV, ENCRYPTION_SECRET_ENABLED_SYSPROP, "false"));
+        String encryptionSecretKey = getConfigurationProperty(overrides, ENCRYPTION_SECRET_KEY_ENV, ENCRYPTION_SECRET_KEY_SYSPROP, "");
+        SecretKeySpec encryptionKey = null;
+        if (encryptionEnabled && !encryptionSecretKey.isEmpty()) {
+            encryptionKey = resolveEncryptionKey(encryptionSecretKey, errors);
+        }
+
+        boolean secureLayoutEnabled = Boolean.parseBoolean(getConfigurationProperty(overrides, SECURE_LAYOUT_ENABLED_ENV, SECURE_LAYOUT_ENABLED_SYSPROP, "false"));
+        String secureLayoutKey = getConfigurationProperty(overrides, SECURE_LAYOUT_KEY_ENV, SECURE_LAYOUT_KEY_SYSPROP, "");
+        String secureLayoutSalt = getConfigurationProperty(overrides, SECURE_LAYOUT_SALT_ENV, SECURE_LAYOUT_SALT_SYSPROP, "");
+        SecretKeySpec secureLayoutKeySpec = null;
+        if (secureLayoutEnabled && !secureLayoutKey.isEmpty() && !secureLayoutSalt.isEmpty()) {
+            secureLayoutKeySpec = resolveSecureLayoutKey(secureLayoutKey, secureLayoutSalt);
+        }
+
+        // Envelope mode seals the whole payload with one key, the encryption secret key when both are set
+        boolean encryptionEnvelopeMode = "envelope".equalsIgnoreCase(
+                getConfigurationProperty(overrides, AUDIT_ENCRYPTION_MODE_ENV, AUDIT_ENCRYPTION_MODE_SYSPROP, "field").trim());
+        SecretKeySpec envelopeKey = encryptionKey != null ? encryptionKey : secureLayoutKeySpec;
+
+        int apiBodyMaxBytes = getNonNegativeIntConfigurationProperty(overrides, AUDIT_API_BODY_MAX_BYTES_ENV, AUDIT_API_BODY_MAX_BYTES_SYSPROP, 0, errors);
+        List<String> apiBodyBinaryTypes = resolveFieldList(
+                getConfigurationProperty(overrides, AUDIT_API_BODY_BINARY_TYPES_ENV, AUDIT_API_BODY_BINARY_TYPES_SYSPROP, ""),
+                AuditBodyCapture.DEFAULT_BINARY_TYPES);
+
+        // Not reloadable: tokens written under another key would no longer match
+        SecretKeySpec blindIndexKey = null;
+        if (current != null) {
+            blindIndexKey = current.getBlindIndexKey();
+        } else if (Boolean.parseBoolean(getConfigurationProperty(overrides, AUDIT_BLIND_INDEX_ENABLED_ENV, AUDIT_BLIND_INDEX_ENABLED_SYSPROP, "false"))) {
+            blindIndexKey = resolveBlindIndexKey(getConfigurationProperty(overrides, AUDIT_BLIND_INDEX_KEY_ENV, AUDIT_BLIND_INDEX_KEY_SYSPROP, ""), errors);
+        }
+
+        return AuditConfigSnapshot.builder()
+                .version(snapshotVersion)
+                .consoleEnabled(Boolean.parseBoolean(getConfigurationProperty(overrides, AUDIT_CONSOLE_ENABLED_ENV, AUDIT_CONSOLE_ENABLED_SYSPROP, "false")))
+                .fileEnabled(Boolean.parseBoolean(getConfigurationProperty(overrides, AUDIT_FILE_ENABLED_ENV, AUDIT_FILE_ENABLED_SYSPROP, "false")))
+                .databaseEnabled(Boolean.parseBoolean(getConfigurationProperty(overrides, AUDIT_DATABASE_ENABLED_ENV, AUDIT_DATABASE_ENABLED_SYSPROP, "false")))
+                .filePath(getConfigurationProperty(overrides, AUDIT_FILE_PATH_ENV, AUDIT_FILE_PATH_SYSPROP, "./logs"))
+                .filePrefix(getConfigurationProperty(overrides, AUDIT_FILE_PREFIX_ENV, AUDIT_FILE_PREFIX_SYSPROP, "audit-log-"))
+                .layoutTemplate(current != null ? current.getLayoutTemplate() : resolveAuditLayoutTemplate())
+                .secureLayoutEnabled(secureLayoutEnabled)
+                .secureLayoutKey(secureLayoutKey)
+                .secureLayoutSalt(secureLayoutSalt)
+                .secureLayoutKeySpec(secureLayoutKeySpec)
+                .encryptionEnvelopeMode(encryptionEnvelopeMode)
+                .envelopeKey(envelopeKey)
+                .envelopeKeyId(envelopeKey != null ? resolveKeyId(envelopeKey) : null)
+                .encryptionEnabled(encryptionEnabled)
+                .encryptionSecretKey(encryptionSecretKey)
+                .encryptionKey(encryptionKey)
+                .apiDisabled(Boolean.parseBoolean(getConfigurationProperty(overrides, AUDIT_API_DISABLED_ENV, AUDIT_API_DISABLED_SYSPROP, "false")))
+                .excludedApiPath(excludedApiPath)
+                .excludedApiPaths(Collections.unmodifiableSet(excludedApiPaths))
+                .excludedApiPathMatcher(PathExclusionMatcher.compile(excludedApiPaths))
+                .entityDisabled(Boolean.parseBoolean(getConfigurationProperty(overrides, AUDIT_ENTITY_DISABLED_ENV, AUDIT_ENTITY_DISABLED_SYSPROP, "false")))
+                .securityDisabled(Boolean.parseBoolean(getConfigurationProperty(overrides, AUDIT_SECURITY_DISABLED_ENV, AUDIT_SECURITY_DISABLED_SYSPROP, "false")))
+                .sensitiveDataMaskingEnabled(Boolean.parseBoolean(getConfigurationProperty(overrides, SENSITIVE_DATA_MASKING_ENABLED_ENV, SENSITIVE_DATA_MASKING_ENABLED_SYSPROP, "false")))
+                .sensitiveDataKeys(Collections.unmodifiableMap(sensitiveDataKeys))
+                .sensitiveDataPatterns(Collections.unmodifiableMap(sensitiveDataPatterns))
+                .sensitiveDataMasker(sensitiveDataMasker)
+                .sensitiveDataMaskFields(sensitiveDataMaskFields)
+                .sensitiveDataSkipFields(sensitiveDataSkipFields)
+                .sensitiveDataMaskingPolicy(SensitiveDataMaskingPolicy.of(sensitiveDataMasker, sensitiveDataMaskFields,
+                        sensitiveDataSkipFields, SensitiveDataMaskingPolicy.Action.SCAN))
+                .blindIndexKey(blindIndexKey)
+                .apiBodyBinaryTypes(apiBodyBinaryTypes)
+                .apiBodyCapture(AuditBodyCapture.of(apiBodyMaxBytes, apiBodyBinaryTypes))
+                .databaseBatchSize(getPositiveIntConfigurationProperty(overrides, AUDIT_DATABASE_BATCH_SIZE_ENV, AUDIT_DATABASE_BATCH_SIZE_SYSPROP, 500, errors))
+                .databaseLingerMs(getPositiveIntConfigurationProperty(overrides, AUDIT_DATABASE_LINGER_MS_ENV, AUDIT_DATABASE_LINGER_MS_SYSPROP, 200, errors))
+                .databaseCopyMode("copy".equalsIgnoreCase(getConfigurationProperty(overrides, AUDIT_DATABASE_WRITE_MODE_ENV, AUDIT_DATABASE_WRITE_MODE_SYSPROP, "insert").trim()))
+                .build();
+    }
+
     /**
      * @return true if console audit logging is enabled
      */
     public boolean isAuditConsoleEnabled() {
-        return Boolean.parseBoolean(getConfigurationProperty(AUDIT_CONSOLE_ENABLED_ENV, AUDIT_CONSOLE_ENABLED_SYSPROP, "false"));
+        return getSnapshot().isConsoleEnabled();
     }
 
     /**
      * @return true if file audit logging is enabled
      */
     public boolean isAuditFileEnabled() {
-        return Boolean.parseBoolean(getConfigurationProperty(AUDIT_FILE_ENABLED_ENV, AUDIT_FILE_ENABLED_SYSPROP, "false"));
+        return getSnapshot().isFileEnabled();
     }
 
     /**
      * @return true if database audit logging is enabled
      */
     public boolean isAuditDatabaseEnabled() {
-        return Boolean.parseBoolean(getConfigurationProperty(AUDIT_DATABASE_ENABLED_ENV, AUDIT_DATABASE_ENABLED_SYSPROP, "false"));
+        return getSnapshot().isDatabaseEnabled();
     }
 
     /**
      * @return the file path for audit logging
      */
     public String getAuditFilePath() {
-        return getConfigurationProperty(AUDIT_FILE_PATH_ENV, AUDIT_FILE_PATH_SYSPROP, "./logs");
+        return getSnapshot().getFilePath();
     }
 
     /**
      * @return the file prefix for audit logging
      */
     public String getAuditFilePrefix() {
-        return getConfigurationProperty(AUDIT_FILE_PREFIX_ENV, AUDIT_FILE_PREFIX_SYSPROP, "audit-log-");
+        return getSnapshot().getFilePrefix();
     }
 
     /**
      * @return the layout template for audit logging
      */
     public String getAuditLayoutTemplate() {
-        // Check environment variable first
-        String value = System.getenv(AUDIT_LAYOUT_TEMPLATE_ENV);
-        if (value != null && !value.trim().isEmpty()) {
-            return value;
-        }
-        
-        // Check system property without Spring property resolution to avoid placeholder issues
-        try {
-            value = System.getProperty(AUDIT_LAYOUT_TEMPLATE_SYSPROP);
-            if (value != null && !value.trim().isEmpty()) {
-                return value;
-            }
-        } catch (Exception e) {
-            logger.debug("Could not get system property {}: {}", AUDIT_LAYOUT_TEMPLATE_SYSPROP, e.getMessage());
-        }
-        
-        // Return default template with escaped placeholders
-        return "${eventDate}|${uuid}|actor=${actor}|${action}|origin=${origin} => ${foreach fields field}${field.name} ${field.type}:${field.value}, ${end}";
+        return getSnapshot().getLayoutTemplate();
     }
 
     /**
@@ -184,35 +587,42 @@ public class AuditPropertiesConfiguration {
      * @return true if secure layout is enabled
      */
     public boolean isSecureLayoutEnabled() {
-        return Boolean.parseBoolean(getConfigurationProperty(SECURE_LAYOUT_ENABLED_ENV, SECURE_LAYOUT_ENABLED_SYSPROP, "false"));
+        return getSnapshot().isSecureLayoutEnabled();
     }
 
     /**
      * @return the secure layout key for encryption
      */
     public String getSecureLayoutKey() {
-        return getConfigurationProperty(SECURE_LAYOUT_KEY_ENV, SECURE_LAYOUT_KEY_SYSPROP, "");
+        return getSnapshot().getSecureLayoutKey();
     }
 
     /**
      * @return the secure layout salt for encryption
      */
     public String getSecureLayoutSalt() {
-        return getConfigurationProperty(SECURE_LAYOUT_SALT_ENV, SECURE_LAYOUT_SALT_SYSPROP, "");
+        return getSnapshot().getSecureLayoutSalt();
     }
 
     /**
      * @return true if encryption is enabled
      */
     public boolean isEncryptionEnabled() {
-        return Boolean.parseBoolean(getConfigurationProperty(ENCRYPTION_SECRET_ENABLED_ENV, ENCRYPTION_SECRET_ENABLED_SYSPROP, "false"));
+        return getSnapshot().isEncryptionEnabled();
     }
 
     /**
      * @return the secret key for encryption
      */
     public String getEncryptionSecretKey() {
-        return getConfigurationProperty(ENCRYPTION_SECRET_KEY_ENV, ENCRYPTION_SECRET_KEY_SYSPROP, "");
+        return getSnapshot().getEncryptionSecretKey();
+    }
+
+    /**
+     * @return true when event details are encrypted as one envelope rather than value by value
+     */
+    public boolean isEncryptionEnvelopeMode() {
+        return getSnapshot().isEncryptionEnvelopeMode();
     }
 
     /**
@@ -226,28 +636,35 @@ public class AuditPropertiesConfiguration {
      * @return true if audit api is disabled
      */
     public boolean isAuditApiDisabled() {
-        return Boolean.parseBoolean(getConfigurationProperty(AUDIT_API_DISABLED_ENV, AUDIT_API_DISABLED_SYSPROP, "false"));
+        return getSnapshot().isApiDisabled();
     }
 
     /**
      * @return path for audit api excluded
      */
     public String getExcludedApiPath() {
-        return getConfigurationProperty(EXCLUDE_API_PATH_ENV, EXCLUDE_API_PATH_SYSPROP, "/");
+        return getSnapshot().getExcludedApiPath();
+    }
+
+    /**
+     * @return the excluded api paths compiled into a matcher supporting * and ** patterns
+     */
+    public PathExclusionMatcher getExcludedApiPathMatcher() {
+        return getSnapshot().getExcludedApiPathMatcher();
     }
 
     /**
      * @return true if audit entity is disabled
      */
     public boolean isAuditEntityDisabled() {
-        return Boolean.parseBoolean(getConfigurationProperty(AUDIT_ENTITY_DISABLED_ENV, AUDIT_ENTITY_DISABLED_SYSPROP, "false"));
+        return getSnapshot().isEntityDisabled();
     }
 
     /**
      * @return true if audit security is disabled
      */
     public boolean isAuditSecurityDisabled() {
-        return Boolean.parseBoolean(getConfigurationProperty(AUDIT_SECURITY_DISABLED_ENV, AUDIT_SECURITY_DISABLED_SYSPROP, "false"));
+        return getSnapshot().isSecurityDisabled();
     }
 
     /**
@@ -296,14 +713,302 @@ public class AuditPropertiesConfiguration {
      * @return true if sensitive data masking is enabled
      */
     public boolean isSensitiveDataMaskingEnabled() {
-        return Boolean.parseBoolean(getConfigurationProperty(SENSITIVE_DATA_MASKING_ENABLED_ENV, SENSITIVE_DATA_MASKING_ENABLED_SYSPROP, "false"));
+        return getSnapshot().isSensitiveDataMaskingEnabled();
     }
 
     /**
      * @return the sensitive data keys configuration as a map
      */
     public Map<String, String> getSensitiveDataKeys() {
-        String keysConfig = getConfigurationProperty(SENSITIVE_DATA_KEYS_ENV, SENSITIVE_DATA_KEYS_SYSPROP, "");
+        return getSnapshot().getSensitiveDataKeys();
+    }
+
+    /**
+     * @return the sensitive data keys compiled into one masking engine
+     */
+    public SensitiveDataMasker getSensitiveDataMasker() {
+        return getSnapshot().getSensitiveDataMasker();
+    }
+
+    /**
+     * @return the per field masking table built from the mask and skip field lists
+     */
+    public SensitiveDataMaskingPolicy getSensitiveDataMaskingPolicy() {
+        return getSnapshot().getSensitiveDataMaskingPolicy();
+    }
+
+    /**
+     * @return how request and response bodies are captured for API audit events
+     */
+    public AuditBodyCapture getApiBodyCapture() {
+        return getSnapshot().getApiBodyCapture();
+    }
+
+    /**
+     * @return the number of threads decrypting search results, at most the number of processors by default
+     */
+    public int getAuditReadDecryptThreads() {
+        return getIntConfigurationProperty(AUDIT_READ_DECRYPT_THREADS_ENV, AUDIT_READ_DECRYPT_THREADS_SYSPROP,
+                Math.min(4, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * @return the ring buffer capacity of each audit handler
+     */
+    public int getAuditQueueCapacity() {
+        return getIntConfigurationProperty(AUDIT_QUEUE_CAPACITY_ENV, AUDIT_QUEUE_CAPACITY_SYSPROP, 8192);
+    }
+
+    /**
+     * @return the maximum number of events a handler receives per batch
+     */
+    public int getAuditBatchSize() {
+        return getIntConfigurationProperty(AUDIT_BATCH_SIZE_ENV, AUDIT_BATCH_SIZE_SYSPROP, 256);
+    }
+
+    /**
+     * @return the number of buffered events that triggers a database flush
+     */
+    public int getAuditDatabaseBatchSize() {
+        return getSnapshot().getDatabaseBatchSize();
+    }
+
+    /**
+     * @return the maximum time in milliseconds an event waits in the database buffer
+     */
+    public int getAuditDatabaseLingerMs() {
+        return getSnapshot().getDatabaseLingerMs();
+    }
+
+    /**
+     * @return true if buffered database events are bulk-loaded with COPY instead of batched inserts
+     */
+    public boolean isAuditDatabaseCopyMode() {
+        return getSnapshot().isDatabaseCopyMode();
+    }
+
+    /**
+     * @return true if events that do not fit in a handler queue spill to the overflow journal
+     */
+    public boolean isAuditOverflowJournalEnabled() {
+        return Boolean.parseBoolean(getConfigurationProperty(AUDIT_OVERFLOW_JOURNAL_ENABLED_ENV, AUDIT_OVERFLOW_JOURNAL_ENABLED_SYSPROP, "true"));
+    }
+
+    /**
+     * @return the directory holding the overflow journal files
+     */
+    public String getAuditOverflowJournalPath() {
+        return getConfigurationProperty(AUDIT_OVERFLOW_JOURNAL_PATH_ENV, AUDIT_OVERFLOW_JOURNAL_PATH_SYSPROP, "./logs/audit-overflow");
+    }
+
+    /**
+     * @return the size in megabytes of each handler's overflow journal, at most 2047 as the file is mapped as a whole
+     */
+    public int getAuditOverflowJournalSizeMb() {
+        return getIntConfigurationProperty(AUDIT_OVERFLOW_JOURNAL_SIZE_MB_ENV, AUDIT_OVERFLOW_JOURNAL_SIZE_MB_SYSPROP, 64);
+    }
+
+    /**
+     * @param category the audit event category, e.g. API or SECURITY
+     * @param defaultPolicy the policy used when none is configured for the category
+     * @return the backpressure policy definition for the category, e.g. "sample:0.01"
+     */
+    public String getAuditBackpressurePolicy(String category, String defaultPolicy) {
+        return getConfigurationProperty(AUDIT_BACKPRESSURE_ENV_PREFIX + category.toUpperCase(),
+                AUDIT_BACKPRESSURE_SYSPROP_PREFIX + category.toLowerCase(), defaultPolicy);
+    }
+
+    /**
+     * @param lane the priority lane, e.g. HIGH or BULK
+     * @return the lane's share of each drained batch relative to the other lanes
+     */
+    public int getAuditLaneWeight(String lane, int defaultWeight) {
+        return getIntConfigurationProperty(AUDIT_LANE_ENV_PREFIX + lane.toUpperCase() + "_WEIGHT",
+                AUDIT_LANE_SYSPROP_PREFIX + lane.toLowerCase() + ".weight", defaultWeight);
+    }
+
+    /**
+     * @param lane the priority lane, e.g. HIGH or BULK
+     * @return maximum time in milliseconds an event should wait in the lane before reaching the handler
+     */
+    public int getAuditLaneSloMs(String lane, int defaultSloMs) {
+        return getIntConfigurationProperty(AUDIT_LANE_ENV_PREFIX + lane.toUpperCase() + "_SLO_MS",
+                AUDIT_LANE_SYSPROP_PREFIX + lane.toLowerCase() + ".slo.ms", defaultSloMs);
+    }
+
+    /**
+     * @return maximum number of database writes in flight at once
+     */
+    public int getAuditDatabaseMaxConcurrentWrites() {
+        return getIntConfigurationProperty(AUDIT_DATABASE_MAX_CONCURRENT_WRITES_ENV, AUDIT_DATABASE_MAX_CONCURRENT_WRITES_SYSPROP, 4);
+    }
+
+    /**
+     * @param sink the sink name, e.g. console, file or database
+     * @return the ring capacity per lane for the sink, defaulting to audit.queue.capacity
+     */
+    public int getAuditSinkQueueCapacity(String sink) {
+        return getIntConfigurationProperty(AUDIT_SINK_ENV_PREFIX + sink.toUpperCase() + "_QUEUE_CAPACITY",
+                AUDIT_SINK_SYSPROP_PREFIX + sink.toLowerCase() + ".queue.capacity", getAuditQueueCapacity());
+    }
+
+    /**
+     * @param sink the sink name, e.g. console, file or database
+     * @return the backpressure policy applied to every event for the sink, or null to use the category policies
+     */
+    public String getAuditSinkOverflowPolicy(String sink) {
+        return getConfigurationProperty(AUDIT_SINK_ENV_PREFIX + sink.toUpperCase() + "_OVERFLOW",
+                AUDIT_SINK_SYSPROP_PREFIX + sink.toLowerCase() + ".overflow", null);
+    }
+
+    /**
+     * @return overall time in milliseconds allowed for draining and flushing the audit pipeline on shutdown
+     */
+    public int getAuditShutdownTimeoutMs() {
+        return getIntConfigurationProperty(AUDIT_SHUTDOWN_TIMEOUT_MS_ENV, AUDIT_SHUTDOWN_TIMEOUT_MS_SYSPROP, 10000);
+    }
+
+    /**
+     * @return the audit identifier strategy: uuidv7, ulid or uuidv4
+     */
+    public String getAuditIdentifierStrategy() {
+        return getConfigurationProperty(AUDIT_IDENTIFIER_STRATEGY_ENV, AUDIT_IDENTIFIER_STRATEGY_SYSPROP, "uuidv7");
+    }
+
+    /**
+     * @return maximum number of durable audit events committed together in one group commit
+     */
+    public int getAuditSyncMaxGroupSize() {
+        return getIntConfigurationProperty(AUDIT_SYNC_MAX_GROUP_SIZE_ENV, AUDIT_SYNC_MAX_GROUP_SIZE_SYSPROP, 512);
+    }
+
+    /**
+     * @return true if API requests and responses are merged into one API_CALL event per correlation id
+     */
+    public boolean isAuditApiCorrelated() {
+        return Boolean.parseBoolean(getConfigurationProperty(AUDIT_API_CORRELATED_ENV, AUDIT_API_CORRELATED_SYSPROP, "false"));
+    }
+
+    /**
+     * @return maximum number of API requests held while waiting for their response
+     */
+    public int getAuditApiCorrelationMaxPending() {
+        return getIntConfigurationProperty(AUDIT_API_CORRELATION_MAX_PENDING_ENV, AUDIT_API_CORRELATION_MAX_PENDING_SYSPROP, 10000);
+    }
+
+    /**
+     * @return time in milliseconds after which a held API request without response is logged on its own
+     */
+    public int getAuditApiCorrelationTimeoutMs() {
+        return getIntConfigurationProperty(AUDIT_API_CORRELATION_TIMEOUT_MS_ENV, AUDIT_API_CORRELATION_TIMEOUT_MS_SYSPROP, 30000);
+    }
+
+    /**
+     * @return role a caller needs to read or change the audit configuration at runtime
+     */
+    public String getAuditConfigAdminRole() {
+        return getConfigurationProperty(AUDIT_CONFIG_ADMIN_ROLE_ENV, AUDIT_CONFIG_ADMIN_ROLE_SYSPROP, "AUDIT_ADMIN");
+    }
+
+    /**
+     * @return true if API audit events are built on worker threads instead of the request thread
+     */
+    public boolean isAuditApiDeferred() {
+        return Boolean.parseBoolean(getConfigurationProperty(AUDIT_API_DEFERRED_ENABLED_ENV, AUDIT_API_DEFERRED_ENABLED_SYSPROP, "false"));
+    }
+
+    /**
+     * @return number of worker threads building deferred API audit events
+     */
+    public int getAuditApiDeferredThreads() {
+        return getIntConfigurationProperty(AUDIT_API_DEFERRED_THREADS_ENV, AUDIT_API_DEFERRED_THREADS_SYSPROP, 2);
+    }
+
+    /**
+     * @return captured API messages queued per worker thread before the request thread waits for space
+     */
+    public int getAuditApiDeferredQueueCapacity() {
+        return getIntConfigurationProperty(AUDIT_API_DEFERRED_QUEUE_CAPACITY_ENV, AUDIT_API_DEFERRED_QUEUE_CAPACITY_SYSPROP, 1024);
+    }
+
+    /**
+     * @return true if identical audit events repeated within a window are collapsed into one summary event
+     */
+    public boolean isAuditDedupEnabled() {
+        return Boolean.parseBoolean(getConfigurationProperty(AUDIT_DEDUP_ENABLED_ENV, AUDIT_DEDUP_ENABLED_SYSPROP, "false"));
+    }
+
+    /**
+     * @return length in milliseconds of the audit deduplication window
+     */
+    public int getAuditDedupWindowMs() {
+        return getIntConfigurationProperty(AUDIT_DEDUP_WINDOW_MS_ENV, AUDIT_DEDUP_WINDOW_MS_SYSPROP, 10000);
+    }
+
+    /**
+     * @return maximum number of distinct events tracked per deduplication window
+     */
+    public int getAuditDedupMaxEntries() {
+        return getIntConfigurationProperty(AUDIT_DEDUP_MAX_ENTRIES_ENV, AUDIT_DEDUP_MAX_ENTRIES_SYSPROP, 4096);
+    }
+
+    /**
+     * @return comma separated audit event categories that are deduplicated
+     */
+    public String getAuditDedupCategories() {
+        return getConfigurationProperty(AUDIT_DEDUP_CATEGORIES_ENV, AUDIT_DEDUP_CATEGORIES_SYSPROP, "API,SECURITY");
+    }
+
+    /**
+     * @return true if API calls are sampled according to the audit.api.sampling rules
+     */
+    public boolean isAuditApiSamplingEnabled() {
+        return Boolean.parseBoolean(getConfigurationProperty(AUDIT_API_SAMPLING_ENABLED_ENV, AUDIT_API_SAMPLING_ENABLED_SYSPROP, "false"));
+    }
+
+    /**
+     * @return semicolon separated "method path status rate" API sampling rules, first match wins
+     */
+    public String getAuditApiSamplingRules() {
+        return getConfigurationProperty(AUDIT_API_SAMPLING_RULES_ENV, AUDIT_API_SAMPLING_RULES_SYSPROP, "");
+    }
+
+    /**
+     * @return sampling rate between 0 and 1 for API calls matching no rule
+     */
+    public double getAuditApiSamplingDefaultRate() {
+        return getDoubleConfigurationProperty(AUDIT_API_SAMPLING_DEFAULT_RATE_ENV, AUDIT_API_SAMPLING_DEFAULT_RATE_SYSPROP, 1.0);
+    }
+
+    /**
+     * @return target number of sampled API calls per second, or 0 to keep the configured rates
+     */
+    public double getAuditApiSamplingTargetEps() {
+        return getDoubleConfigurationProperty(AUDIT_API_SAMPLING_TARGET_EPS_ENV, AUDIT_API_SAMPLING_TARGET_EPS_SYSPROP, 0);
+    }
+
+    private String resolveAuditLayoutTemplate() {
+        // Check environment variable first
+        String value = System.getenv(AUDIT_LAYOUT_TEMPLATE_ENV);
+        if (value != null && !value.trim().isEmpty()) {
+            return value;
+        }
+        
+        // Check system property without Spring property resolution to avoid placeholder issues
+        try {
+            value = System.getProperty(AUDIT_LAYOUT_TEMPLATE_SYSPROP);
+            if (value != null && !value.trim().isEmpty()) {
+                return value;
+            }
+        } catch (Exception e) {
+            logger.debug("Could not get system property {}: {}", AUDIT_LAYOUT_TEMPLATE_SYSPROP, e.getMessage());
+        }
+        
+        // Return default template with escaped placeholders
+        return "${eventDate}|${uuid}|actor=${actor}|${action}|origin=${origin} => ${foreach fields field}${field.name} ${field.type}:${field.value}, ${end}";
+    }
+
+    private Map<String, String> resolveSensitiveDataKeys(String keysConfig) {
         if (keysConfig == null || keysConfig.trim().isEmpty()) {
             return getDefaultSensitiveDataKeys();
         }
@@ -324,6 +1029,88 @@ public class AuditPropertiesConfiguration {
         }
     }
 
+    /**
+     * Parse a comma separated field list, falling back to the defaults when none is configured
+     */
+    private static List<String> resolveFieldList(String fieldsConfig, List<String> defaults) {
+        if (fieldsConfig == null || fieldsConfig.trim().isEmpty()) {
+            return defaults;
+        }
+        List<String> fields = new ArrayList<>();
+        for (String field : fieldsConfig.split(",")) {
+            if (!field.trim().isEmpty()) {
+                fields.add(field.trim());
+            }
+        }
+        return Collections.unmodifiableList(fields);
+    }
+
+    /**
+     * Decode the Base64 AES key once so a bad key is reported on reload rather than on every event
+     */
+    private static SecretKeySpec resolveEncryptionKey(String encryptionSecretKey, List<String> errors) {
+        try {
+            byte[] keyBytes = Base64.getDecoder().decode(encryptionSecretKey);
+            if (keyBytes.length != 16 && keyBytes.length != 24 && keyBytes.length != 32) {
+                errors.add(ENCRYPTION_SECRET_KEY_SYSPROP + ": AES keys are 16, 24 or 32 bytes, got " + keyBytes.length);
+                return null;
+            }
+            return new SecretKeySpec(keyBytes, "AES");
+        } catch (IllegalArgumentException e) {
+            errors.add(ENCRYPTION_SECRET_KEY_SYSPROP + ": not valid Base64");
+            return null;
+        }
+    }
+
+    /**
+     * Derive the secure layout AES key once, as SHA-256 of key and salt, instead of for every value
+     */
+    private static SecretKeySpec resolveSecureLayoutKey(String secureLayoutKey, String secureLayoutSalt) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            return new SecretKeySpec(sha.digest((secureLayoutKey + secureLayoutSalt).getBytes(StandardCharsets.UTF_8)), "AES");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Decode the Base64 HMAC key of the blind index columns; keys shorter than 16 bytes are rejected
+     */
+    private static SecretKeySpec resolveBlindIndexKey(String blindIndexKey, List<String> errors) {
+        if (blindIndexKey.isEmpty()) {
+            errors.add(AUDIT_BLIND_INDEX_KEY_SYSPROP + ": required when audit.blind.index.enabled is true");
+            return null;
+        }
+        try {
+            byte[] keyBytes = Base64.getDecoder().decode(blindIndexKey);
+            if (keyBytes.length < 16) {
+                errors.add(AUDIT_BLIND_INDEX_KEY_SYSPROP + ": HMAC keys need at least 16 bytes, got " + keyBytes.length);
+                return null;
+            }
+            return new SecretKeySpec(keyBytes, "HmacSHA256");
+        } catch (IllegalArgumentException e) {
+            errors.add(AUDIT_BLIND_INDEX_KEY_SYSPROP + ": not valid Base64");
+            return null;
+        }
+    }
+
+    /**
+     * Identify a key without revealing it, by the first 8 bytes of its SHA-256 in hex
+     */
+    private static String resolveKeyId(SecretKeySpec key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getEncoded());
+            StringBuilder keyId = new StringBuilder(16);
+            for (int i = 0; i < 8; i++) {
+                keyId.append(String.format("%02x", digest[i]));
+            }
+            return keyId.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
     /**
      * @return default sensitive data keys
      */
@@ -358,4 +1145,79 @@ public class AuditPropertiesConfiguration {
         logger.debug("Config Property: {}/{} = {}", envKey, sysPropKey, value);
         return value;
     }
-}
\ No newline at end of file
+
+    /**
+     * Same lookup as {@link #getConfigurationProperty} for numeric properties
+     * Falls back to the default value if the configured value is not a number
+     */
+    private int getIntConfigurationProperty(String envKey, String sysPropKey, int defaultValue) {
+        String value = getConfigurationProperty(envKey, sysPropKey, String.valueOf(defaultValue));
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid value '{}' for {}, using default {}", value, sysPropKey, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Same lookup as {@link #getConfigurationProperty} for decimal properties
+     * Falls back to the default value if the configured value is not a number
+     */
+    private double getDoubleConfigurationProperty(String envKey, String sysPropKey, double defaultValue) {
+        String value = getConfigurationProperty(envKey, sysPropKey, String.valueOf(defaultValue));
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid value '{}' for {}, using default {}", value, sysPropKey, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Same lookup as {@link #getConfigurationProperty} with runtime overrides taking precedence
+     */
+    private String getConfigurationProperty(Map<String, String> overrides, String envKey, String sysPropKey, String defaultValue) {
+        String value = overrides.get(sysPropKey);
+        if (value == null || value.trim().isEmpty()) {
+            value = getConfigurationProperty(envKey, sysPropKey, defaultValue);
+        }
+        return value;
+    }
+
+    /**
+     * Numeric lookup with runtime overrides that reports values that are not positive numbers
+     */
+    private int getPositiveIntConfigurationProperty(Map<String, String> overrides, String envKey, String sysPropKey,
+                                                    int defaultValue, List<String> errors) {
+        String value = getConfigurationProperty(overrides, envKey, sysPropKey, String.valueOf(defaultValue));
+        try {
+            int parsed = Integer.parseInt(value.trim());
+            if (parsed > 0) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        errors.add(sysPropKey + ": expected a positive number, got '" + value + "'");
+        return defaultValue;
+    }
+
+    /**
+     * Numeric lookup with runtime overrides that reports values that are negative or not numbers
+     */
+    private int getNonNegativeIntConfigurationProperty(Map<String, String> overrides, String envKey, String sysPropKey,
+                                                       int defaultValue, List<String> errors) {
+        String value = getConfigurationProperty(overrides, envKey, sysPropKey, String.valueOf(defaultValue));
+        try {
+            int parsed = Integer.parseInt(value.trim());
+            if (parsed >= 0) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        errors.add(sysPropKey + ": expected zero or a positive number, got '" + value + "'");
+        return defaultValue;
+    }
+}
@@ -1,21 +1,25 @@
 package com.fastcode.audit.application;
 
 import com.fastcode.audit.AuditPropertiesConfiguration;
-import com.fastcode.audit.utils.PrivacyAwareUtils;
+import com.fastcode.audit.utils.AuditBodyCapture;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.zalando.logbook.*;
 
+import jakarta.annotation.PreDestroy;
 import java.io.IOException;
-import java.util.Arrays;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 /**
  * Custom API audit implementation to replace audit4j ApiAudit
  * Intercepts HTTP requests and responses for auditing
+ * With audit.api.correlated=true each request/response pair is logged as one API_CALL event
+ * With audit.api.sampling.enabled=true only a sample of calls is logged, each with its samplingWeight
+ * Request and response bodies are only captured when audit.api.body.max.bytes is set, see AuditBodyCapture
+ * The request thread only takes an ApiAuditCapture of each message; with audit.api.deferred.enabled=true
+ * sampling, correlation, body capture and masking run on ApiAuditDispatcher worker threads
  */
 @Component
 @RequiredArgsConstructor
@@ -24,28 +28,23 @@ public class ApiAudit implements Sink {
 
     private final AuditService customAuditService;
     private final AuditPropertiesConfiguration env;
+    private final ApiAuditCorrelator correlator;
+    private final ApiAuditSampler sampler;
+    private final ApiAuditDispatcher dispatcher;
 
 	
 	@Override
 	public boolean isActive() {
-		boolean active = !env.isAuditApiDisabled();
-		System.out.println("ApiAudit.isActive() called - returning: " + active + ", auditApiDisabled: " + env.isAuditApiDisabled());
-        return active;
+        return !env.isAuditApiDisabled();
     }
 
 	@Override
 	public void write(final Precorrelation precorrelation, final HttpRequest request) throws IOException {
-		System.out.println("ApiAudit.write(Precorrelation) called for path: " + request.getPath());
-		if (!request.getPath().contains("/audit") && !isPathExcluded(request.getPath())) {
-			try {
-				auditBeforeApiCall(request);
-			} catch (Exception ex) {
-                try {
-                    auditErrorApiCall(request, ex);
-                } catch (Exception e) {
-                    log.error("Error in API error audit: {}", e.getMessage(), e);
-                }
-            }
+		if (!isPathExcluded(request.getPath())) {
+			ApiAuditCapture capturedRequest = ApiAuditCapture.of(request);
+			String correlationId = precorrelation.getId();
+			long requestTimestamp = precorrelation.getStart().toEpochMilli();
+			dispatcher.execute(correlationId, () -> writeRequest(correlationId, requestTimestamp, capturedRequest));
         } else {
             log.debug("CustomApiAudit.write(Precorrelation) - path excluded: {}", request.getPath());
         }
@@ -53,51 +52,74 @@ public class ApiAudit implements Sink {
 
     @Override
     public void write(final Correlation correlation, final HttpRequest request, final HttpResponse response) throws IOException {
-        log.debug("CustomApiAudit.write(Correlation) called for path: {}", request.getPath());
-        if (!request.getPath().contains("/audit") && !isPathExcluded(request.getPath())) {
-            try {
-                auditAfterApiCall(request, response, correlation);
-            } catch (Exception ex) {
-                log.error("Error in API audit after call: {}", ex.getMessage(), ex);
-            }
+        if (!isPathExcluded(request.getPath())) {
+            log.debug("CustomApiAudit.write(Correlation) called for path: {}", request.getPath());
+            ApiAuditCapture capturedRequest = ApiAuditCapture.of(request);
+            ApiAuditCapture capturedResponse = ApiAuditCapture.of(response);
+            String correlationId = correlation.getId();
+            long durationMs = correlation.getDuration().toMillis();
+            dispatcher.execute(correlationId, () -> writeResponse(correlationId, durationMs, capturedRequest, capturedResponse));
         }
     }
 
     /**
-     * Audit before API call
+     * Let queued events be written before the audit service shuts down
      */
-    private void auditBeforeApiCall(HttpRequest request) {
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdown();
+    }
+
+    private void writeRequest(String correlationId, long requestTimestamp, ApiAuditCapture request) {
         try {
-            String actor = getCurrentActor();
-            String origin = getOrigin(request);
-            
-            Map<String, Object> details = new HashMap<>();
-            details.put("httpMethod", request.getMethod());
-            details.put("path", request.getPath());
-            details.put("query", request.getQuery());
-            details.put("scheme", request.getScheme());
-            details.put("contentType", request.getContentType());
-            details.put("userAgent", getUserAgent(request));
-            details.put("headers", getHeadersAsString(request));
-            
-            if (request.getBody() != null) {
-                String body = request.getBody().toString();
-                // Apply sensitive data masking if enabled
-                if (env.isSensitiveDataMaskingEnabled()) {
-                    body = PrivacyAwareUtils.maskSensitiveData(body, env.getSensitiveDataKeys());
+            if (!correlator.isEnabled() || !holdForCorrelation(correlationId, requestTimestamp, request)) {
+                double samplingWeight = sampler.sample(correlationId, request.getMethod(), request.getPath(), null);
+                if (samplingWeight > 0) {
+                    auditBeforeApiCall(request, samplingWeight);
                 }
-                details.put("body", body);
             }
+        } catch (Exception ex) {
+            try {
+                auditErrorApiCall(request, ex);
+            } catch (Exception e) {
+                log.error("Error in API error audit: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void writeResponse(String correlationId, long durationMs, ApiAuditCapture request, ApiAuditCapture response) {
+        try {
+            ApiAuditCorrelator.PendingApiRequest pendingRequest =
+                    correlator.isEnabled() ? correlator.complete(correlationId) : null;
+            double samplingWeight = sampler.sample(correlationId, request.getMethod(), request.getPath(), response.getStatus());
+            if (samplingWeight == 0) {
+                log.debug("CustomApiAudit.write(Correlation) - call not sampled: {}", request.getPath());
+            } else if (pendingRequest != null) {
+                auditCorrelatedApiCall(pendingRequest, correlationId, durationMs, response, samplingWeight);
+            } else {
+                auditAfterApiCall(request, response, samplingWeight);
+            }
+        } catch (Exception ex) {
+            log.error("Error in API audit after call: {}", ex.getMessage(), ex);
+        }
+    }
 
+    /**
+     * Audit before API call
+     */
+    private void auditBeforeApiCall(ApiAuditCapture request, double samplingWeight) {
+        try {
+            String body = captureBody(request);
             customAuditService.logApiAudit(
                 request.getMethod(),
                 request.getPath(),
-                actor,
-                origin,
+                request.getActor(),
+                request.getOrigin(),
                 "PENDING",
                 request.getContentType(),
-                getUserAgent(request),
-                    "API_REQUEST"
+                request.getUserAgent(),
+                    "API_REQUEST",
+                eventDetails(samplingWeight, request.getQuery(), "body", body)
             );
         } catch (Exception e) {
             log.error("Error in auditBeforeApiCall: {}", e.getMessage(), e);
@@ -107,64 +129,103 @@ public class ApiAudit implements Sink {
     /**
      * Audit after API call
      */
-    private void auditAfterApiCall(HttpRequest request, HttpResponse response, Correlation correlation) {
+    private void auditAfterApiCall(ApiAuditCapture request, ApiAuditCapture response, double samplingWeight) {
+        try {
+            String responseBody = captureBody(response);
+            customAuditService.logApiAudit(
+                request.getMethod(),
+                request.getPath(),
+                request.getActor(),
+                request.getOrigin(),
+                String.valueOf(response.getStatus()),
+                response.getContentType(),
+                request.getUserAgent(),
+                "API_RESPONSE",
+                eventDetails(samplingWeight, request.getQuery(), "responseBody", responseBody)
+            );
+        } catch (Exception e) {
+            log.error("Error in auditAfterApiCall: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Hold the request half of a call until its response arrives
+     * @return false if the request could not be held and must be audited on its own
+     */
+    private boolean holdForCorrelation(String correlationId, long requestTimestamp, ApiAuditCapture request) {
+        ApiAuditCorrelator.PendingApiRequest pendingRequest = ApiAuditCorrelator.PendingApiRequest.builder()
+                .httpMethod(request.getMethod())
+                .path(request.getPath())
+                .actor(request.getActor())
+                .origin(request.getOrigin())
+                .contentType(request.getContentType())
+                .userAgent(request.getUserAgent())
+                .query(request.getQuery())
+                .body(captureBody(request))
+                .requestTimestamp(requestTimestamp)
+                .startedAt(System.nanoTime())
+                .build();
+        return correlator.hold(correlationId, pendingRequest);
+    }
+
+    /**
+     * Audit request and response of one call as a single API_CALL event
+     */
+    private void auditCorrelatedApiCall(ApiAuditCorrelator.PendingApiRequest pendingRequest, String correlationId,
+                                        long durationMs, ApiAuditCapture response, double samplingWeight) {
         try {
-            String actor = getCurrentActor();
-            String origin = getOrigin(request);
-            
             Map<String, Object> details = new HashMap<>();
-            details.put("httpMethod", request.getMethod());
-            details.put("path", request.getPath());
-            details.put("query", request.getQuery());
-            details.put("responseStatus", String.valueOf(response.getStatus()));
-            details.put("contentType", response.getContentType());
-            details.put("responseTime", correlation.getDuration().toMillis() + "ms");
-            details.put("headers", getHeadersAsString(response));
-            
-            if (response.getBody() != null) {
-                String responseBody = response.getBody().toString();
-                // Apply sensitive data masking if enabled
-                if (env.isSensitiveDataMaskingEnabled()) {
-                    responseBody = PrivacyAwareUtils.maskSensitiveData(responseBody, env.getSensitiveDataKeys());
-                }
+            details.put("correlationId", correlationId);
+            details.put("requestContentType", pendingRequest.getContentType());
+            details.put("requestTimestamp", pendingRequest.getRequestTimestamp());
+            details.put("durationMs", durationMs);
+            if (samplingWeight > 1.0) {
+                details.put("samplingWeight", samplingWeight);
+            }
+            if (pendingRequest.getQuery() != null) {
+                details.put("query", pendingRequest.getQuery());
+            }
+            if (pendingRequest.getBody() != null) {
+                details.put("body", pendingRequest.getBody());
+            }
+            String responseBody = captureBody(response);
+            if (responseBody != null) {
                 details.put("responseBody", responseBody);
             }
 
             customAuditService.logApiAudit(
-                request.getMethod(),
-                request.getPath(),
-                actor,
-                origin,
+                pendingRequest.getHttpMethod(),
+                pendingRequest.getPath(),
+                pendingRequest.getActor(),
+                pendingRequest.getOrigin(),
                 String.valueOf(response.getStatus()),
                 response.getContentType(),
-                getUserAgent(request),
-                "API_RESPONSE"
+                pendingRequest.getUserAgent(),
+                "API_CALL",
+                details
             );
         } catch (Exception e) {
-            log.error("Error in auditAfterApiCall: {}", e.getMessage(), e);
+            log.error("Error in auditCorrelatedApiCall: {}", e.getMessage(), e);
         }
     }
 
     /**
      * Audit API error
      */
-    private void auditErrorApiCall(HttpRequest request, Exception ex) {
+    private void auditErrorApiCall(ApiAuditCapture request, Exception ex) {
         try {
-            String actor = getCurrentActor();
-            String origin = getOrigin(request);
-            
             Map<String, Object> details = new HashMap<>();
             details.put("httpMethod", request.getMethod());
             details.put("path", request.getPath());
             details.put("query", request.getQuery());
             details.put("exceptionType", ex.getClass().getSimpleName());
             details.put("message", ex.getMessage());
-            details.put("userAgent", getUserAgent(request));
+            details.put("userAgent", request.getUserAgent());
 
             customAuditService.logErrorAudit(
                 "API_ERROR",
-                actor,
-                origin,
+                request.getActor(),
+                request.getOrigin(),
                 ex.getClass().getSimpleName(),
                 ex.getMessage(),
                 details
@@ -175,79 +236,44 @@ public class ApiAudit implements Sink {
     }
 
     /**
-     * Check if path should be excluded from auditing
-     */
-    private boolean isPathExcluded(String requestPath) {
-        List<String> pathsList = Arrays.asList(env.getExcludedApiPath().split("\\s*,\\s*"));
-        return pathsList.stream().anyMatch(requestPath::equals);
-    }
-
-    /**
-     * Get current actor from security context
+     * Sampling weight of a sampled call, its query and its captured body, if any
+     * Calls logged without a sampling weight stand for themselves only
      */
-    private String getCurrentActor() {
-        try {
-            // Try to get from Spring Security context if available
-            Class<?> securityContextClass = Class.forName("org.springframework.security.core.context.SecurityContextHolder");
-            Object context = securityContextClass.getMethod("getContext").invoke(null);
-            
-            if (context != null) {
-                Object authentication = context.getClass().getMethod("getAuthentication").invoke(context);
-                if (authentication != null) {
-                    Boolean isAuthenticated = (Boolean) authentication.getClass().getMethod("isAuthenticated").invoke(authentication);
-                    if (isAuthenticated != null && isAuthenticated) {
-                        String name = (String) authentication.getClass().getMethod("getName").invoke(authentication);
-                        if (name != null && !"anonymousUser".equals(name)) {
-                            return name;
-                        }
-                    }
-                }
-            }
-        } catch (Exception e) {
-            log.debug("Could not get actor from security context: {}", e.getMessage());
+    private static Map<String, Object> eventDetails(double samplingWeight, String query, String bodyField, String body) {
+        if (samplingWeight <= 1.0 && query == null && body == null) {
+            return null;
         }
-
-        return "ANONYMOUS";
-    }
-
-    /**
-     * Get origin from request
-     */
-    private String getOrigin(HttpRequest request) {
-        try {
-            return request.getRemote();
-        } catch (Exception e) {
-            return "UNKNOWN";
+        Map<String, Object> details = new HashMap<>(4);
+        if (samplingWeight > 1.0) {
+            details.put("samplingWeight", samplingWeight);
         }
+        if (query != null) {
+            details.put("query", query);
+        }
+        if (body != null) {
+            details.put(bodyField, body);
+        }
+        return details;
     }
 
     /**
-     * Get user agent from request
+     * Capture at most audit.api.body.max.bytes of the body, masked when masking is enabled;
+     * binary content types are not captured
      */
-    private String getUserAgent(HttpRequest request) {
-        try {
-            Object userAgent = request.getHeaders().get("User-Agent");
-            return userAgent != null ? userAgent.toString() : "UNKNOWN";
-        } catch (Exception e) {
-            return "UNKNOWN";
+    private String captureBody(ApiAuditCapture message) {
+        AuditBodyCapture bodyCapture = env.getApiBodyCapture();
+        if (!bodyCapture.isEnabled()) {
+            return null;
         }
+        return bodyCapture.capture(message.getBody(), message.getContentType(), message.getCharset(),
+                env.isSensitiveDataMaskingEnabled() ? env.getSensitiveDataMasker() : null);
     }
 
     /**
-     * Get headers as string representation
+     * Check if path should be excluded from auditing: the audit endpoints themselves and the
+     * excluded api paths, matched by the matcher compiled with the configuration snapshot
      */
-    private String getHeadersAsString(HttpMessage message) {
-        try {
-            StringBuilder headers = new StringBuilder();
-            message.getHeaders().forEach((key, value) -> {
-                if (headers.length() > 0) {
-                    headers.append(", ");
-                }
-                headers.append(key).append(": ").append(value);
-            });
-            return headers.toString();
-        } catch (Exception e) {
-            return "Error getting headers: " + e.getMessage();
-        }
+    private boolean isPathExcluded(String requestPath) {
+        return requestPath.contains("/audit") || env.getExcludedApiPathMatcher().matches(requestPath);
     }
 }
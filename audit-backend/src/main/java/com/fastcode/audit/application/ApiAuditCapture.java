@@ -0,0 +1,150 @@
+package com.fastcode.audit.application;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.zalando.logbook.HttpHeaders;
+import org.zalando.logbook.HttpMessage;
+import org.zalando.logbook.HttpRequest;
+import org.zalando.logbook.HttpResponse;
+
+import java.lang.reflect.Method;
+import java.nio.charset.Charset;
+import java.util.List;
+
+/**
+ * What the API audit keeps of one request or response, taken on the request thread
+ * Only references and scalar values are copied: the headers are Logbook's immutable headers and the body
+ * is the array Logbook already buffered, so taking a capture neither formats nor copies anything
+ * The servlet request and response are recycled once the call completes, so everything an event needs,
+ * including the authentication, must be captured before the event is built on another thread
+ */
+@Getter
+@Builder
+@Slf4j
+public class ApiAuditCapture {
+
+    private static final Method GET_CONTEXT;
+    private static final Method GET_AUTHENTICATION;
+    private static final Method IS_AUTHENTICATED;
+    private static final Method GET_NAME;
+
+    static {
+        Method getContext = null;
+        Method getAuthentication = null;
+        Method isAuthenticated = null;
+        Method getName = null;
+        try {
+            // Spring Security is optional, so it is only reached by reflection
+            getContext = Class.forName("org.springframework.security.core.context.SecurityContextHolder").getMethod("getContext");
+            getAuthentication = Class.forName("org.springframework.security.core.context.SecurityContext").getMethod("getAuthentication");
+            Class<?> authenticationClass = Class.forName("org.springframework.security.core.Authentication");
+            isAuthenticated = authenticationClass.getMethod("isAuthenticated");
+            getName = authenticationClass.getMethod("getName");
+        } catch (Exception e) {
+            log.debug("Spring Security not available, API calls are audited as ANONYMOUS: {}", e.getMessage());
+        }
+        GET_CONTEXT = getContext;
+        GET_AUTHENTICATION = getAuthentication;
+        IS_AUTHENTICATED = isAuthenticated;
+        GET_NAME = getName;
+    }
+
+    private final String method;
+    private final String path;
+    // null when the request has no query string
+    private final String query;
+    private final String scheme;
+    private final String remote;
+    private final String contentType;
+    private final Charset charset;
+    private final HttpHeaders headers;
+    private final byte[] body;
+    private final int status;
+    // Spring Security Authentication of the request thread, resolved to a name when the event is built
+    private final Object authentication;
+
+    /**
+     * Capture a request and the authentication of the current thread
+     */
+    public static ApiAuditCapture of(HttpRequest request) {
+        return builder()
+                .method(request.getMethod())
+                .path(request.getPath())
+                .query(request.getQuery().isEmpty() ? null : request.getQuery())
+                .scheme(request.getScheme())
+                .remote(remoteOf(request))
+                .contentType(request.getContentType())
+                .charset(request.getCharset())
+                .headers(request.getHeaders())
+                .body(bodyOf(request))
+                .authentication(currentAuthentication())
+                .build();
+    }
+
+    public static ApiAuditCapture of(HttpResponse response) {
+        return builder()
+                .contentType(response.getContentType())
+                .charset(response.getCharset())
+                .headers(response.getHeaders())
+                .body(bodyOf(response))
+                .status(response.getStatus())
+                .build();
+    }
+
+    /**
+     * @return name of the authenticated user, or ANONYMOUS
+     */
+    public String getActor() {
+        try {
+            if (authentication != null && Boolean.TRUE.equals(IS_AUTHENTICATED.invoke(authentication))) {
+                String name = (String) GET_NAME.invoke(authentication);
+                if (name != null && !"anonymousUser".equals(name)) {
+                    return name;
+                }
+            }
+        } catch (Exception e) {
+            log.debug("Could not get actor from authentication: {}", e.getMessage());
+        }
+        return "ANONYMOUS";
+    }
+
+    public String getOrigin() {
+        return remote != null ? remote : "UNKNOWN";
+    }
+
+    public String getUserAgent() {
+        List<String> userAgent = headers != null ? headers.get("User-Agent") : null;
+        return userAgent != null ? userAgent.toString() : "UNKNOWN";
+    }
+
+    private static Object currentAuthentication() {
+        if (GET_CONTEXT == null) {
+            return null;
+        }
+        try {
+            Object context = GET_CONTEXT.invoke(null);
+            return context != null ? GET_AUTHENTICATION.invoke(context) : null;
+        } catch (Exception e) {
+            log.debug("Could not get authentication from security context: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static String remoteOf(HttpRequest request) {
+        try {
+            return request.getRemote();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static byte[] bodyOf(HttpMessage message) {
+        try {
+            return message.getBody();
+        } catch (Exception e) {
+            log.debug("Could not capture API message body: {}", e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.fastcode.audit.application;
+
+import com.fastcode.audit.AuditPropertiesConfiguration;
+import com.fastcode.audit.performance.AuditThreadFactory;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds the request half of API calls until their response arrives, keyed by Logbook correlation id,
+ * so ApiAudit can log one API_CALL event per HTTP call instead of API_REQUEST plus API_RESPONSE
+ * The map is bounded by audit.api.correlation.max.pending; when it is full the request is logged on its own
+ * Requests without a response after audit.api.correlation.timeout.ms are logged as standalone API_REQUEST events
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ApiAuditCorrelator {
+
+    private static final long MIN_SWEEP_INTERVAL_MS = 100;
+
+    private final AuditService auditService;
+    private final AuditPropertiesConfiguration auditConfig;
+
+    private final Map<String, PendingApiRequest> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicLong mergedCalls = new AtomicLong();
+    private final AtomicLong orphanedRequests = new AtomicLong();
+    private final AtomicLong overflowedRequests = new AtomicLong();
+
+    private ScheduledExecutorService sweeper;
+    private int maxPending;
+    private long timeoutNanos;
+
+    @PostConstruct
+    public void init() {
+        if (!auditConfig.isAuditApiCorrelated()) {
+            return;
+        }
+        maxPending = auditConfig.getAuditApiCorrelationMaxPending();
+        long timeoutMs = auditConfig.getAuditApiCorrelationTimeoutMs();
+        timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        long sweepInterval = Math.max(MIN_SWEEP_INTERVAL_MS, timeoutMs / 4);
+        sweeper = Executors.newSingleThreadScheduledExecutor(new AuditThreadFactory("audit-api-correlator"));
+        sweeper.scheduleWithFixedDelay(this::expireOrphans, sweepInterval, sweepInterval, TimeUnit.MILLISECONDS);
+        log.info("API audit correlation enabled: up to {} pending requests, {} ms timeout", maxPending, timeoutMs);
+    }
+
+    public boolean isEnabled() {
+        return sweeper != null;
+    }
+
+    /**
+     * Hold a request until its response arrives
+     * @return false if the request could not be held and should be logged on its own
+     */
+    public boolean hold(String correlationId, PendingApiRequest request) {
+        if (pendingCount.incrementAndGet() > maxPending) {
+            pendingCount.decrementAndGet();
+            overflowedRequests.incrementAndGet();
+            return false;
+        }
+        if (pending.putIfAbsent(correlationId, request) != null) {
+            pendingCount.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Take the held request for a response
+     * @return the request, or null if it was never held or has already timed out
+     */
+    public PendingApiRequest complete(String correlationId) {
+        PendingApiRequest request = pending.remove(correlationId);
+        if (request != null) {
+            pendingCount.decrementAndGet();
+            mergedCalls.incrementAndGet();
+        }
+        return request;
+    }
+
+    /**
+     * Log requests that have waited longer than the timeout as standalone events
+     */
+    void expireOrphans() {
+        long cutoff = System.nanoTime() - timeoutNanos;
+        try {
+            pending.forEach((correlationId, request) -> {
+                if (request.getStartedAt() - cutoff < 0 && pending.remove(correlationId, request)) {
+                    pendingCount.decrementAndGet();
+                    orphanedRequests.incrementAndGet();
+                    logStandalone(request);
+                }
+            });
+        } catch (Exception e) {
+            log.error("Error expiring orphaned API audit requests: {}", e.getMessage(), e);
+        }
+    }
+
+    private void logStandalone(PendingApiRequest request) {
+        Map<String, Object> details = new HashMap<>();
+        details.put("correlationTimedOut", true);
+        if (request.getQuery() != null) {
+            details.put("query", request.getQuery());
+        }
+        if (request.getBody() != null) {
+            details.put("body", request.getBody());
+        }
+        auditService.logApiAudit(
+            request.getHttpMethod(),
+            request.getPath(),
+            request.getActor(),
+            request.getOrigin(),
+            "PENDING",
+            request.getContentType(),
+            request.getUserAgent(),
+            "API_REQUEST",
+            details
+        );
+    }
+
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    public long getMergedCalls() {
+        return mergedCalls.get();
+    }
+
+    public long getOrphanedRequests() {
+        return orphanedRequests.get();
+    }
+
+    public long getOverflowedRequests() {
+        return overflowedRequests.get();
+    }
+
+    /**
+     * Log every request still waiting for a response so none are lost on shutdown
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (sweeper == null) {
+            return;
+        }
+        sweeper.shutdownNow();
+        pending.forEach((correlationId, request) -> {
+            if (pending.remove(correlationId, request)) {
+                pendingCount.decrementAndGet();
+                logStandalone(request);
+            }
+        });
+    }
+
+    /**
+     * Request data captured on the request thread
+     */
+    @Getter
+    @Builder
+    public static class PendingApiRequest {
+
+        private final String httpMethod;
+        private final String path;
+        private final String actor;
+        private final String origin;
+        private final String contentType;
+        private final String userAgent;
+        private final String query;
+        // Body as captured by AuditBodyCapture, already bounded and masked
+        private final String body;
+        private final long requestTimestamp;
+        private final long startedAt;
+    }
+}
@@ -0,0 +1,127 @@
+package com.fastcode.audit.application;
+
+import com.fastcode.audit.AuditPropertiesConfiguration;
+import com.fastcode.audit.performance.AuditThreadFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Builds API audit events off the request thread when audit.api.deferred.enabled is true
+ * Work is spread over single-thread lanes chosen by correlation id, so the request and response halves
+ * of one call are handled in order by the same lane
+ * A full lane makes the request thread wait for space rather than drop the event or queue without bound;
+ * running the task on the request thread instead would let it overtake the same call's queued request half
+ * When deferral is disabled every task runs on the calling thread
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ApiAuditDispatcher {
+
+    private static final long SHUTDOWN_TIMEOUT_MS = 5000;
+    private static final long SPACE_POLL_MS = 100;
+
+    private final AuditPropertiesConfiguration auditConfig;
+
+    private ThreadPoolExecutor[] lanes;
+    private final AtomicLong blockedSubmits = new AtomicLong();
+    private final AtomicLong droppedTasks = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        if (!auditConfig.isAuditApiDeferred()) {
+            return;
+        }
+        int threads = Math.max(1, auditConfig.getAuditApiDeferredThreads());
+        int queueCapacity = Math.max(1, auditConfig.getAuditApiDeferredQueueCapacity());
+        lanes = new ThreadPoolExecutor[threads];
+        for (int i = 0; i < threads; i++) {
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity),
+                    new AuditThreadFactory("audit-api-" + i),
+                    this::waitForSpace);
+            // The rejection handler queues directly, which needs the lane's worker to exist already
+            lanes[i].prestartAllCoreThreads();
+        }
+        log.info("API audit events deferred to {} worker threads, {} queued per thread", threads, queueCapacity);
+    }
+
+    public boolean isEnabled() {
+        return lanes != null;
+    }
+
+    /**
+     * Run the task on the lane of the correlation id, or on the calling thread when deferral is disabled
+     */
+    public void execute(String correlationId, Runnable task) {
+        if (lanes == null) {
+            task.run();
+            return;
+        }
+        int hash = correlationId != null ? correlationId.hashCode() : 0;
+        lanes[Math.floorMod(hash, lanes.length)].execute(task);
+    }
+
+    /**
+     * Queue a task whose lane was full once the worker frees a slot, keeping it behind the tasks already queued
+     * Tasks are only dropped once the lane is shut down or the waiting thread is interrupted
+     */
+    private void waitForSpace(Runnable task, ThreadPoolExecutor executor) {
+        blockedSubmits.incrementAndGet();
+        try {
+            while (!executor.isShutdown()) {
+                if (executor.getQueue().offer(task, SPACE_POLL_MS, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        droppedTasks.incrementAndGet();
+        log.warn("API audit task dropped, its worker lane is {}", executor.isShutdown() ? "shut down" : "full");
+    }
+
+    /**
+     * @return tasks the request thread had to wait for because their lane was full
+     */
+    public long getBlockedSubmits() {
+        return blockedSubmits.get();
+    }
+
+    /**
+     * @return tasks dropped because their lane was shut down or the submitting thread was interrupted
+     */
+    public long getDroppedTasks() {
+        return droppedTasks.get();
+    }
+
+    /**
+     * Finish the queued tasks; called by ApiAudit before the audit service shuts down
+     */
+    public void shutdown() {
+        if (lanes == null) {
+            return;
+        }
+        for (ThreadPoolExecutor lane : lanes) {
+            lane.shutdown();
+        }
+        for (ThreadPoolExecutor lane : lanes) {
+            try {
+                if (!lane.awaitTermination(SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    log.warn("API audit worker did not finish within {}ms, {} events dropped",
+                            SHUTDOWN_TIMEOUT_MS, lane.shutdownNow().size());
+                }
+            } catch (InterruptedException e) {
+                lane.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.fastcode.audit.application;
+
+import com.fastcode.audit.AuditPropertiesConfiguration;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+
+import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides which API calls are audited
+ * Rules from audit.api.sampling.rules are checked in order and the first match sets the rate;
+ * calls matching no rule use audit.api.sampling.default.rate
+ * Each rule is "method path status rate", separated by semicolons, e.g.
+ * "* * 4xx 1; * * 5xx 1; POST|PUT|PATCH|DELETE * * 1; GET /api/** 2xx 0.01"
+ * Methods are separated by |, paths are Ant patterns and * matches anything
+ * Request halves audited before the status is known only match rules whose status is *
+ * With audit.api.sampling.target.eps set, rates below 1 (including the default) are scaled once a second
+ * to keep audited calls near the target; rules with rate 1 are never scaled down
+ * The decision is derived from the correlation id, so both halves of a call get the same answer at the same rate
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ApiAuditSampler {
+
+    private static final double MIN_SCALE = 0.0001;
+    private static final double MAX_SCALE_STEP = 2.0;
+    private static final long ADJUST_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final AuditPropertiesConfiguration auditConfig;
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private List<SamplingRule> rules = List.of();
+    private double defaultRate = 1.0;
+    private double targetEventsPerSecond;
+
+    private volatile double scale = 1.0;
+    private final AtomicLong intervalStart = new AtomicLong(System.nanoTime());
+    private final LongAdder intervalSampled = new LongAdder();
+
+    private final LongAdder sampledCalls = new LongAdder();
+    private final LongAdder droppedCalls = new LongAdder();
+    private boolean enabled;
+
+    @PostConstruct
+    public void init() {
+        enabled = auditConfig.isAuditApiSamplingEnabled();
+        if (!enabled) {
+            return;
+        }
+        rules = parseRules(auditConfig.getAuditApiSamplingRules());
+        defaultRate = clampRate(auditConfig.getAuditApiSamplingDefaultRate());
+        targetEventsPerSecond = auditConfig.getAuditApiSamplingTargetEps();
+        log.info("API audit sampling enabled: {} rules, default rate {}, target {} events/s",
+                rules.size(), defaultRate, targetEventsPerSecond > 0 ? targetEventsPerSecond : "unlimited");
+    }
+
+    private List<SamplingRule> parseRules(String definition) {
+        List<SamplingRule> parsed = new ArrayList<>();
+        for (String entry : definition.split(";")) {
+            String[] parts = entry.trim().split("\\s+");
+            if (parts.length == 1 && parts[0].isEmpty()) {
+                continue;
+            }
+            if (parts.length != 4) {
+                log.warn("Ignoring API audit sampling rule '{}': expected 'method path status rate'", entry.trim());
+                continue;
+            }
+            try {
+                Set<String> methods = "*".equals(parts[0]) ? null
+                        : new HashSet<>(Arrays.asList(parts[0].toUpperCase(Locale.ROOT).split("\\|")));
+                String pathPattern = "*".equals(parts[1]) ? null : parts[1];
+                int statusClass = "*".equals(parts[2]) ? 0 : parseStatusClass(parts[2]);
+                parsed.add(new SamplingRule(methods, pathPattern, statusClass, clampRate(Double.parseDouble(parts[3]))));
+            } catch (IllegalArgumentException e) {
+                log.warn("Ignoring API audit sampling rule '{}': {}", entry.trim(), e.getMessage());
+            }
+        }
+        return parsed;
+    }
+
+    private static int parseStatusClass(String status) {
+        String normalized = status.toLowerCase(Locale.ROOT);
+        if (normalized.length() != 3 || !normalized.endsWith("xx") || normalized.charAt(0) < '1' || normalized.charAt(0) > '5') {
+            throw new IllegalArgumentException("status must be *, 1xx, 2xx, 3xx, 4xx or 5xx");
+        }
+        return normalized.charAt(0) - '0';
+    }
+
+    private static double clampRate(double rate) {
+        return Math.max(0.0, Math.min(1.0, rate));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Decide whether a call is audited
+     * @param status response status, or null for a request audited before its response
+     * @return 0 if the call is not audited, otherwise its sampling weight, i.e. how many calls the audited one stands for
+     */
+    public double sample(String correlationId, String httpMethod, String path, Integer status) {
+        if (!enabled) {
+            return 1.0;
+        }
+        adjustScale();
+
+        double rate = defaultRate;
+        for (SamplingRule rule : rules) {
+            if (rule.matches(httpMethod, path, status, pathMatcher)) {
+                rate = rule.rate;
+                break;
+            }
+        }
+        if (rate < 1.0) {
+            rate *= scale;
+        }
+
+        if (rate <= 0.0 || (rate < 1.0 && uniform(correlationId) >= rate)) {
+            droppedCalls.increment();
+            return 0.0;
+        }
+        sampledCalls.increment();
+        intervalSampled.increment();
+        return 1.0 / rate;
+    }
+
+    /**
+     * Move the scale towards the target rate once per interval; only the thread that wins the interval adjusts it
+     */
+    private void adjustScale() {
+        if (targetEventsPerSecond <= 0) {
+            return;
+        }
+        long start = intervalStart.get();
+        long now = System.nanoTime();
+        long elapsed = now - start;
+        if (elapsed < ADJUST_INTERVAL_NANOS || !intervalStart.compareAndSet(start, now)) {
+            return;
+        }
+        double observed = intervalSampled.sumThenReset() * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+        double step = observed > 0 ? targetEventsPerSecond / observed : MAX_SCALE_STEP;
+        scale = Math.max(MIN_SCALE, Math.min(1.0, scale * Math.min(step, MAX_SCALE_STEP)));
+    }
+
+    /**
+     * Map the correlation id to [0, 1) so both halves of a call get the same decision
+     */
+    private static double uniform(String correlationId) {
+        long hash = correlationId != null ? correlationId.hashCode() : System.nanoTime();
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return (hash >>> 11) * 0x1.0p-53;
+    }
+
+    public long getSampledCalls() {
+        return sampledCalls.sum();
+    }
+
+    public long getDroppedCalls() {
+        return droppedCalls.sum();
+    }
+
+    public double getScale() {
+        return scale;
+    }
+
+    private static class SamplingRule {
+
+        private final Set<String> methods;
+        private final String pathPattern;
+        private final int statusClass;
+        private final double rate;
+
+        SamplingRule(Set<String> methods, String pathPattern, int statusClass, double rate) {
+            this.methods = methods;
+            this.pathPattern = pathPattern;
+            this.statusClass = statusClass;
+            this.rate = rate;
+        }
+
+        boolean matches(String httpMethod, String path, Integer status, AntPathMatcher pathMatcher) {
+            if (methods != null && (httpMethod == null || !methods.contains(httpMethod.toUpperCase(Locale.ROOT)))) {
+                return false;
+            }
+            if (statusClass != 0 && (status == null || status / 100 != statusClass)) {
+                return false;
+            }
+            return pathPattern == null || (path != null && pathMatcher.match(pathPattern, path));
+        }
+    }
+}
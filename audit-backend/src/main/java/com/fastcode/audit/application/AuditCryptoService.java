@@ -0,0 +1,350 @@
+package com.fastcode.audit.application;
+
+import com.fastcode.audit.AuditConfigSnapshot;
+import com.fastcode.audit.AuditPropertiesConfiguration;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Encrypts and decrypts audit event details with the keys of the current configuration snapshot
+ * Keys are decoded and derived once per snapshot, each thread reuses its own Cipher instances
+ * and all IVs come from one shared SecureRandom
+ * In field mode the output is the same as PrivacyAwareUtils.encryptMap and encryptMapWithSecureLayout,
+ * so values written before can still be read with either
+ * In envelope mode (audit.encryption.mode=envelope) the details are serialized once and sealed with
+ * AES-GCM into {"envelope": "AES-GCM", "keyId": ..., "payload": base64(iv + ciphertext)}
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AuditCryptoService {
+
+    private static final String ENCRYPTION_TRANSFORMATION = "AES";
+    private static final String SECURE_LAYOUT_TRANSFORMATION = "AES/CBC/PKCS5Padding";
+    private static final int SECURE_LAYOUT_IV_LENGTH = 16;
+    private static final String ENVELOPE_TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int ENVELOPE_IV_LENGTH = 12;
+    private static final int ENVELOPE_TAG_BITS = 128;
+
+    public static final String ENVELOPE_FIELD = "envelope";
+    public static final String ENVELOPE_ALGORITHM = "AES-GCM";
+    public static final String ENVELOPE_KEY_ID_FIELD = "keyId";
+    public static final String ENVELOPE_PAYLOAD_FIELD = "payload";
+
+    private static final SecureRandom IV_RANDOM = new SecureRandom();
+
+    private static final ThreadLocal<CachedCipher> ENCRYPTION_CIPHER =
+            ThreadLocal.withInitial(() -> new CachedCipher(ENCRYPTION_TRANSFORMATION));
+    private static final ThreadLocal<CachedCipher> SECURE_LAYOUT_CIPHER =
+            ThreadLocal.withInitial(() -> new CachedCipher(SECURE_LAYOUT_TRANSFORMATION));
+    private static final ThreadLocal<CachedCipher> ENVELOPE_CIPHER =
+            ThreadLocal.withInitial(() -> new CachedCipher(ENVELOPE_TRANSFORMATION));
+
+    private static final ThreadLocal<Mac> BLIND_INDEX_MAC = ThreadLocal.withInitial(() -> {
+        try {
+            return Mac.getInstance("HmacSHA256");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    });
+
+    private static final TypeReference<Map<String, Object>> DETAILS_TYPE = new TypeReference<>() {};
+
+    private final AuditPropertiesConfiguration auditConfig;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * @return true when the current settings encrypt event details
+     */
+    public boolean isEnabled() {
+        AuditConfigSnapshot snapshot = auditConfig.getSnapshot();
+        return snapshot.getEncryptionKey() != null || snapshot.getSecureLayoutKeySpec() != null;
+    }
+
+    /**
+     * Encrypt all string values, first with the encryption secret key and then with the secure layout key,
+     * each only when enabled; values that cannot be encrypted are kept as they are
+     */
+    public Map<String, Object> encrypt(Map<String, Object> details) {
+        AuditConfigSnapshot snapshot = auditConfig.getSnapshot();
+        if (snapshot.isEncryptionEnvelopeMode() && snapshot.getEnvelopeKey() != null) {
+            Map<String, Object> envelope = seal(details, snapshot);
+            if (envelope != null) {
+                return envelope;
+            }
+        }
+        Map<String, Object> encrypted = details;
+        if (snapshot.getEncryptionKey() != null) {
+            encrypted = transform(encrypted, snapshot.getEncryptionKey(), true, false);
+        }
+        if (snapshot.getSecureLayoutKeySpec() != null) {
+            encrypted = transform(encrypted, snapshot.getSecureLayoutKeySpec(), true, true);
+        }
+        return encrypted;
+    }
+
+    /**
+     * Reverse encrypt(); values that cannot be decrypted are kept as they are
+     */
+    public Map<String, Object> decrypt(Map<String, Object> details) {
+        AuditConfigSnapshot snapshot = auditConfig.getSnapshot();
+        if (isEnvelope(details)) {
+            return open(details, snapshot);
+        }
+        Map<String, Object> decrypted = details;
+        if (snapshot.getSecureLayoutKeySpec() != null) {
+            decrypted = transform(decrypted, snapshot.getSecureLayoutKeySpec(), false, true);
+        }
+        if (snapshot.getEncryptionKey() != null) {
+            decrypted = transform(decrypted, snapshot.getEncryptionKey(), false, false);
+        }
+        return decrypted;
+    }
+
+    /**
+     * Decrypt only the named top-level fields and leave the others out; null fields decrypts everything
+     * Field encrypted values outside the selection are never decrypted, envelopes are opened whole
+     */
+    public Map<String, Object> decrypt(Map<String, Object> details, Set<String> fields) {
+        if (fields == null) {
+            return decrypt(details);
+        }
+        if (isEnvelope(details)) {
+            return select(decrypt(details), fields);
+        }
+        return decrypt(select(details, fields));
+    }
+
+    private static Map<String, Object> select(Map<String, Object> details, Set<String> fields) {
+        Map<String, Object> selected = new HashMap<>();
+        for (String field : fields) {
+            if (details.containsKey(field)) {
+                selected.put(field, details.get(field));
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * @return true when blind index tokens are computed for identifiers
+     */
+    public boolean isBlindIndexEnabled() {
+        return auditConfig.getSnapshot().getBlindIndexKey() != null;
+    }
+
+    /**
+     * Keyed hash of an identifier, stored in its blind index column so equality search does not need the plaintext
+     * The field name is part of the input, so equal values of different fields get different tokens
+     * @return 64 hex characters, or null when blind indexing is disabled or there is no value
+     */
+    public String blindIndex(String field, Object value) {
+        SecretKeySpec key = auditConfig.getSnapshot().getBlindIndexKey();
+        if (key == null || value == null) {
+            return null;
+        }
+        try {
+            Mac mac = BLIND_INDEX_MAC.get();
+            mac.init(key);
+            mac.update(field.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            byte[] digest = mac.doFinal(value.toString().trim().getBytes(StandardCharsets.UTF_8));
+            StringBuilder token = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                token.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return token.toString();
+        } catch (GeneralSecurityException e) {
+            log.warn("Failed to compute blind index for {}: {}", field, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return true when the details are a sealed envelope rather than plain or field encrypted values
+     */
+    public static boolean isEnvelope(Map<String, Object> details) {
+        return details != null && ENVELOPE_ALGORITHM.equals(details.get(ENVELOPE_FIELD));
+    }
+
+    /**
+     * @return the envelope, or null when the details cannot be serialized and field encryption applies instead
+     */
+    private Map<String, Object> seal(Map<String, Object> details, AuditConfigSnapshot snapshot) {
+        try {
+            byte[] plain = objectMapper.writeValueAsBytes(details);
+            byte[] iv = new byte[ENVELOPE_IV_LENGTH];
+            IV_RANDOM.nextBytes(iv);
+            Cipher cipher = ENVELOPE_CIPHER.get().cipher;
+            cipher.init(Cipher.ENCRYPT_MODE, snapshot.getEnvelopeKey(), new GCMParameterSpec(ENVELOPE_TAG_BITS, iv));
+            // The key id is authenticated too, so an envelope cannot be relabelled with another key
+            cipher.updateAAD(snapshot.getEnvelopeKeyId().getBytes(StandardCharsets.UTF_8));
+            byte[] sealed = new byte[ENVELOPE_IV_LENGTH + cipher.getOutputSize(plain.length)];
+            System.arraycopy(iv, 0, sealed, 0, ENVELOPE_IV_LENGTH);
+            int length = cipher.doFinal(plain, 0, plain.length, sealed, ENVELOPE_IV_LENGTH);
+
+            Map<String, Object> envelope = new HashMap<>(4);
+            envelope.put(ENVELOPE_FIELD, ENVELOPE_ALGORITHM);
+            envelope.put(ENVELOPE_KEY_ID_FIELD, snapshot.getEnvelopeKeyId());
+            envelope.put(ENVELOPE_PAYLOAD_FIELD, Base64.getEncoder().encodeToString(length + ENVELOPE_IV_LENGTH == sealed.length
+                    ? sealed : Arrays.copyOf(sealed, ENVELOPE_IV_LENGTH + length)));
+            return envelope;
+        } catch (JsonProcessingException | GeneralSecurityException e) {
+            log.warn("Failed to seal audit details, encrypting them field by field: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return the details sealed in the envelope, or the envelope itself when it was sealed with another key
+     */
+    private Map<String, Object> open(Map<String, Object> envelope, AuditConfigSnapshot snapshot) {
+        Object keyId = envelope.get(ENVELOPE_KEY_ID_FIELD);
+        Object payload = envelope.get(ENVELOPE_PAYLOAD_FIELD);
+        if (snapshot.getEnvelopeKey() == null || !snapshot.getEnvelopeKeyId().equals(keyId) || !(payload instanceof String)) {
+            return envelope;
+        }
+        try {
+            byte[] sealed = Base64.getDecoder().decode((String) payload);
+            if (sealed.length <= ENVELOPE_IV_LENGTH) {
+                return envelope;
+            }
+            Cipher cipher = ENVELOPE_CIPHER.get().cipher;
+            cipher.init(Cipher.DECRYPT_MODE, snapshot.getEnvelopeKey(),
+                    new GCMParameterSpec(ENVELOPE_TAG_BITS, sealed, 0, ENVELOPE_IV_LENGTH));
+            cipher.updateAAD(snapshot.getEnvelopeKeyId().getBytes(StandardCharsets.UTF_8));
+            byte[] plain = cipher.doFinal(sealed, ENVELOPE_IV_LENGTH, sealed.length - ENVELOPE_IV_LENGTH);
+            return objectMapper.readValue(plain, DETAILS_TYPE);
+        } catch (GeneralSecurityException | IllegalArgumentException | IOException e) {
+            log.debug("Failed to open audit envelope: {}", e.getMessage());
+            return envelope;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> transform(Map<String, Object> map, SecretKeySpec key, boolean encrypt, boolean secureLayout) {
+        Map<String, Object> result = new HashMap<>();
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            Object value = entry.getValue();
+            if (value instanceof String) {
+                String text = (String) value;
+                if (secureLayout) {
+                    value = encrypt ? encryptSecureLayout(text, key) : decryptSecureLayout(text, key);
+                } else {
+                    value = encrypt ? encryptMessage(text, key) : decryptMessage(text, key);
+                }
+            } else if (value instanceof Map) {
+                value = transform((Map<String, Object>) value, key, encrypt, secureLayout);
+            }
+            result.put(entry.getKey(), value);
+        }
+        return result;
+    }
+
+    private String encryptMessage(String message, SecretKeySpec key) {
+        try {
+            Cipher cipher = ENCRYPTION_CIPHER.get().forKey(Cipher.ENCRYPT_MODE, key);
+            return Base64.getEncoder().encodeToString(cipher.doFinal(message.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            ENCRYPTION_CIPHER.get().reset();
+            log.debug("Failed to encrypt audit value: {}", e.getMessage());
+            return message;
+        }
+    }
+
+    private String decryptMessage(String encryptedMessage, SecretKeySpec key) {
+        try {
+            Cipher cipher = ENCRYPTION_CIPHER.get().forKey(Cipher.DECRYPT_MODE, key);
+            return new String(cipher.doFinal(Base64.getDecoder().decode(encryptedMessage)), StandardCharsets.UTF_8);
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            ENCRYPTION_CIPHER.get().reset();
+            return encryptedMessage;
+        }
+    }
+
+    private String encryptSecureLayout(String message, SecretKeySpec key) {
+        byte[] plain = message.getBytes(StandardCharsets.UTF_8);
+        byte[] iv = new byte[SECURE_LAYOUT_IV_LENGTH];
+        IV_RANDOM.nextBytes(iv);
+        try {
+            Cipher cipher = SECURE_LAYOUT_CIPHER.get().cipher;
+            cipher.init(Cipher.ENCRYPT_MODE, key, new IvParameterSpec(iv));
+            // IV followed by the ciphertext, written into one buffer
+            byte[] combined = new byte[SECURE_LAYOUT_IV_LENGTH + cipher.getOutputSize(plain.length)];
+            System.arraycopy(iv, 0, combined, 0, SECURE_LAYOUT_IV_LENGTH);
+            int length = cipher.doFinal(plain, 0, plain.length, combined, SECURE_LAYOUT_IV_LENGTH);
+            return Base64.getEncoder().encodeToString(length + SECURE_LAYOUT_IV_LENGTH == combined.length
+                    ? combined : Arrays.copyOf(combined, SECURE_LAYOUT_IV_LENGTH + length));
+        } catch (GeneralSecurityException e) {
+            log.debug("Failed to encrypt audit value with secure layout: {}", e.getMessage());
+            return message;
+        }
+    }
+
+    private String decryptSecureLayout(String encryptedMessage, SecretKeySpec key) {
+        try {
+            byte[] combined = Base64.getDecoder().decode(encryptedMessage);
+            if (combined.length <= SECURE_LAYOUT_IV_LENGTH) {
+                return encryptedMessage;
+            }
+            Cipher cipher = SECURE_LAYOUT_CIPHER.get().cipher;
+            cipher.init(Cipher.DECRYPT_MODE, key, new IvParameterSpec(combined, 0, SECURE_LAYOUT_IV_LENGTH));
+            byte[] plain = cipher.doFinal(combined, SECURE_LAYOUT_IV_LENGTH, combined.length - SECURE_LAYOUT_IV_LENGTH);
+            return new String(plain, StandardCharsets.UTF_8);
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            return encryptedMessage;
+        }
+    }
+
+    /**
+     * A thread's Cipher for one transformation, remembering the key and mode it was last initialised with
+     * doFinal resets the cipher to that state, so modes without an IV skip init while the key is unchanged
+     */
+    private static final class CachedCipher {
+        private final Cipher cipher;
+        private SecretKeySpec key;
+        private int mode;
+
+        private CachedCipher(String transformation) {
+            try {
+                this.cipher = Cipher.getInstance(transformation);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Cipher " + transformation + " is not available", e);
+            }
+        }
+
+        private Cipher forKey(int mode, SecretKeySpec key) throws GeneralSecurityException {
+            if (this.key != key || this.mode != mode) {
+                // Forget the key first so a failed init is retried on the next call
+                this.key = null;
+                cipher.init(mode, key);
+                this.key = key;
+                this.mode = mode;
+            }
+            return cipher;
+        }
+
+        // A failed doFinal may leave the cipher mid-operation, so the next call initialises it again
+        private void reset() {
+            key = null;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.fastcode.audit.application;
+
+import com.fastcode.audit.AuditPropertiesConfiguration;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.nio.ByteBuffer;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates audit event identifiers
+ * The default uuidv7 strategy (RFC 9562) and the ulid strategy put the millisecond timestamp first,
+ * so new rows append to the right edge of the primary key index and identifiers sort in time order
+ * A 12 bit counter taken from one CAS-updated long keeps identifiers strictly increasing across threads,
+ * even within the same millisecond; when the counter overflows it borrows from the next millisecond
+ * The uuidv4 strategy keeps the previous random identifiers
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AuditIdGenerator {
+
+    public enum Strategy {
+        UUIDV7,
+        ULID,
+        UUIDV4
+    }
+
+    private static final int COUNTER_BITS = 12;
+    private static final long COUNTER_MASK = (1L << COUNTER_BITS) - 1;
+    private static final char[] CROCKFORD = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int ULID_LENGTH = 26;
+
+    private final AuditPropertiesConfiguration auditConfig;
+
+    // Unix milliseconds shifted left by COUNTER_BITS, plus the counter
+    private final AtomicLong lastTimeAndCounter = new AtomicLong();
+
+    private Strategy strategy = Strategy.UUIDV7;
+
+    @PostConstruct
+    public void init() {
+        String configured = auditConfig.getAuditIdentifierStrategy();
+        try {
+            strategy = Strategy.valueOf(configured.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            log.warn("Unknown audit identifier strategy '{}', using uuidv7", configured);
+            strategy = Strategy.UUIDV7;
+        }
+    }
+
+    /**
+     * Next identifier for the configured strategy
+     */
+    public String nextId() {
+        switch (strategy) {
+            case ULID:
+                return nextUlid();
+            case UUIDV4:
+                return UUID.randomUUID().toString();
+            default:
+                return nextUuidV7();
+        }
+    }
+
+    /**
+     * Time-ordered UUID: 48 bit unix milliseconds, version 7, 12 bit counter, variant, 62 random bits
+     */
+    public String nextUuidV7() {
+        long timeAndCounter = nextTimeAndCounter();
+        long mostSigBits = ((timeAndCounter >>> COUNTER_BITS) << 16) | 0x7000L | (timeAndCounter & COUNTER_MASK);
+        long leastSigBits = (ThreadLocalRandom.current().nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits).toString();
+    }
+
+    /**
+     * Time-ordered ULID: 48 bit unix milliseconds, 12 bit counter, 68 random bits, in Crockford base32
+     */
+    public String nextUlid() {
+        long timeAndCounter = nextTimeAndCounter();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long high = ((timeAndCounter >>> COUNTER_BITS) << 16) | ((timeAndCounter & COUNTER_MASK) << 4) | (random.nextInt() & 0xF);
+        return encodeUlid(high, random.nextLong());
+    }
+
+    private long nextTimeAndCounter() {
+        long floor = System.currentTimeMillis() << COUNTER_BITS;
+        return lastTimeAndCounter.accumulateAndGet(floor, (previous, minimum) -> Math.max(previous + 1, minimum));
+    }
+
+    /**
+     * Compact 16 byte form of a UUID or ULID identifier, e.g. for a BINARY(16) or uuid column
+     */
+    public static byte[] toBytes(String identifier) {
+        ByteBuffer bytes = ByteBuffer.allocate(16);
+        if (identifier.length() == ULID_LENGTH) {
+            long high = 0;
+            long low = 0;
+            for (int i = 0; i < ULID_LENGTH; i++) {
+                int value = decodeCrockford(identifier.charAt(i));
+                high = (high << 5) | (low >>> 59);
+                low = (low << 5) | value;
+            }
+            bytes.putLong(high).putLong(low);
+        } else {
+            UUID uuid = UUID.fromString(identifier);
+            bytes.putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits());
+        }
+        return bytes.array();
+    }
+
+    /**
+     * Restore the text form of an identifier stored with {@link #toBytes(String)}
+     */
+    public static String fromBytes(byte[] identifier, Strategy strategy) {
+        if (identifier.length != 16) {
+            throw new IllegalArgumentException("Binary audit identifiers are 16 bytes, got " + identifier.length);
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(identifier);
+        long high = bytes.getLong();
+        long low = bytes.getLong();
+        return strategy == Strategy.ULID ? encodeUlid(high, low) : new UUID(high, low).toString();
+    }
+
+    private static String encodeUlid(long high, long low) {
+        char[] chars = new char[ULID_LENGTH];
+        for (int i = ULID_LENGTH - 1; i >= 0; i--) {
+            chars[i] = CROCKFORD[(int) (low & 0x1F)];
+            low = (low >>> 5) | (high << 59);
+            high >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    private static int decodeCrockford(char c) {
+        char upper = Character.toUpperCase(c);
+        for (int i = 0; i < CROCKFORD.length; i++) {
+            if (CROCKFORD[i] == upper) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Invalid ULID character: " + c);
+    }
+}
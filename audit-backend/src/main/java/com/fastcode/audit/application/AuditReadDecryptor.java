@@ -0,0 +1,93 @@
+package com.fastcode.audit.application;
+
+import com.fastcode.audit.AuditPropertiesConfiguration;
+import com.fastcode.audit.performance.AuditThreadFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decrypts the elements of search results before they are returned
+ * A page is split into one slice per thread and decrypted on a small bounded pool, the calling thread
+ * taking the last slice; when the pool is busy slices run on the caller instead of queueing without bound
+ * Only the fields the client asked for are decrypted
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AuditReadDecryptor {
+
+    // Below this many rows a page is decrypted on the calling thread
+    private static final int PARALLEL_THRESHOLD = 32;
+    private static final int QUEUE_CAPACITY = 64;
+
+    private final AuditCryptoService cryptoService;
+    private final AuditPropertiesConfiguration auditConfig;
+
+    private ThreadPoolExecutor executor;
+    private int threads;
+
+    @PostConstruct
+    public void init() {
+        threads = Math.max(1, auditConfig.getAuditReadDecryptThreads());
+        executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+                new AuditThreadFactory("audit-read-decrypt"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Decrypt the elements of each row in place of the stored ones
+     * @param fields top-level element names to keep, or null for all
+     */
+    public List<Map<String, Object>> decryptAll(List<Map<String, Object>> rows, Set<String> fields) {
+        if (!cryptoService.isEnabled()) {
+            return rows;
+        }
+        List<Map<String, Object>> decrypted = new ArrayList<>(rows);
+        int slices = Math.min(threads + 1, (rows.size() + PARALLEL_THRESHOLD - 1) / PARALLEL_THRESHOLD);
+        if (slices <= 1) {
+            decryptSlice(decrypted, 0, decrypted.size(), fields);
+            return decrypted;
+        }
+
+        int sliceSize = (rows.size() + slices - 1) / slices;
+        List<CompletableFuture<Void>> pending = new ArrayList<>(slices - 1);
+        for (int start = 0; start + sliceSize < rows.size(); start += sliceSize) {
+            int from = start;
+            int to = Math.min(rows.size(), start + sliceSize);
+            pending.add(CompletableFuture.runAsync(() -> decryptSlice(decrypted, from, to, fields), executor));
+        }
+        int last = pending.size() * sliceSize;
+        decryptSlice(decrypted, last, rows.size(), fields);
+        CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).join();
+        return decrypted;
+    }
+
+    // Slices write disjoint indexes of a presized list, and join() publishes the writes to the caller
+    private void decryptSlice(List<Map<String, Object>> rows, int from, int to, Set<String> fields) {
+        for (int i = from; i < to; i++) {
+            Map<String, Object> elements = rows.get(i);
+            if (elements != null) {
+                rows.set(i, cryptoService.decrypt(elements, fields));
+            }
+        }
+    }
+}
@@ -12,7 +12,9 @@ import com.fastcode.audit.search.SearchUtils;
 import com.fastcode.audit.utils.PrivacyAwareUtils;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.StringPath;
 import com.querydsl.core.types.dsl.StringTemplate;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
@@ -28,7 +30,7 @@ import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @Slf4j
@@ -46,10 +48,35 @@ public class AuditService {
     
     @NonNull protected final AuditPerformanceInterceptor performanceInterceptor;
 
+    @NonNull protected final AuditIdGenerator idGenerator;
+
+    @NonNull protected final AuditCryptoService cryptoService;
+
+    @NonNull protected final AuditReadDecryptor readDecryptor;
+
 
     public List<AuditEventDto> findAll(SearchCriteria search, Pageable pageable) throws MalformedURLException {
+        return findAll(search, pageable, null);
+    }
+
+    /**
+     * Find audit events with their elements decrypted
+     * @param fields element names to return, or null for all; other encrypted elements are not decrypted
+     */
+    public List<AuditEventDto> findAll(SearchCriteria search, Pageable pageable, Set<String> fields) throws MalformedURLException {
         Page<AuditEvent> res = _auditRepository.findAll(search(search), pageable);
-        return res.getContent().stream().map(this::toDto).collect(Collectors.toList());
+        List<AuditEvent> events = res.getContent();
+        List<Map<String, Object>> elements = new ArrayList<>(events.size());
+        for (AuditEvent event : events) {
+            elements.add(event.getElements());
+        }
+        elements = readDecryptor.decryptAll(elements, fields);
+
+        List<AuditEventDto> dtos = new ArrayList<>(events.size());
+        for (int i = 0; i < events.size(); i++) {
+            dtos.add(toDto(events.get(i), elements.get(i), fields));
+        }
+        return dtos;
     }
 
     public List<String> findAllAction() {
@@ -142,18 +169,20 @@ public class AuditService {
                 builder.and(auditEvent.exceptionType.likeIgnoreCase("%" + details.getValue().getSearchValue() + "%"));
             }
             
-            // Additional JSON field searches for other fields
-            if (details.getKey().replace("%20", "").trim().equals("sessionId")) {
-                StringTemplate jsonValue = Expressions.stringTemplate("CAST({0}->>'sessionId' AS TEXT)", auditEvent.elements);
-                builder.and(jsonValue.likeIgnoreCase("%" + details.getValue().getSearchValue() + "%"));
-            }
-            if (details.getKey().replace("%20", "").trim().equals("userId")) {
-                StringTemplate jsonValue = Expressions.stringTemplate("CAST({0}->>'userId' AS TEXT)", auditEvent.elements);
-                builder.and(jsonValue.likeIgnoreCase("%" + details.getValue().getSearchValue() + "%"));
-            }
-            if (details.getKey().replace("%20", "").trim().equals("username")) {
-                StringTemplate jsonValue = Expressions.stringTemplate("CAST({0}->>'username' AS TEXT)", auditEvent.elements);
-                builder.and(jsonValue.likeIgnoreCase("%" + details.getValue().getSearchValue() + "%"));
+            // Equality on identifiers uses the blind index columns, which also work on encrypted events
+            // Rows written before blind indexing was enabled have no index, so they fall back to the JSON match
+            String field = details.getKey().replace("%20", "").trim();
+            if (field.equals("sessionId") || field.equals("userId") || field.equals("username")) {
+                StringTemplate jsonValue = Expressions.stringTemplate("CAST({0}->>'" + field + "' AS TEXT)", auditEvent.elements);
+                BooleanExpression jsonMatch = jsonValue.likeIgnoreCase("%" + details.getValue().getSearchValue() + "%");
+                if (cryptoService.isBlindIndexEnabled() && "equals".equals(details.getValue().getOperator())
+                        && details.getValue().getSearchValue() != null) {
+                    StringPath blindIndex = blindIndexColumn(auditEvent, field);
+                    builder.and(blindIndex.eq(cryptoService.blindIndex(field, details.getValue().getSearchValue()))
+                            .or(blindIndex.isNull().and(jsonMatch)));
+                } else {
+                    builder.and(jsonMatch);
+                }
             }
             
             // Event type searches (exists operator)
@@ -213,7 +242,18 @@ public class AuditService {
     }
 
 
-    private AuditEventDto toDto(AuditEvent auditEvent) {
+    private static StringPath blindIndexColumn(QAuditEvent auditEvent, String field) {
+        switch (field) {
+            case "sessionId":
+                return auditEvent.sessionIdBlindIndex;
+            case "userId":
+                return auditEvent.userIdBlindIndex;
+            default:
+                return auditEvent.usernameBlindIndex;
+        }
+    }
+
+    private AuditEventDto toDto(AuditEvent auditEvent, Map<String, Object> elements, Set<String> fields) {
         if (auditEvent == null) {
             return null;
         }
@@ -224,17 +264,33 @@ public class AuditService {
         dto.setOrigin(auditEvent.getOrigin());
         dto.setAction(auditEvent.getAction());
 
-        List<AuditField> fields = parseFieldsFromMap(auditEvent.getElements());
-        fields.add(new AuditField("httpMethod", auditEvent.getHttpMethod(), "String"));
-        fields.add(new AuditField("path", auditEvent.getPath(), "String"));
-        fields.add(new AuditField("entityName", auditEvent.getEntityName(), "String"));
-        fields.add(new AuditField("operation", auditEvent.getOperation(), "String"));
-        fields.add(new AuditField("responseStatus", auditEvent.getResponseStatus(), "String"));
-        fields.add(new AuditField("exceptionType", auditEvent.getExceptionType(), "String"));
-        dto.setElements(fields);
+        List<AuditField> elementFields = parseFieldsFromMap(elements);
+        if (fields != null) {
+            elementFields.removeIf(field -> !fields.contains(field.getName()));
+        }
+        addColumnField(elementFields, fields, elements, "httpMethod", auditEvent.getHttpMethod());
+        addColumnField(elementFields, fields, elements, "path", auditEvent.getPath());
+        addColumnField(elementFields, fields, elements, "entityName", auditEvent.getEntityName());
+        addColumnField(elementFields, fields, elements, "operation", auditEvent.getOperation());
+        addColumnField(elementFields, fields, elements, "responseStatus", auditEvent.getResponseStatus());
+        addColumnField(elementFields, fields, elements, "exceptionType", auditEvent.getExceptionType());
+        dto.setElements(elementFields);
         return dto;
     }
 
+    /**
+     * Add a typed column, preferring the decrypted element of the same name
+     * In field encryption mode the columns are filled from the encrypted details, so they hold ciphertext;
+     * in envelope mode they are empty and the value only exists in the opened envelope
+     */
+    private static void addColumnField(List<AuditField> elementFields, Set<String> fields, Map<String, Object> elements,
+                                       String name, String columnValue) {
+        if (fields == null || fields.contains(name)) {
+            Object element = elements != null ? elements.get(name) : null;
+            elementFields.add(new AuditField(name, element != null ? element.toString() : columnValue, "String"));
+        }
+    }
+
     public List<AuditField> parseFieldsFromMap(Map<String, Object> elementsMap) {
         List<AuditField> fieldList = new ArrayList<>();
 
@@ -274,37 +330,7 @@ public class AuditService {
         }
 
         try {
-            // Apply sensitive data masking if enabled
-            Map<String, Object> processedDetails = details;
-            if (auditConfig.isSensitiveDataMaskingEnabled()) {
-                processedDetails = PrivacyAwareUtils.maskMap(details, auditConfig.getSensitiveDataKeys());
-            }
-
-            // Apply encryption if enabled
-            if (auditConfig.isEncryptionEnabled() && !auditConfig.getEncryptionSecretKey().isEmpty()) {
-                processedDetails = PrivacyAwareUtils.encryptMap(processedDetails, auditConfig.getEncryptionSecretKey());
-            }
-
-            // Apply secure layout encryption if enabled
-            if (auditConfig.isSecureLayoutEnabled() && !auditConfig.getSecureLayoutKey().isEmpty() && !auditConfig.getSecureLayoutSalt().isEmpty()) {
-                processedDetails = PrivacyAwareUtils.encryptMapWithSecureLayout(processedDetails, auditConfig.getSecureLayoutKey(), auditConfig.getSecureLayoutSalt());
-            }
-
-            AuditEvent auditEvent = new AuditEvent();
-            auditEvent.setIdentifier(UUID.randomUUID().toString());
-            auditEvent.setTimestamp(Timestamp.valueOf(LocalDateTime.now()));
-            auditEvent.setAction(action);
-            auditEvent.setActor(actor);
-            auditEvent.setOrigin(origin);
-
-            auditEvent.setHttpMethod(getStringValue(processedDetails, "httpMethod"));
-            auditEvent.setPath(getStringValue(processedDetails, "path"));
-            auditEvent.setEntityName(getStringValue(processedDetails, "entityName"));
-            auditEvent.setOperation(getStringValue(processedDetails, "operation"));
-            auditEvent.setResponseStatus(getStringValue(processedDetails, "responseStatus"));
-            auditEvent.setExceptionType(getStringValue(processedDetails, "exceptionType"));
-
-            auditEvent.setElements(processedDetails);
+            AuditEvent auditEvent = buildAuditEvent(action, actor, origin, details);
 
             // Process through performance-optimized interceptor
             performanceInterceptor.processAuditEvent(auditEvent);
@@ -314,6 +340,72 @@ public class AuditService {
         }
     }
 
+    /**
+     * Log a custom audit event and wait for it to be durable through the returned future
+     * Concurrent callers are group-committed, so use this for events that must be persisted before continuing
+     */
+    public CompletableFuture<Void> logAuditEventDurable(String action, String actor, String origin, Map<String, Object> details) {
+        if (auditConfig.isAuditEntityDisabled()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        try {
+            AuditEvent auditEvent = buildAuditEvent(action, actor, origin, details);
+            log.debug("Durable audit event submitted: {} by {}", action, actor);
+            return performanceInterceptor.processAuditEventDurable(auditEvent);
+        } catch (Exception e) {
+            log.error("Failed to log durable audit event: {}", e.getMessage(), e);
+            CompletableFuture<Void> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    /**
+     * Mask and encrypt the details and build the audit event
+     */
+    private AuditEvent buildAuditEvent(String action, String actor, String origin, Map<String, Object> details) {
+        // Apply sensitive data masking if enabled
+        Map<String, Object> processedDetails = details;
+        if (auditConfig.isSensitiveDataMaskingEnabled()) {
+            processedDetails = PrivacyAwareUtils.maskMap(details, auditConfig.getSensitiveDataMaskingPolicy());
+        }
+
+        // Apply encryption and secure layout encryption if enabled
+        // An envelope hides every detail, so the typed columns are left empty rather than holding plaintext;
+        // they are read back from the opened envelope
+        Map<String, Object> columnDetails = processedDetails;
+        if (cryptoService.isEnabled()) {
+            processedDetails = cryptoService.encrypt(processedDetails);
+            columnDetails = AuditCryptoService.isEnvelope(processedDetails) ? Collections.emptyMap() : processedDetails;
+        }
+
+        AuditEvent auditEvent = new AuditEvent();
+        auditEvent.setIdentifier(idGenerator.nextId());
+        auditEvent.setTimestamp(Timestamp.valueOf(LocalDateTime.now()));
+        auditEvent.setAction(action);
+        auditEvent.setActor(actor);
+        auditEvent.setOrigin(origin);
+
+        auditEvent.setHttpMethod(getStringValue(columnDetails, "httpMethod"));
+        auditEvent.setPath(getStringValue(columnDetails, "path"));
+        auditEvent.setEntityName(getStringValue(columnDetails, "entityName"));
+        auditEvent.setOperation(getStringValue(columnDetails, "operation"));
+        auditEvent.setResponseStatus(getStringValue(columnDetails, "responseStatus"));
+        auditEvent.setExceptionType(getStringValue(columnDetails, "exceptionType"));
+
+        // Blind indexes are taken from the original values, so a search for the real identifier matches
+        // whatever masking and encryption apply to the stored details
+        if (cryptoService.isBlindIndexEnabled()) {
+            auditEvent.setSessionIdBlindIndex(cryptoService.blindIndex("sessionId", details.get("sessionId")));
+            auditEvent.setUserIdBlindIndex(cryptoService.blindIndex("userId", details.get("userId")));
+            auditEvent.setUsernameBlindIndex(cryptoService.blindIndex("username", details.get("username")));
+        }
+
+        auditEvent.setElements(processedDetails);
+        return auditEvent;
+    }
+
     /**
      * Helper method to safely extract string values from details map
      */
@@ -357,12 +449,25 @@ public class AuditService {
     @Transactional
     public void logApiAudit(String httpMethod, String path, String actor, String origin,
                             String responseStatus, String contentType, String userAgent, String action) {
+        logApiAudit(httpMethod, path, actor, origin, responseStatus, contentType, userAgent, action, null);
+    }
+
+    /**
+     * Log API audit event with additional details, e.g. duration of a correlated call
+     */
+    @Transactional
+    public void logApiAudit(String httpMethod, String path, String actor, String origin,
+                            String responseStatus, String contentType, String userAgent, String action,
+                            Map<String, Object> additionalDetails) {
         if (auditConfig.isAuditApiDisabled()) {
             return;
         }
 
         try {
             Map<String, Object> details = new HashMap<>();
+            if (additionalDetails != null) {
+                details.putAll(additionalDetails);
+            }
             details.put("httpMethod", httpMethod);
             details.put("path", path);
             details.put("responseStatus", responseStatus);
@@ -415,6 +520,37 @@ public class AuditService {
         }
     }
 
+    /**
+     * Log compliance audit event and wait for it to be durable through the returned future
+     */
+    public CompletableFuture<Void> logComplianceAuditDurable(String action, String actor, String origin, String complianceType, Map<String, Object> details) {
+        Map<String, Object> complianceDetails = new HashMap<>(details);
+        complianceDetails.put("complianceType", complianceType);
+        complianceDetails.put("complianceEvent", true);
+
+        return logAuditEventDurable("COMPLIANCE_" + action, actor, origin, complianceDetails);
+    }
+
+    /**
+     * Log a change to the audit configuration and wait for it to be durable through the returned future
+     * Written whatever audit.entity.disabled says, so a change that turns auditing off is still recorded
+     */
+    public CompletableFuture<Void> logConfigurationAudit(String action, String actor, String origin, Map<String, Object> details) {
+        try {
+            Map<String, Object> complianceDetails = new HashMap<>(details);
+            complianceDetails.put("complianceType", "CONFIGURATION");
+            complianceDetails.put("complianceEvent", true);
+
+            AuditEvent auditEvent = buildAuditEvent("COMPLIANCE_" + action, actor, origin, complianceDetails);
+            return performanceInterceptor.processAuditEventDurable(auditEvent);
+        } catch (Exception e) {
+            log.error("Failed to log configuration audit: {}", e.getMessage(), e);
+            CompletableFuture<Void> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
     /**
      * Log error audit event
      */
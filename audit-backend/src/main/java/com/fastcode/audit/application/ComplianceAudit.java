@@ -22,6 +22,7 @@ public class ComplianceAudit {
 
     private final AuditService customAuditService;
     private final AuditPropertiesConfiguration auditConfig;
+    private final AuditCryptoService cryptoService;
 
     /**
      * Log GDPR compliance event
@@ -236,14 +237,9 @@ public class ComplianceAudit {
                 details.put(field.getName(), fieldValue);
             }
             
-            // Apply encryption if enabled
-            if (auditConfig.isEncryptionEnabled() && !auditConfig.getEncryptionSecretKey().isEmpty()) {
-                details = PrivacyAwareUtils.encryptMap(details, auditConfig.getEncryptionSecretKey());
-            }
-            
-            // Apply secure layout encryption if enabled
-            if (auditConfig.isSecureLayoutEnabled() && !auditConfig.getSecureLayoutKey().isEmpty() && !auditConfig.getSecureLayoutSalt().isEmpty()) {
-                details = PrivacyAwareUtils.encryptMapWithSecureLayout(details, auditConfig.getSecureLayoutKey(), auditConfig.getSecureLayoutSalt());
+            // Apply encryption and secure layout encryption if enabled
+            if (cryptoService.isEnabled()) {
+                details = cryptoService.encrypt(details);
             }
             
             customAuditService.logComplianceAudit(
@@ -260,7 +260,7 @@ public class EntityAudit {
                     
                     // Apply sensitive data masking if enabled
                     if (auditConfig.isSensitiveDataMaskingEnabled()) {
-                        valueStr = PrivacyAwareUtils.maskSensitiveData(valueStr, auditConfig.getSensitiveDataKeys());
+                        valueStr = PrivacyAwareUtils.maskSensitiveData(valueStr, auditConfig.getSensitiveDataMasker());
                     }
                     
                     if (state.length() > 0) {
@@ -29,7 +29,7 @@ public class SecurityAudit {
                 Method getAuthentication = event.getClass().getMethod("getAuthentication");
                 Object authentication = getAuthentication.invoke(event);
                 String username = (String) authentication.getClass().getMethod("getName").invoke(authentication);
-                String roles = (String) authentication.getClass().getMethod("getAuthorities")
+                String roles = authentication.getClass().getMethod("getAuthorities")
                         .invoke(authentication).toString();
 
                 Map<String, Object> details = new HashMap<>();
@@ -58,7 +58,7 @@ public class SecurityAudit {
                 Method getAuthentication = event.getClass().getMethod("getAuthentication");
                 Object authentication = getAuthentication.invoke(event);
                 String username = (String) authentication.getClass().getMethod("getName").invoke(authentication);
-                String roles = (String) authentication.getClass().getMethod("getAuthorities")
+                String roles = authentication.getClass().getMethod("getAuthorities")
                         .invoke(authentication).toString();
 
                 Map<String, Object> details = new HashMap<>();
@@ -87,7 +87,7 @@ public class SecurityAudit {
                 Method getAuthentication = event.getClass().getMethod("getAuthentication");
                 Object authentication = getAuthentication.invoke(event);
                 String username = (String) authentication.getClass().getMethod("getName").invoke(authentication);
-                String roles = (String) authentication.getClass().getMethod("getAuthorities")
+                String roles = authentication.getClass().getMethod("getAuthorities")
                         .invoke(authentication).toString();
 
                 Map<String, Object> details = new HashMap<>();
@@ -122,7 +122,7 @@ public class SecurityAudit {
 
             // Apply sensitive data masking if enabled
             if (env.isSensitiveDataMaskingEnabled()) {
-                details = PrivacyAwareUtils.maskMap(details, env.getSensitiveDataKeys());
+                details = PrivacyAwareUtils.maskMap(details, env.getSensitiveDataMaskingPolicy());
             }
 
             customAuditService.logSecurityAudit(
@@ -144,7 +144,7 @@ public class SecurityAudit {
 
             // Apply sensitive data masking if enabled
             if (env.isSensitiveDataMaskingEnabled()) {
-                details = PrivacyAwareUtils.maskMap(details, env.getSensitiveDataKeys());
+                details = PrivacyAwareUtils.maskMap(details, env.getSensitiveDataMaskingPolicy());
             }
 
             customAuditService.logSecurityAudit(
@@ -167,7 +167,7 @@ public class SecurityAudit {
 
             // Apply sensitive data masking if enabled
             if (env.isSensitiveDataMaskingEnabled()) {
-                details = PrivacyAwareUtils.maskMap(details, env.getSensitiveDataKeys());
+                details = PrivacyAwareUtils.maskMap(details, env.getSensitiveDataMaskingPolicy());
             }
 
             customAuditService.logSecurityAudit(
@@ -0,0 +1,140 @@
+package com.fastcode.audit.controller;
+
+import com.fastcode.audit.AuditConfigSnapshot;
+import com.fastcode.audit.AuditPropertiesConfiguration;
+import com.fastcode.audit.application.AuditService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import jakarta.servlet.http.HttpServletRequest;
+import java.security.Principal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Management endpoints for the runtime audit configuration
+ * Callers need the audit.config.admin role (AUDIT_ADMIN by default); other callers get 401 or 403
+ * Changes are validated and compiled, recorded as a durable COMPLIANCE_CONFIG_RELOAD audit event, and only
+ * then replace the current snapshot; the record is written even when the change disables auditing
+ */
+@RestController
+@RequestMapping("/audit/config")
+@RequiredArgsConstructor
+@Slf4j
+public class AuditConfigController {
+
+    private static final long AUDIT_RECORD_TIMEOUT_SECONDS = 10;
+
+    private final AuditPropertiesConfiguration auditConfig;
+    private final AuditService auditService;
+
+    /**
+     * Get the version and values of the reloadable settings, secrets redacted
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getConfig(HttpServletRequest request) {
+        if (!isAdmin(request)) {
+            return denied(request);
+        }
+        Map<String, Object> config = new HashMap<>();
+        config.put("version", auditConfig.getSnapshot().getVersion());
+        config.put("properties", auditConfig.describeReloadable());
+        config.put("timestamp", System.currentTimeMillis());
+        return ResponseEntity.ok(config);
+    }
+
+    /**
+     * Validate and apply changes to the reloadable settings, e.g. {"audit.file.enabled": "false"}
+     * A blank value drops an earlier runtime change so the environment value applies again
+     */
+    @PostMapping("/reload")
+    public ResponseEntity<Map<String, Object>> reload(@RequestBody Map<String, String> changes, HttpServletRequest request) {
+        if (!isAdmin(request)) {
+            Map<String, Object> details = new HashMap<>();
+            details.put("changes", auditConfig.describe(changes));
+            auditService.logConfigurationAudit("CONFIG_RELOAD_DENIED", getActor(request), request.getRemoteAddr(), details);
+            return denied(request);
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        long previousVersion = auditConfig.getSnapshot().getVersion();
+
+        AuditConfigSnapshot snapshot;
+        try {
+            snapshot = auditConfig.reload(changes, candidate -> recordReload(previousVersion, candidate, changes, request));
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected audit configuration reload: {}", e.getMessage());
+            Map<String, Object> details = new HashMap<>();
+            details.put("changes", auditConfig.describe(changes));
+            details.put("errors", e.getMessage());
+            auditService.logConfigurationAudit("CONFIG_RELOAD_REJECTED", getActor(request), request.getRemoteAddr(), details);
+            result.put("status", "REJECTED");
+            result.put("version", previousVersion);
+            result.put("errors", e.getMessage());
+            result.put("timestamp", System.currentTimeMillis());
+            return ResponseEntity.badRequest().body(result);
+        } catch (IllegalStateException e) {
+            log.error("Audit configuration reload not applied: {}", e.getMessage());
+            result.put("status", "NOT_APPLIED");
+            result.put("version", previousVersion);
+            result.put("errors", e.getMessage());
+            result.put("timestamp", System.currentTimeMillis());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(result);
+        }
+
+        result.put("status", "APPLIED");
+        result.put("version", snapshot.getVersion());
+        result.put("properties", auditConfig.describeReloadable());
+        result.put("timestamp", System.currentTimeMillis());
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * Record the validated change and wait until it is durable, so a change is never applied unaudited
+     * @throws IllegalStateException if the record could not be written; the change is then not applied
+     */
+    private void recordReload(long previousVersion, AuditConfigSnapshot candidate, Map<String, String> changes,
+                              HttpServletRequest request) {
+        Map<String, Object> details = new HashMap<>();
+        details.put("previousVersion", previousVersion);
+        details.put("version", candidate.getVersion());
+        details.put("changes", auditConfig.describe(changes));
+        try {
+            auditService.logConfigurationAudit("CONFIG_RELOAD", getActor(request), request.getRemoteAddr(), details)
+                    .get(AUDIT_RECORD_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while recording the reload audit event");
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("Could not record the reload audit event: " + e.getMessage());
+        }
+    }
+
+    private boolean isAdmin(HttpServletRequest request) {
+        return request.getUserPrincipal() != null && request.isUserInRole(auditConfig.getAuditConfigAdminRole());
+    }
+
+    private ResponseEntity<Map<String, Object>> denied(HttpServletRequest request) {
+        log.warn("Denied audit configuration access to {} from {}", getActor(request), request.getRemoteAddr());
+        Map<String, Object> result = new HashMap<>();
+        result.put("status", "DENIED");
+        result.put("timestamp", System.currentTimeMillis());
+        HttpStatus status = request.getUserPrincipal() == null ? HttpStatus.UNAUTHORIZED : HttpStatus.FORBIDDEN;
+        return ResponseEntity.status(status).body(result);
+    }
+
+    private String getActor(HttpServletRequest request) {
+        Principal principal = request.getUserPrincipal();
+        return principal != null && principal.getName() != null ? principal.getName() : "ANONYMOUS";
+    }
+}
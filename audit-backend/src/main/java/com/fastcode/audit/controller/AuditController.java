@@ -16,6 +16,7 @@ import jakarta.persistence.metamodel.EntityType;
 import jakarta.persistence.metamodel.Metamodel;
 import java.net.MalformedURLException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -33,6 +34,7 @@ public class AuditController {
     public List<AuditEventDto> getAllAuditLogs(@RequestParam(value = "search", required = false) String search,
                                                @RequestParam(value = "offset", required = false, defaultValue = "0") int offset,
                                                @RequestParam(value = "limit", required = false, defaultValue = "10") int limit,
+                                               @RequestParam(value = "fields", required = false) String fields,
                                                Sort sort) throws MalformedURLException {
         if (Sort.unsorted().equals(sort)) {
             sort = Sort.by("timestamp").descending();
@@ -41,7 +43,21 @@ public class AuditController {
         Pageable pageable = new OffsetBasedPageRequest(offset, limit, sort);
         SearchCriteria searchCriteria = generateSearchCriteriaForAuditLogs(search);
 
-        return auditService.findAll(searchCriteria, pageable);
+        return auditService.findAll(searchCriteria, pageable, parseFields(fields));
+    }
+
+    // Comma separated element names, e.g. fields=path,responseStatus,body; null returns all elements
+    private static Set<String> parseFields(String fields) {
+        if (fields == null || fields.trim().isEmpty()) {
+            return null;
+        }
+        Set<String> names = new HashSet<>();
+        for (String field : fields.split(",")) {
+            if (!field.trim().isEmpty()) {
+                names.add(field.trim());
+            }
+        }
+        return names;
     }
 
     // Search logic to handle search strings for LogAudit entity
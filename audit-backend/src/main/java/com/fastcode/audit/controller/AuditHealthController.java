@@ -3,6 +3,7 @@ package com.fastcode.audit.controller;
 import com.fastcode.audit.handler.AuditHandlerManager;
 import com.fastcode.audit.performance.AuditPerformanceInterceptor;
 import com.fastcode.audit.performance.AuditPerformanceStats;
+import com.fastcode.audit.performance.AuditSinkStats;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
@@ -11,6 +12,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -38,14 +40,15 @@ public class AuditHealthController {
             boolean hasEnabledHandlers = handlerManager.hasEnabledHandlers();
             int enabledHandlerCount = handlerManager.getEnabledHandlerCount();
             
-            // Check performance health
-            boolean isHealthy = performanceInterceptor.isHealthy();
+            // Check performance health and overflow journals that no longer replay
+            boolean isHealthy = performanceInterceptor.isHealthy() && handlerManager.getStuckJournalSinks().isEmpty();
             AuditPerformanceStats stats = performanceInterceptor.getStats();
             
             status.put("status", isHealthy ? "HEALTHY" : "DEGRADED");
             status.put("enabledHandlers", enabledHandlerCount);
             status.put("hasEnabledHandlers", hasEnabledHandlers);
             status.put("performance", stats);
+            status.put("overflowJournal", getJournalSummary());
             status.put("timestamp", System.currentTimeMillis());
             
             return ResponseEntity.ok(status);
@@ -72,6 +75,43 @@ public class AuditHealthController {
         }
     }
 
+    /**
+     * Get overflow journal depth and replay rate
+     */
+    @GetMapping("/journal")
+    public ResponseEntity<Map<String, Object>> getJournalStatus() {
+        try {
+            return ResponseEntity.ok(getJournalSummary());
+        } catch (Exception e) {
+            log.error("Error getting overflow journal status: {}", e.getMessage(), e);
+            return ResponseEntity.status(500).build();
+        }
+    }
+
+    /**
+     * Get queue depth, throughput and failures per sink
+     */
+    @GetMapping("/sinks")
+    public ResponseEntity<List<AuditSinkStats>> getSinkStatus() {
+        try {
+            return ResponseEntity.ok(handlerManager.getSinkStats());
+        } catch (Exception e) {
+            log.error("Error getting audit sink status: {}", e.getMessage(), e);
+            return ResponseEntity.status(500).build();
+        }
+    }
+
+    private Map<String, Object> getJournalSummary() {
+        Map<String, Object> journal = new HashMap<>();
+        journal.put("depth", handlerManager.getJournalDepth());
+        journal.put("replayRate", handlerManager.getJournalReplayRate());
+        journal.put("spilledEvents", handlerManager.getSpilledEventCount());
+        journal.put("deadLetteredEvents", handlerManager.getDeadLetteredEventCount());
+        journal.put("stuckSinks", handlerManager.getStuckJournalSinks());
+        journal.put("timestamp", System.currentTimeMillis());
+        return journal;
+    }
+
     /**
      * Get audit configuration summary
      */
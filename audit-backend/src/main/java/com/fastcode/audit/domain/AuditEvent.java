@@ -56,4 +56,13 @@ public class AuditEvent {
     @JdbcTypeCode(SqlTypes.JSON)
     private Map<String, Object> elements; // JSON formatted details of the changes including entity changes, API details, etc.
 
+    @Column(name = "session_id_bidx", length = 64)
+    private String sessionIdBlindIndex; // HMAC of elements.sessionId for equality search on encrypted events
+
+    @Column(name = "user_id_bidx", length = 64)
+    private String userIdBlindIndex; // HMAC of elements.userId for equality search on encrypted events
+
+    @Column(name = "username_bidx", length = 64)
+    private String usernameBlindIndex; // HMAC of elements.username for equality search on encrypted events
+
 }
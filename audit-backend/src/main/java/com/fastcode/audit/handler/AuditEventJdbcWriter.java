@@ -0,0 +1,442 @@
+package com.fastcode.audit.handler;
+
+import com.fastcode.audit.domain.AuditEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Types;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Writes audit events to the audit table with plain JDBC
+ * Rows are inserted with multi-row INSERT statements grouped into one JDBC batch and one transaction,
+ * bypassing the JPA merge (SELECT by identifier, then INSERT) done by the repository
+ * On PostgreSQL rows can also be bulk-loaded with COPY FROM STDIN in CSV format
+ * Inserts are idempotent on the identifier, so a batch replayed after a partial failure does not fail on
+ * the rows it already wrote: PostgreSQL skips them with ON CONFLICT DO NOTHING, other databases when a row
+ * retried on its own hits a unique violation
+ * Connections are obtained through DataSourceUtils: when the caller runs inside a Spring-managed transaction
+ * (e.g. a synchronous audit write) the rows join that transaction and are committed or rolled back with it,
+ * using savepoints so a failed audit row does not abort the caller's work; otherwise the writer commits itself
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AuditEventJdbcWriter {
+
+    static final String TABLE_NAME = "audit";
+
+    static final String[] COLUMNS = {
+            "identifier", "timestamp", "actor", "origin", "action", "http_method", "path",
+            "entity_name", "operation", "response_status", "exception_type", "elements",
+            "session_id_bidx", "user_id_bidx", "username_bidx"
+    };
+
+    private static final int ROWS_PER_STATEMENT = 64;
+
+    private static final int COPY_CHUNK_CHARS = 64 * 1024;
+
+    private static final String UNIQUE_VIOLATION = "23505";
+
+    private final DataSource dataSource;
+    private final ObjectMapper objectMapper;
+
+    private final String singleRowSql = buildInsertSql(1, false);
+    private final String multiRowSql = buildInsertSql(ROWS_PER_STATEMENT, false);
+    private final String postgresSingleRowSql = buildInsertSql(1, true);
+    private final String postgresMultiRowSql = buildInsertSql(ROWS_PER_STATEMENT, true);
+    private final String copySql = "COPY " + TABLE_NAME + " (" + String.join(", ", COLUMNS) + ") FROM STDIN WITH (FORMAT csv)";
+
+    private volatile Boolean postgres;
+    private volatile boolean copyUnavailable;
+
+    /**
+     * Insert the given events in a single transaction
+     * If the batch fails, rows are retried one by one so a single bad row cannot lose the whole batch
+     * @return number of rows written, counting rows that were already in the table
+     */
+    public int insert(List<AuditEvent> auditEvents) {
+        return insert(auditEvents, null);
+    }
+
+    /**
+     * Insert the given events in a single transaction
+     * @param rejected collects the rows the database refused for their content, e.g. a missing actor or a value
+     *                 too long for its column; those fail the same way on every retry. May be null
+     * @return number of rows written, counting rows that were already in the table
+     */
+    public int insert(List<AuditEvent> auditEvents, List<AuditEvent> rejected) {
+        if (auditEvents.isEmpty()) {
+            return 0;
+        }
+
+        Connection connection = null;
+        try {
+            connection = DataSourceUtils.getConnection(dataSource);
+            if (DataSourceUtils.isConnectionTransactional(connection, dataSource)) {
+                return insertInTransaction(connection, auditEvents, rejected);
+            }
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                insertBatch(connection, auditEvents);
+                connection.commit();
+                return auditEvents.size();
+            } catch (SQLException e) {
+                connection.rollback();
+                log.warn("Batch insert of {} audit events failed, retrying row by row: {}", auditEvents.size(), e.getMessage());
+                return insertIndividually(connection, auditEvents, false, rejected);
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException | DataAccessException e) {
+            log.error("Error saving audit events to database: {}", e.getMessage(), e);
+            return 0;
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    /**
+     * Insert inside the caller's transaction, which owns the commit
+     * A savepoint guards the batch so a failing row can be rolled back without aborting the transaction
+     */
+    private int insertInTransaction(Connection connection, List<AuditEvent> auditEvents,
+                                    List<AuditEvent> rejected) throws SQLException {
+        Savepoint savepoint = connection.setSavepoint();
+        try {
+            insertBatch(connection, auditEvents);
+            connection.releaseSavepoint(savepoint);
+            return auditEvents.size();
+        } catch (SQLException e) {
+            connection.rollback(savepoint);
+            log.warn("Batch insert of {} audit events failed, retrying row by row: {}", auditEvents.size(), e.getMessage());
+            return insertIndividually(connection, auditEvents, true, rejected);
+        }
+    }
+
+    /**
+     * Bulk-load the given events with COPY FROM STDIN
+     * @return number of rows written
+     */
+    public int copy(List<AuditEvent> auditEvents) {
+        return copy(auditEvents, null);
+    }
+
+    /**
+     * Bulk-load the given events with COPY FROM STDIN
+     * Falls back to batched inserts when the database does not support COPY (e.g. H2) or the COPY fails,
+     * which is also how rows already in the table are skipped
+     * @param rejected collects the rows the fallback insert refused for their content, may be null
+     * @return number of rows written
+     */
+    public int copy(List<AuditEvent> auditEvents, List<AuditEvent> rejected) {
+        if (auditEvents.isEmpty()) {
+            return 0;
+        }
+        if (copyUnavailable) {
+            return insert(auditEvents, rejected);
+        }
+
+        Connection connection = null;
+        try {
+            connection = DataSourceUtils.getConnection(dataSource);
+            if (!isPostgres(connection) || !connection.isWrapperFor(PGConnection.class)) {
+                log.info("COPY is not available for this database, audit events will be written with batched inserts");
+                copyUnavailable = true;
+            } else if (DataSourceUtils.isConnectionTransactional(connection, dataSource)) {
+                Savepoint savepoint = connection.setSavepoint();
+                try {
+                    long rows = copyRows(connection.unwrap(PGConnection.class), auditEvents);
+                    connection.releaseSavepoint(savepoint);
+                    return (int) rows;
+                } catch (SQLException e) {
+                    connection.rollback(savepoint);
+                    log.warn("COPY of {} audit events failed, falling back to batched inserts: {}", auditEvents.size(), e.getMessage());
+                }
+            } else {
+                boolean autoCommit = connection.getAutoCommit();
+                connection.setAutoCommit(false);
+                try {
+                    long rows = copyRows(connection.unwrap(PGConnection.class), auditEvents);
+                    connection.commit();
+                    return (int) rows;
+                } catch (SQLException e) {
+                    connection.rollback();
+                    log.warn("COPY of {} audit events failed, falling back to batched inserts: {}", auditEvents.size(), e.getMessage());
+                } finally {
+                    connection.setAutoCommit(autoCommit);
+                }
+            }
+        } catch (SQLException | DataAccessException e) {
+            log.error("Error copying audit events to database: {}", e.getMessage(), e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+        return insert(auditEvents, rejected);
+    }
+
+    /**
+     * Stream the events to the server as CSV in fixed-size chunks
+     * The caller owns the transaction
+     */
+    long copyRows(PGConnection connection, List<AuditEvent> auditEvents) throws SQLException {
+        CopyIn copyIn = connection.getCopyAPI().copyIn(copySql);
+        try {
+            StringBuilder chunk = new StringBuilder(COPY_CHUNK_CHARS + 1024);
+            for (AuditEvent auditEvent : auditEvents) {
+                appendCsvRow(chunk, auditEvent);
+                if (chunk.length() >= COPY_CHUNK_CHARS) {
+                    writeChunk(copyIn, chunk);
+                }
+            }
+            writeChunk(copyIn, chunk);
+            return copyIn.endCopy();
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    private void writeChunk(CopyIn copyIn, StringBuilder chunk) throws SQLException {
+        if (chunk.length() == 0) {
+            return;
+        }
+        byte[] bytes = chunk.toString().getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        chunk.setLength(0);
+    }
+
+    /**
+     * Append one event as a COPY csv line, columns in COLUMNS order
+     */
+    void appendCsvRow(StringBuilder row, AuditEvent auditEvent) {
+        appendCsvValue(row, auditEvent.getIdentifier());
+        row.append(',');
+        appendCsvValue(row, auditEvent.getTimestamp() != null ? auditEvent.getTimestamp().toString() : null);
+        row.append(',');
+        appendCsvValue(row, auditEvent.getActor());
+        row.append(',');
+        appendCsvValue(row, auditEvent.getOrigin());
+        row.append(',');
+        appendCsvValue(row, auditEvent.getAction());
+        row.append(',');
+        appendCsvValue(row, auditEvent.getHttpMethod());
+        row.append(',');
+        appendCsvValue(row, auditEvent.getPath());
+        row.append(',');
+        appendCsvValue(row, auditEvent.getEntityName());
+        row.append(',');
+        appendCsvValue(row, auditEvent.getOperation());
+        row.append(',');
+        appendCsvValue(row, auditEvent.getResponseStatus());
+        row.append(',');
+        appendCsvValue(row, auditEvent.getExceptionType());
+        row.append(',');
+        appendCsvValue(row, toJson(auditEvent));
+        row.append(',');
+        appendCsvValue(row, auditEvent.getSessionIdBlindIndex());
+        row.append(',');
+        appendCsvValue(row, auditEvent.getUserIdBlindIndex());
+        row.append(',');
+        appendCsvValue(row, auditEvent.getUsernameBlindIndex());
+        row.append('\n');
+    }
+
+    /**
+     * Append a CSV field; null is written unquoted (NULL in COPY csv), everything else is quoted
+     */
+    private void appendCsvValue(StringBuilder row, String value) {
+        if (value == null) {
+            return;
+        }
+        row.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                row.append('"');
+            }
+            row.append(c);
+        }
+        row.append('"');
+    }
+
+    /**
+     * Insert a single event, in its own transaction unless the caller already has one
+     */
+    public boolean insert(AuditEvent auditEvent) {
+        return insert(Collections.singletonList(auditEvent)) == 1;
+    }
+
+    private void insertBatch(Connection connection, List<AuditEvent> auditEvents) throws SQLException {
+        boolean isPostgres = isPostgres(connection);
+        int fullStatements = auditEvents.size() / ROWS_PER_STATEMENT;
+
+        if (fullStatements > 0) {
+            try (PreparedStatement statement = connection.prepareStatement(isPostgres ? postgresMultiRowSql : multiRowSql)) {
+                for (int i = 0; i < fullStatements; i++) {
+                    int parameterIndex = 1;
+                    for (int row = i * ROWS_PER_STATEMENT; row < (i + 1) * ROWS_PER_STATEMENT; row++) {
+                        parameterIndex = bindRow(statement, parameterIndex, auditEvents.get(row), isPostgres);
+                    }
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        }
+
+        int remainderStart = fullStatements * ROWS_PER_STATEMENT;
+        if (remainderStart < auditEvents.size()) {
+            try (PreparedStatement statement = connection.prepareStatement(isPostgres ? postgresSingleRowSql : singleRowSql)) {
+                for (int row = remainderStart; row < auditEvents.size(); row++) {
+                    bindRow(statement, 1, auditEvents.get(row), isPostgres);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        }
+    }
+
+    /**
+     * A row that hits a unique violation is already in the table and counts as written
+     * @param transactional true when the caller's transaction owns the commit, so each row is guarded by a savepoint
+     */
+    private int insertIndividually(Connection connection, List<AuditEvent> auditEvents, boolean transactional,
+                                   List<AuditEvent> rejected) throws SQLException {
+        int written = 0;
+        boolean isPostgres = isPostgres(connection);
+        try (PreparedStatement statement = connection.prepareStatement(isPostgres ? postgresSingleRowSql : singleRowSql)) {
+            for (AuditEvent auditEvent : auditEvents) {
+                Savepoint savepoint = transactional ? connection.setSavepoint() : null;
+                try {
+                    bindRow(statement, 1, auditEvent, isPostgres);
+                    statement.executeUpdate();
+                    if (transactional) {
+                        connection.releaseSavepoint(savepoint);
+                    } else {
+                        connection.commit();
+                    }
+                    written++;
+                } catch (SQLException e) {
+                    if (transactional) {
+                        connection.rollback(savepoint);
+                    } else {
+                        connection.rollback();
+                    }
+                    if (UNIQUE_VIOLATION.equals(e.getSQLState())) {
+                        log.debug("Audit event {} is already in the database", auditEvent.getIdentifier());
+                        written++;
+                    } else {
+                        if (rejected != null && isRowRejected(e)) {
+                            rejected.add(auditEvent);
+                        }
+                        log.error("Error saving audit event {} to database: {}", auditEvent.getIdentifier(), e.getMessage());
+                    }
+                }
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Bind one audit event to the statement starting at the given parameter index
+     * @return the next free parameter index
+     */
+    private int bindRow(PreparedStatement statement, int index, AuditEvent auditEvent, boolean isPostgres) throws SQLException {
+        statement.setString(index++, auditEvent.getIdentifier());
+        statement.setTimestamp(index++, auditEvent.getTimestamp());
+        statement.setString(index++, auditEvent.getActor());
+        statement.setString(index++, auditEvent.getOrigin());
+        statement.setString(index++, auditEvent.getAction());
+        statement.setString(index++, auditEvent.getHttpMethod());
+        statement.setString(index++, auditEvent.getPath());
+        statement.setString(index++, auditEvent.getEntityName());
+        statement.setString(index++, auditEvent.getOperation());
+        statement.setString(index++, auditEvent.getResponseStatus());
+        statement.setString(index++, auditEvent.getExceptionType());
+
+        String elements = toJson(auditEvent);
+        if (elements == null) {
+            statement.setNull(index++, Types.VARCHAR);
+        } else if (isPostgres) {
+            // Let the server coerce the literal to the column type (text, json or jsonb)
+            statement.setObject(index++, elements, Types.OTHER);
+        } else {
+            statement.setString(index++, elements);
+        }
+        statement.setString(index++, auditEvent.getSessionIdBlindIndex());
+        statement.setString(index++, auditEvent.getUserIdBlindIndex());
+        statement.setString(index++, auditEvent.getUsernameBlindIndex());
+        return index;
+    }
+
+    /**
+     * Serialize the elements column the same way Hibernate's JSON mapping does
+     */
+    String toJson(AuditEvent auditEvent) {
+        if (auditEvent.getElements() == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(auditEvent.getElements());
+        } catch (JsonProcessingException e) {
+            log.error("Error serializing audit event {} elements: {}", auditEvent.getIdentifier(), e.getMessage());
+            return null;
+        }
+    }
+
+    boolean isPostgres(Connection connection) throws SQLException {
+        Boolean result = postgres;
+        if (result == null) {
+            result = connection.getMetaData().getDatabaseProductName().toLowerCase().contains("postgres");
+            postgres = result;
+        }
+        return result;
+    }
+
+    /**
+     * Data exceptions (SQLSTATE class 22) and integrity violations (class 23) are caused by the row itself,
+     * connection and server errors are not
+     */
+    private static boolean isRowRejected(SQLException e) {
+        String state = e.getSQLState();
+        return state != null && (state.startsWith("22") || state.startsWith("23"));
+    }
+
+    private static String buildInsertSql(int rows, boolean onConflictDoNothing) {
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(TABLE_NAME).append(" (");
+        sql.append(String.join(", ", COLUMNS)).append(") VALUES ");
+
+        StringBuilder placeholders = new StringBuilder("(");
+        for (int i = 0; i < COLUMNS.length; i++) {
+            placeholders.append(i == 0 ? "?" : ", ?");
+        }
+        placeholders.append(")");
+
+        for (int row = 0; row < rows; row++) {
+            if (row > 0) {
+                sql.append(", ");
+            }
+            sql.append(placeholders);
+        }
+        if (onConflictDoNothing) {
+            sql.append(" ON CONFLICT (identifier) DO NOTHING");
+        }
+        return sql.toString();
+    }
+}
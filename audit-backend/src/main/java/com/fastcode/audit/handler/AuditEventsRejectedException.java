@@ -0,0 +1,23 @@
+package com.fastcode.audit.handler;
+
+import com.fastcode.audit.domain.AuditEvent;
+
+import java.util.List;
+
+/**
+ * Thrown by a durable write when the rest of the batch was committed but some events can never be written,
+ * e.g. because the database refuses their content; retrying the batch would fail on them every time
+ */
+public class AuditEventsRejectedException extends IllegalStateException {
+
+    private final transient List<AuditEvent> rejectedEvents;
+
+    public AuditEventsRejectedException(List<AuditEvent> rejectedEvents, int batchSize) {
+        super(rejectedEvents.size() + " of " + batchSize + " audit events were rejected");
+        this.rejectedEvents = List.copyOf(rejectedEvents);
+    }
+
+    public List<AuditEvent> getRejectedEvents() {
+        return rejectedEvents;
+    }
+}
@@ -0,0 +1,164 @@
+package com.fastcode.audit.handler;
+
+import com.fastcode.audit.domain.AuditEvent;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Group commit for durable audit events
+ * Callers that need an event to be durable before they continue submit it and wait on the returned future;
+ * a single committer thread takes everything that queued up while the previous commit ran and hands it to
+ * each handler as one durable batch, so concurrent callers share one transaction and one fsync
+ */
+@Slf4j
+class AuditGroupCommitter implements Runnable {
+
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private final List<AuditHandler> handlers;
+    private final int maxGroupSize;
+    private final BlockingQueue<PendingCommit> pending = new LinkedBlockingQueue<>();
+    private final List<PendingCommit> group;
+    private final List<AuditEvent> events;
+    private final Thread thread;
+
+    private final AtomicLong commits = new AtomicLong();
+    private final AtomicLong committedEvents = new AtomicLong();
+
+    private volatile boolean running = true;
+
+    AuditGroupCommitter(List<AuditHandler> handlers, int maxGroupSize, ThreadFactory threadFactory) {
+        this.handlers = handlers;
+        this.maxGroupSize = Math.max(1, maxGroupSize);
+        this.group = new ArrayList<>(this.maxGroupSize);
+        this.events = new ArrayList<>(this.maxGroupSize);
+        this.thread = threadFactory.newThread(this);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Queue an event for the next group commit
+     * @return a future completed once every enabled handler has made the event durable
+     */
+    CompletableFuture<Void> submit(AuditEvent auditEvent) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        if (!running) {
+            future.completeExceptionally(new IllegalStateException("Audit group commit has been stopped"));
+            return future;
+        }
+        PendingCommit commit = new PendingCommit(auditEvent, future);
+        pending.add(commit);
+        // stop() may have drained the queue between the check above and the add; if the entry is still
+        // there nobody else will take it, so fail it here instead of leaving the caller waiting
+        if (!running && pending.remove(commit)) {
+            future.completeExceptionally(new IllegalStateException("Audit group commit has been stopped"));
+        }
+        return future;
+    }
+
+    @Override
+    public void run() {
+        while (running || !pending.isEmpty()) {
+            try {
+                PendingCommit first = pending.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                pending.drainTo(group, maxGroupSize - 1);
+                commit();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    /**
+     * Write the group through every enabled handler, then complete all waiting callers
+     */
+    private void commit() {
+        for (PendingCommit commit : group) {
+            events.add(commit.auditEvent);
+        }
+
+        Exception failure = null;
+        for (AuditHandler handler : handlers) {
+            if (!handler.isEnabled()) {
+                continue;
+            }
+            try {
+                handler.handleBatchDurable(events);
+            } catch (Exception e) {
+                log.error("Group commit of {} audit events failed in {}: {}",
+                        events.size(), handler.getClass().getSimpleName(), e.getMessage(), e);
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+
+        for (PendingCommit commit : group) {
+            if (failure == null) {
+                commit.future.complete(null);
+            } else {
+                commit.future.completeExceptionally(failure);
+            }
+        }
+        commits.incrementAndGet();
+        committedEvents.addAndGet(group.size());
+        group.clear();
+        events.clear();
+    }
+
+    /**
+     * Stop accepting events and commit what is already queued before the deadline
+     * Callers still waiting afterwards are failed rather than left hanging
+     */
+    void stop(long deadlineNanos) {
+        running = false;
+        long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+        try {
+            if (remainingMillis > 0) {
+                thread.join(remainingMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        PendingCommit abandoned;
+        while ((abandoned = pending.poll()) != null) {
+            abandoned.future.completeExceptionally(new IllegalStateException("Audit shutdown before the event was committed"));
+        }
+    }
+
+    long getCommits() {
+        return commits.get();
+    }
+
+    long getCommittedEvents() {
+        return committedEvents.get();
+    }
+
+    private static final class PendingCommit {
+
+        private final AuditEvent auditEvent;
+        private final CompletableFuture<Void> future;
+
+        private PendingCommit(AuditEvent auditEvent, CompletableFuture<Void> future) {
+            this.auditEvent = auditEvent;
+            this.future = future;
+        }
+    }
+}
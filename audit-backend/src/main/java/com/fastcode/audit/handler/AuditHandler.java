@@ -2,6 +2,8 @@ package com.fastcode.audit.handler;
 
 import com.fastcode.audit.domain.AuditEvent;
 
+import java.util.List;
+
 /**
  * Base interface for audit handlers
  * Similar to audit4j handler interface but simplified for our needs
@@ -10,10 +12,53 @@ public interface AuditHandler {
 
     /**
      * Handle an audit event
+     * Called on the handler's pipeline thread, so implementations may block
      * @param auditEvent the audit event to handle
      */
     void handle(AuditEvent auditEvent);
 
+    /**
+     * Handle a batch of audit events drained from the pipeline
+     * Handlers that can write several events at once should override this
+     * @param auditEvents the audit events to handle, in publication order
+     */
+    default void handleBatch(List<AuditEvent> auditEvents) {
+        for (AuditEvent auditEvent : auditEvents) {
+            handle(auditEvent);
+        }
+    }
+
+    /**
+     * Handle a batch of audit events and make them durable before returning
+     * Used by group commit; failures must be thrown so waiting callers see them
+     * @param auditEvents the audit events to handle, in submission order
+     */
+    default void handleBatchDurable(List<AuditEvent> auditEvents) {
+        handleBatch(auditEvents);
+        flush();
+    }
+
+    /**
+     * Write out anything the handler has buffered
+     */
+    default void flush() {
+    }
+
+    /**
+     * Called periodically by the pipeline while no events are waiting
+     * Handlers that buffer events can use it to flush on a time limit
+     */
+    default void onIdle() {
+    }
+
+    /**
+     * Number of events this handler accepted but could not write, e.g. buffered events whose flush failed
+     * Handlers that report every failure by throwing from handleBatch can keep the default
+     */
+    default long getFailedEvents() {
+        return 0;
+    }
+
     /**
      * Check if this handler is enabled
      * @return true if enabled, false otherwise
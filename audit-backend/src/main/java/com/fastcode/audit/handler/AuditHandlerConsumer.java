@@ -0,0 +1,552 @@
+package com.fastcode.audit.handler;
+
+import com.fastcode.audit.domain.AuditEvent;
+import com.fastcode.audit.performance.AuditBackpressure;
+import com.fastcode.audit.performance.AuditBackpressurePolicy;
+import com.fastcode.audit.performance.AuditEventCategory;
+import com.fastcode.audit.performance.AuditOverflowJournal;
+import com.fastcode.audit.performance.AuditPriorityLane;
+import com.fastcode.audit.performance.AuditPublishOutcome;
+import com.fastcode.audit.performance.AuditRingBuffer;
+import com.fastcode.audit.performance.AuditSinkStats;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Batch-draining consumer that feeds one audit handler from its own ring buffers, one per priority lane
+ * Producers publish straight into the ring, so an event crosses exactly one thread boundary
+ * Each batch is filled from the lanes by weight, highest priority first, and a lane whose events
+ * waited longer than its SLO gets the whole next batch
+ * When the ring is full, the event category's backpressure policy decides whether the event waits,
+ * is shed, spills to the overflow journal, or is written through the handler on the caller's thread;
+ * spilled events are replayed once the ring drains
+ * A journal batch that fails is retried with exponential backoff; after a few failures the journal counts as
+ * stuck, which is reported in the sink stats, and spill-policy events stop queueing behind it
+ */
+@Slf4j
+class AuditHandlerConsumer implements Runnable {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final int MAX_EVICTION_ATTEMPTS = 3;
+    private static final long REPLAY_BACKOFF_MIN_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long REPLAY_BACKOFF_MAX_NANOS = TimeUnit.SECONDS.toNanos(30);
+    private static final int REPLAY_STUCK_FAILURES = 3;
+
+    private final AuditHandler handler;
+    private final String sinkName;
+    private final AuditBackpressurePolicy sinkPolicy;
+    private final AuditLaneQueue[] lanes;
+    private final int totalWeight;
+    private final int batchSize;
+    private final List<AuditEvent> batch;
+    private final Thread thread;
+    private final AuditOverflowJournal journal;
+    private final AuditBackpressure backpressure;
+
+    private final AtomicLong publishedEvents = new AtomicLong();
+    private final AtomicLong handledEvents = new AtomicLong();
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private final AtomicLong failedEvents = new AtomicLong();
+    private final AtomicLong abandonedEvents = new AtomicLong();
+
+    private volatile boolean running = true;
+    private volatile boolean sleeping;
+    private volatile boolean busy;
+    private volatile long busySince;
+    private volatile long stopDeadline;
+
+    // Failed replays of the batch at the head of the journal, reset once the head is acknowledged
+    private volatile int replayFailures;
+    private long replayRetryAt;
+
+    /**
+     * @param lanes one queue per priority lane, indexed by lane ordinal
+     * @param sinkPolicy policy applied to every event of this sink, or null to use the category policies
+     */
+    AuditHandlerConsumer(AuditHandler handler, String sinkName, AuditBackpressurePolicy sinkPolicy,
+                         AuditLaneQueue[] lanes, int batchSize, AuditOverflowJournal journal,
+                         AuditBackpressure backpressure, ThreadFactory threadFactory) {
+        this.handler = handler;
+        this.sinkName = sinkName;
+        this.sinkPolicy = sinkPolicy;
+        this.journal = journal;
+        this.backpressure = backpressure;
+        this.lanes = lanes;
+        int weight = 0;
+        for (AuditLaneQueue lane : lanes) {
+            weight += lane.getWeight();
+        }
+        this.totalWeight = weight;
+        this.batchSize = batchSize;
+        this.batch = new ArrayList<>(batchSize);
+        this.thread = threadFactory.newThread(this);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Publish an event to this handler, applying the sink's or the category's backpressure policy when the ring is full
+     * While the journal holds events, spill-policy events are appended behind them to keep ordering,
+     * unless the journal is stuck; then they go to the ring while it has room
+     */
+    AuditPublishOutcome publish(AuditEvent auditEvent, AuditEventCategory category) {
+        AuditRingBuffer<AuditEvent> ringBuffer = lanes[AuditPriorityLane.of(category).ordinal()].getRingBuffer();
+        AuditPublishOutcome outcome = offer(ringBuffer, auditEvent, getPolicy(category));
+        backpressure.record(category, outcome);
+        if (!outcome.isDelivered()) {
+            droppedEvents.incrementAndGet();
+            return outcome;
+        }
+        publishedEvents.incrementAndGet();
+        if (sleeping) {
+            LockSupport.unpark(thread);
+        }
+        return outcome;
+    }
+
+    private AuditPublishOutcome offer(AuditRingBuffer<AuditEvent> ringBuffer, AuditEvent auditEvent,
+                                      AuditBackpressurePolicy policy) {
+        if (policy.getType() == AuditBackpressurePolicy.Type.SPILL && journal != null && journal.hasPending()
+                && !isJournalStuck()) {
+            return spill(auditEvent);
+        }
+        if (ringBuffer.offer(auditEvent)) {
+            return AuditPublishOutcome.ACCEPTED;
+        }
+
+        switch (policy.getType()) {
+            case BLOCK:
+                return offerBlocking(ringBuffer, auditEvent, policy.getBlockTimeoutMs(), false);
+            case BLOCK_SYNC:
+                return offerBlocking(ringBuffer, auditEvent, policy.getBlockTimeoutMs(), true);
+            case DROP_NEWEST:
+                return AuditPublishOutcome.DROPPED_NEWEST;
+            case DROP_OLDEST:
+                return offerEvictingOldest(ringBuffer, auditEvent);
+            case SAMPLE:
+                if (ThreadLocalRandom.current().nextDouble() >= policy.getSampleRate()) {
+                    return AuditPublishOutcome.SAMPLED_OUT;
+                }
+                return spill(auditEvent);
+            default:
+                return spill(auditEvent);
+        }
+    }
+
+    private AuditPublishOutcome spill(AuditEvent auditEvent) {
+        if (journal != null && journal.append(auditEvent)) {
+            return AuditPublishOutcome.SPILLED;
+        }
+        return AuditPublishOutcome.REJECTED;
+    }
+
+    /**
+     * Wait for the consumer to free a slot
+     * @param writeThrough true to write the event through the handler if the timeout expires, false to spill it
+     */
+    private AuditPublishOutcome offerBlocking(AuditRingBuffer<AuditEvent> ringBuffer, AuditEvent auditEvent, long timeoutMs,
+                                              boolean writeThrough) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        LockSupport.unpark(thread);
+        while (System.nanoTime() < deadline) {
+            LockSupport.parkNanos(BLOCK_PARK_NANOS);
+            if (ringBuffer.offer(auditEvent)) {
+                return AuditPublishOutcome.BLOCKED;
+            }
+        }
+        return writeThrough ? writeSync(auditEvent) : spill(auditEvent);
+    }
+
+    /**
+     * Write one event durably through the handler on the caller's thread, bypassing the ring
+     * Handlers already accept durable batches from the group committer alongside the consumer thread;
+     * if the write fails the event still gets a chance in the journal
+     */
+    private AuditPublishOutcome writeSync(AuditEvent auditEvent) {
+        try {
+            handler.handleBatchDurable(List.of(auditEvent));
+            handledEvents.incrementAndGet();
+            return AuditPublishOutcome.WRITTEN_SYNC;
+        } catch (Exception e) {
+            failedBatches.incrementAndGet();
+            log.error("Synchronous write to audit handler {} failed: {}", handler.getClass().getSimpleName(), e.getMessage(), e);
+            return spill(auditEvent);
+        }
+    }
+
+    /**
+     * Evict the oldest event queued on the same lane to make room
+     * Evicted events whose own category may not be shed are moved to the journal instead of being dropped
+     */
+    private AuditPublishOutcome offerEvictingOldest(AuditRingBuffer<AuditEvent> ringBuffer, AuditEvent auditEvent) {
+        for (int attempt = 0; attempt < MAX_EVICTION_ATTEMPTS; attempt++) {
+            AuditEvent oldest = ringBuffer.poll();
+            if (oldest != null) {
+                AuditEventCategory oldestCategory = AuditEventCategory.of(oldest.getAction());
+                if (isSheddable(getPolicy(oldestCategory))) {
+                    backpressure.record(oldestCategory, AuditPublishOutcome.DROPPED_OLDEST);
+                    droppedEvents.incrementAndGet();
+                } else {
+                    AuditPublishOutcome evicted = spill(oldest);
+                    backpressure.record(oldestCategory, evicted);
+                    if (!evicted.isDelivered()) {
+                        droppedEvents.incrementAndGet();
+                    }
+                }
+            }
+            if (ringBuffer.offer(auditEvent)) {
+                return AuditPublishOutcome.ACCEPTED;
+            }
+        }
+        return spill(auditEvent);
+    }
+
+    private AuditBackpressurePolicy getPolicy(AuditEventCategory category) {
+        return sinkPolicy != null ? sinkPolicy : backpressure.getPolicy(category);
+    }
+
+    private static boolean isSheddable(AuditBackpressurePolicy policy) {
+        AuditBackpressurePolicy.Type type = policy.getType();
+        return type == AuditBackpressurePolicy.Type.DROP_NEWEST
+                || type == AuditBackpressurePolicy.Type.DROP_OLDEST
+                || type == AuditBackpressurePolicy.Type.SAMPLE;
+    }
+
+    @Override
+    public void run() {
+        runLoop();
+        // Stopping: hand whatever is still queued to the handler while time remains
+        while (System.nanoTime() < stopDeadline && drainBatch() > 0) {
+            // keep draining until the lanes are empty
+        }
+    }
+
+    private void runLoop() {
+        while (running) {
+            int handled = drainBatch();
+            if (getQueueSize() < getCapacity() / 2) {
+                handled += replayBatch();
+            }
+            if (handled == 0) {
+                idle();
+                sleeping = true;
+                if (isEmpty() && running) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                sleeping = false;
+            }
+        }
+    }
+
+    /**
+     * Drain and handle one batch of events
+     * @return number of events handled
+     */
+    private int drainBatch() {
+        int drained = fillBatch();
+        if (drained == 0) {
+            return 0;
+        }
+        if (!deliverBatch()) {
+            // Replayed batches stay in the journal on failure, drained ones are gone
+            failedEvents.addAndGet(drained);
+        }
+        return drained;
+    }
+
+    /**
+     * Fill the batch from the lanes in priority order
+     * Each lane first takes its weighted share, or all remaining room while it is breaching its SLO;
+     * unused room is then topped up in priority order so a lone busy lane still gets full batches
+     */
+    private int fillBatch() {
+        int drained = 0;
+        for (AuditLaneQueue lane : lanes) {
+            int share = lane.isBreachingSlo() ? batchSize : Math.max(1, batchSize * lane.getWeight() / totalWeight);
+            drained += lane.drainTo(batch, Math.min(share, batchSize - drained));
+        }
+        for (AuditLaneQueue lane : lanes) {
+            if (drained >= batchSize) {
+                break;
+            }
+            drained += lane.drainTo(batch, batchSize - drained);
+        }
+        return drained;
+    }
+
+    /**
+     * Replay one batch from the overflow journal once the lanes have drained below half their capacity
+     * The batch is written durably and only then released from the journal; a batch that fails
+     * stays in the journal and is replayed again once its backoff has passed
+     * Events the handler rejects for good are moved to the journal's dead-letter file and the batch is released
+     * @return number of events replayed
+     */
+    private int replayBatch() {
+        if (journal == null || !journal.hasPending()) {
+            return 0;
+        }
+        if (replayFailures > 0 && System.nanoTime() - replayRetryAt < 0) {
+            return 0;
+        }
+        int replayed = journal.read(batch, batchSize);
+        if (replayed == 0) {
+            return 0;
+        }
+        if (!batch.isEmpty() && !deliverBatch(true)) {
+            backOffReplay();
+            return 0;
+        }
+        journal.acknowledge();
+        if (replayFailures >= REPLAY_STUCK_FAILURES) {
+            log.info("Overflow journal of audit sink {} is replaying again", sinkName);
+        }
+        replayFailures = 0;
+        return replayed;
+    }
+
+    /**
+     * Delay the next replay of the same batch, doubling the delay on each failure up to the cap
+     */
+    private void backOffReplay() {
+        int failures = replayFailures + 1;
+        long delay = Math.min(REPLAY_BACKOFF_MAX_NANOS, REPLAY_BACKOFF_MIN_NANOS << Math.min(failures - 1, 20));
+        replayRetryAt = System.nanoTime() + delay;
+        replayFailures = failures;
+        if (failures == REPLAY_STUCK_FAILURES) {
+            log.warn("Overflow journal of audit sink {} is stuck after {} failed replays, {} events pending; "
+                    + "new events bypass it while the ring has room", sinkName, failures, journal.getDepth());
+        }
+    }
+
+    /**
+     * Check if the batch at the head of the journal keeps failing
+     */
+    boolean isJournalStuck() {
+        return replayFailures >= REPLAY_STUCK_FAILURES;
+    }
+
+    private boolean deliverBatch() {
+        return deliverBatch(false);
+    }
+
+    /**
+     * Hand the batch to the handler; a failing handler only affects its own sink
+     * Only batches the handler accepted count as handled
+     * @param durable true to wait until the handler has made the batch durable
+     * @return true if the handler accepted the batch
+     */
+    private boolean deliverBatch(boolean durable) {
+        int size = batch.size();
+        busySince = System.nanoTime();
+        busy = true;
+        try {
+            if (durable) {
+                handler.handleBatchDurable(batch);
+            } else {
+                handler.handleBatch(batch);
+            }
+            handledEvents.addAndGet(size);
+            return true;
+        } catch (AuditEventsRejectedException e) {
+            // The rest of the batch is written; the rejected events would fail every replay of it
+            List<AuditEvent> rejected = e.getRejectedEvents();
+            handledEvents.addAndGet(size - rejected.size());
+            failedEvents.addAndGet(rejected.size());
+            return journal != null && journal.deadLetter(rejected);
+        } catch (Exception e) {
+            failedBatches.incrementAndGet();
+            log.error("Error in audit handler {}: {}", handler.getClass().getSimpleName(), e.getMessage(), e);
+            return false;
+        } finally {
+            batch.clear();
+            busy = false;
+        }
+    }
+
+    private void idle() {
+        try {
+            handler.onIdle();
+        } catch (Exception e) {
+            log.error("Error in audit handler {}: {}", handler.getClass().getSimpleName(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Ask the consumer to stop; the consumer thread keeps draining its lanes into the handler
+     * until they are empty or the deadline passes
+     */
+    void signalStop(long deadlineNanos) {
+        stopDeadline = deadlineNanos;
+        running = false;
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Wait for the consumer thread to finish draining
+     * @return false if the thread is still running at the deadline, e.g. stuck in a hung handler
+     */
+    boolean awaitStop(long deadlineNanos) {
+        long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+        try {
+            if (remainingMillis > 0) {
+                thread.join(remainingMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return !thread.isAlive();
+    }
+
+    /**
+     * Move events still queued in the lanes to the overflow journal so they are replayed on the next start
+     * Events that cannot be journaled are counted as abandoned
+     * @return number of events spilled
+     */
+    int spillRemaining() {
+        int spilled = 0;
+        for (AuditLaneQueue lane : lanes) {
+            AuditEvent auditEvent;
+            while ((auditEvent = lane.getRingBuffer().poll()) != null) {
+                if (journal != null && journal.append(auditEvent)) {
+                    spilled++;
+                } else {
+                    abandonedEvents.incrementAndGet();
+                    droppedEvents.incrementAndGet();
+                }
+            }
+        }
+        return spilled;
+    }
+
+    /**
+     * Journal an event without queueing it, used once intake has stopped
+     */
+    AuditPublishOutcome spillOnly(AuditEvent auditEvent, AuditEventCategory category) {
+        AuditPublishOutcome outcome = spill(auditEvent);
+        backpressure.record(category, outcome);
+        if (outcome.isDelivered()) {
+            publishedEvents.incrementAndGet();
+        } else {
+            droppedEvents.incrementAndGet();
+        }
+        return outcome;
+    }
+
+    void closeJournal() {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    AuditHandler getHandler() {
+        return handler;
+    }
+
+    String getSinkName() {
+        return sinkName;
+    }
+
+    boolean isBusy() {
+        return busy;
+    }
+
+    private boolean isEmpty() {
+        for (AuditLaneQueue lane : lanes) {
+            if (!lane.getRingBuffer().isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    int getQueueSize() {
+        int size = 0;
+        for (AuditLaneQueue lane : lanes) {
+            size += lane.getRingBuffer().size();
+        }
+        return size;
+    }
+
+    int getCapacity() {
+        int capacity = 0;
+        for (AuditLaneQueue lane : lanes) {
+            capacity += lane.getRingBuffer().capacity();
+        }
+        return capacity;
+    }
+
+    int getRemainingCapacity() {
+        int remaining = 0;
+        for (AuditLaneQueue lane : lanes) {
+            remaining += lane.getRingBuffer().remainingCapacity();
+        }
+        return remaining;
+    }
+
+    AuditLaneQueue getLane(AuditPriorityLane lane) {
+        return lanes[lane.ordinal()];
+    }
+
+    long getPublishedEvents() {
+        return publishedEvents.get();
+    }
+
+    /**
+     * Events the handler accepted, less those it reported it could not write
+     */
+    long getHandledEvents() {
+        return handledEvents.get() - handler.getFailedEvents();
+    }
+
+    long getFailedEvents() {
+        return failedEvents.get() + handler.getFailedEvents();
+    }
+
+    long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+
+    long getAbandonedEvents() {
+        return abandonedEvents.get();
+    }
+
+    AuditOverflowJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Snapshot of this sink's queue and delivery counters
+     * stalledMs is how long the handler has been inside the current batch, 0 when idle
+     */
+    AuditSinkStats getStats() {
+        long stalledNanos = busy ? System.nanoTime() - busySince : 0;
+        return AuditSinkStats.builder()
+                .sink(sinkName)
+                .enabled(handler.isEnabled())
+                .overflowPolicy(sinkPolicy != null ? sinkPolicy.toString() : "category")
+                .queueSize(getQueueSize())
+                .queueCapacity(getCapacity())
+                .publishedEvents(publishedEvents.get())
+                .handledEvents(getHandledEvents())
+                .droppedEvents(droppedEvents.get())
+                .failedBatches(failedBatches.get())
+                .failedEvents(getFailedEvents())
+                .journalDepth(journal != null ? journal.getDepth() : 0)
+                .deadLetteredEvents(journal != null ? journal.getDeadLetteredEvents() : 0)
+                .journalReplayFailures(replayFailures)
+                .journalStuck(isJournalStuck())
+                .stalledMs(TimeUnit.NANOSECONDS.toMillis(Math.max(0, stalledNanos)))
+                .build();
+    }
+}
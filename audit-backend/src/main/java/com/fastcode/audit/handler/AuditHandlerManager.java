@@ -1,54 +1,175 @@
 package com.fastcode.audit.handler;
 
+import com.fastcode.audit.AuditPropertiesConfiguration;
 import com.fastcode.audit.domain.AuditEvent;
+import com.fastcode.audit.performance.AuditBackpressure;
+import com.fastcode.audit.performance.AuditBackpressurePolicy;
+import com.fastcode.audit.performance.AuditEventCategory;
+import com.fastcode.audit.performance.AuditLaneStats;
+import com.fastcode.audit.performance.AuditOverflowJournal;
+import com.fastcode.audit.performance.AuditPriorityLane;
+import com.fastcode.audit.performance.AuditPublishOutcome;
+import com.fastcode.audit.performance.AuditShutdownReport;
+import com.fastcode.audit.performance.AuditSinkStats;
+import com.fastcode.audit.performance.AuditThreadFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Manager for all audit handlers
  * Coordinates console, file, and database handlers based on configuration
- * Similar to audit4j handler manager but optimized for performance
+ * Each handler is fed by its own preallocated ring buffer and batch-draining consumer thread,
+ * backed by a memory-mapped overflow journal for events that do not fit in the ring
  */
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class AuditHandlerManager {
 
+    private static final long PRODUCER_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
     private final List<AuditHandler> auditHandlers;
-    private final Executor asyncExecutor = Executors.newFixedThreadPool(3, r -> {
-        Thread t = new Thread(r, "audit-handler-manager");
-        t.setDaemon(true);
-        return t;
-    });
+    private final AuditPropertiesConfiguration auditConfig;
+    private final ObjectMapper objectMapper;
+    private final AuditBackpressure backpressure;
+    private final List<AuditHandlerConsumer> consumers = new ArrayList<>();
+    private final AtomicBoolean stopped = new AtomicBoolean();
+    // Producers inside handle(); shutdown waits for them before spilling what is left in the rings
+    // Striped so concurrent producers do not bounce one cache line; only shutdown reads the sum
+    private final LongAdder inFlightProducers = new LongAdder();
+
+    private AuditGroupCommitter groupCommitter;
+
+    private volatile boolean accepting = true;
+    private volatile AuditShutdownReport shutdownReport;
+
+    /**
+     * Start one consumer per handler
+     */
+    @PostConstruct
+    public void start() {
+        int capacity = auditConfig.getAuditQueueCapacity();
+        int batchSize = auditConfig.getAuditBatchSize();
+        for (AuditHandler handler : auditHandlers) {
+            String sink = getSinkName(handler);
+            String threadName = "audit-" + handler.getClass().getSimpleName();
+            AuditHandlerConsumer consumer = new AuditHandlerConsumer(handler, sink, resolveSinkPolicy(sink),
+                    createLanes(auditConfig.getAuditSinkQueueCapacity(sink)), batchSize, createJournal(handler),
+                    backpressure, new AuditThreadFactory(threadName));
+            consumers.add(consumer);
+            consumer.start();
+        }
+        groupCommitter = new AuditGroupCommitter(auditHandlers, auditConfig.getAuditSyncMaxGroupSize(),
+                new AuditThreadFactory("audit-group-commit"));
+        groupCommitter.start();
+        log.info("Started audit pipeline with {} handlers, ring capacity {} per lane, batch size {}",
+                consumers.size(), capacity, batchSize);
+    }
+
+    /**
+     * Sink name used in configuration keys, e.g. DatabaseAuditHandler -> database
+     */
+    private static String getSinkName(AuditHandler handler) {
+        String name = handler.getClass().getSimpleName();
+        if (name.endsWith("AuditHandler") && name.length() > "AuditHandler".length()) {
+            name = name.substring(0, name.length() - "AuditHandler".length());
+        }
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    private AuditBackpressurePolicy resolveSinkPolicy(String sink) {
+        String definition = auditConfig.getAuditSinkOverflowPolicy(sink);
+        if (definition == null) {
+            return null;
+        }
+        try {
+            return AuditBackpressurePolicy.parse(definition);
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid overflow policy '{}' for audit sink {}, using category policies: {}", definition, sink, e.getMessage());
+            return null;
+        }
+    }
+
+    private AuditLaneQueue[] createLanes(int capacity) {
+        AuditPriorityLane[] priorityLanes = AuditPriorityLane.values();
+        AuditLaneQueue[] lanes = new AuditLaneQueue[priorityLanes.length];
+        for (AuditPriorityLane lane : priorityLanes) {
+            lanes[lane.ordinal()] = new AuditLaneQueue(lane, capacity,
+                    auditConfig.getAuditLaneWeight(lane.name(), lane.getDefaultWeight()),
+                    auditConfig.getAuditLaneSloMs(lane.name(), lane.getDefaultSloMs()));
+        }
+        return lanes;
+    }
+
+    private AuditOverflowJournal createJournal(AuditHandler handler) {
+        if (!auditConfig.isAuditOverflowJournalEnabled()) {
+            return null;
+        }
+        String fileName = handler.getClass().getSimpleName() + ".journal";
+        long size = auditConfig.getAuditOverflowJournalSizeMb() * 1024L * 1024L;
+        try {
+            return new AuditOverflowJournal(Paths.get(auditConfig.getAuditOverflowJournalPath(), fileName), size, objectMapper);
+        } catch (IllegalArgumentException e) {
+            log.warn("Overflow journal disabled for {}: {}", handler.getClass().getSimpleName(), e.getMessage());
+            return null;
+        }
+    }
 
     /**
      * Handle audit event through all enabled handlers
-     * This method is designed to be fast and non-blocking
+     * Publishes into each handler's ring buffer; only blocks when the sink's or category's
+     * backpressure policy is block and the ring is full
+     * Sinks are isolated: a full or failing sink does not affect delivery to the others
+     * Once shutdown has started, events are written to the overflow journals instead
      */
     public void handle(AuditEvent auditEvent) {
         if (auditEvent == null) {
             return;
         }
 
-        // Process all handlers asynchronously to avoid blocking the main thread
-        CompletableFuture.runAsync(() -> {
-            for (AuditHandler handler : auditHandlers) {
-                try {
-                    if (handler.isEnabled()) {
-                        handler.handle(auditEvent);
-                    }
-                } catch (Exception e) {
-                    log.error("Error in audit handler {}: {}", handler.getClass().getSimpleName(), e.getMessage(), e);
+        AuditEventCategory category = AuditEventCategory.of(auditEvent.getAction());
+        inFlightProducers.increment();
+        try {
+            publish(auditEvent, category);
+        } finally {
+            inFlightProducers.decrement();
+        }
+    }
+
+    private void publish(AuditEvent auditEvent, AuditEventCategory category) {
+        for (AuditHandlerConsumer consumer : consumers) {
+            try {
+                if (!consumer.getHandler().isEnabled()) {
+                    continue;
+                }
+                AuditPublishOutcome outcome = accepting
+                        ? consumer.publish(auditEvent, category)
+                        : consumer.spillOnly(auditEvent, category);
+                if (outcome == AuditPublishOutcome.REJECTED) {
+                    log.warn("Audit queue and overflow journal full for {}, dropping audit event",
+                            consumer.getHandler().getClass().getSimpleName());
                 }
+            } catch (Exception e) {
+                log.error("Error publishing audit event to {}: {}", consumer.getSinkName(), e.getMessage(), e);
             }
-        }, asyncExecutor);
+        }
     }
 
     /**
@@ -71,6 +192,32 @@ public class AuditHandlerManager {
         }
     }
 
+    /**
+     * Handle audit event durably through all enabled handlers
+     * Concurrent callers are coalesced into group commits that share one transaction and one fsync
+     * @return a future completed once the event is durable, or completed exceptionally if any handler failed
+     */
+    public CompletableFuture<Void> handleDurable(AuditEvent auditEvent) {
+        if (auditEvent == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return groupCommitter.submit(auditEvent);
+    }
+
+    /**
+     * Get number of group commits performed for durable events
+     */
+    public long getGroupCommitCount() {
+        return groupCommitter != null ? groupCommitter.getCommits() : 0;
+    }
+
+    /**
+     * Get number of durable events committed
+     */
+    public long getGroupCommittedEventCount() {
+        return groupCommitter != null ? groupCommitter.getCommittedEvents() : 0;
+    }
+
     /**
      * Check if any handlers are enabled
      */
@@ -86,20 +233,247 @@ public class AuditHandlerManager {
     }
 
     /**
-     * Shutdown all handlers
+     * Get number of handler consumers currently processing a batch
+     */
+    public int getBusyConsumerCount() {
+        return (int) consumers.stream().filter(AuditHandlerConsumer::isBusy).count();
+    }
+
+    /**
+     * Get number of handler consumers
+     */
+    public int getConsumerCount() {
+        return consumers.size();
+    }
+
+    /**
+     * Get number of events waiting across all handler queues
+     */
+    public int getQueuedEventCount() {
+        return consumers.stream().mapToInt(AuditHandlerConsumer::getQueueSize).sum();
+    }
+
+    /**
+     * Get remaining capacity across all handler queues
+     */
+    public int getRemainingCapacity() {
+        return consumers.stream().mapToInt(AuditHandlerConsumer::getRemainingCapacity).sum();
+    }
+
+    /**
+     * Check if every handler queue can still accept events
+     */
+    public boolean hasRemainingCapacity() {
+        return consumers.stream().allMatch(consumer -> consumer.getRemainingCapacity() > 0);
+    }
+
+    /**
+     * Get number of events handled across all handlers
+     */
+    public long getHandledEventCount() {
+        return consumers.stream().mapToLong(AuditHandlerConsumer::getHandledEvents).sum();
+    }
+
+    /**
+     * Get number of events handlers failed to write
+     */
+    public long getFailedEventCount() {
+        return consumers.stream().mapToLong(AuditHandlerConsumer::getFailedEvents).sum();
+    }
+
+    /**
+     * Get number of events shed or dropped because a handler queue was full
+     */
+    public long getDroppedEventCount() {
+        return consumers.stream().mapToLong(AuditHandlerConsumer::getDroppedEvents).sum();
+    }
+
+    /**
+     * Get number of events waiting in the overflow journals
+     */
+    public long getJournalDepth() {
+        return journals().mapToLong(AuditOverflowJournal::getDepth).sum();
+    }
+
+    /**
+     * Get number of events spilled to the overflow journals
+     */
+    public long getSpilledEventCount() {
+        return journals().mapToLong(AuditOverflowJournal::getSpilledEvents).sum();
+    }
+
+    /**
+     * Get number of events moved from the overflow journals to their dead-letter files
+     */
+    public long getDeadLetteredEventCount() {
+        return journals().mapToLong(AuditOverflowJournal::getDeadLetteredEvents).sum();
+    }
+
+    /**
+     * Get the sinks whose overflow journal keeps failing to replay its oldest batch
+     */
+    public List<String> getStuckJournalSinks() {
+        return consumers.stream()
+                .filter(AuditHandlerConsumer::isJournalStuck)
+                .map(AuditHandlerConsumer::getSinkName)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Get number of events replayed from the overflow journals per second
+     */
+    public double getJournalReplayRate() {
+        return journals().mapToDouble(AuditOverflowJournal::getReplayRate).sum();
+    }
+
+    /**
+     * Get queue and delivery statistics per sink
+     */
+    public List<AuditSinkStats> getSinkStats() {
+        return consumers.stream().map(AuditHandlerConsumer::getStats).collect(Collectors.toList());
+    }
+
+    /**
+     * Get queueing latency and SLO breaches per priority lane across all handlers
+     */
+    public List<AuditLaneStats> getLaneStats() {
+        List<AuditLaneStats> stats = new ArrayList<>();
+        for (AuditPriorityLane priorityLane : AuditPriorityLane.values()) {
+            List<AuditLaneQueue> lanes = consumers.stream()
+                    .map(consumer -> consumer.getLane(priorityLane))
+                    .collect(Collectors.toList());
+            AuditLaneStats.AuditLaneStatsBuilder builder = AuditLaneStats.builder()
+                    .lane(priorityLane.name())
+                    .queueSize(lanes.stream().mapToInt(lane -> lane.getRingBuffer().size()).sum())
+                    .handledEvents(lanes.stream().mapToLong(AuditLaneQueue::getHandledEvents).sum())
+                    .lastWaitMs(toMillis(lanes.stream().mapToLong(AuditLaneQueue::getLastWaitNanos).max().orElse(0)))
+                    .maxWaitMs(toMillis(lanes.stream().mapToLong(AuditLaneQueue::getMaxWaitNanos).max().orElse(0)))
+                    .sloBreaches(lanes.stream().mapToLong(AuditLaneQueue::getSloBreaches).sum());
+            if (!lanes.isEmpty()) {
+                builder.weight(lanes.get(0).getWeight())
+                        .sloMs(TimeUnit.NANOSECONDS.toMillis(lanes.get(0).getSloNanos()));
+            }
+            stats.add(builder.build());
+        }
+        return stats;
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private Stream<AuditOverflowJournal> journals() {
+        return consumers.stream().map(AuditHandlerConsumer::getJournal).filter(Objects::nonNull);
+    }
+
+    /**
+     * Shutdown the audit pipeline in order within audit.shutdown.timeout.ms:
+     * stop intake, let each consumer drain its lanes, spill whatever is left to the overflow journal,
+     * then flush and close the handlers whose consumers finished
+     * Safe to call more than once; only the first call does any work
      */
     @PreDestroy
     public void shutdown() {
+        if (!stopped.compareAndSet(false, true)) {
+            return;
+        }
         log.info("Shutting down audit handler manager with {} handlers", auditHandlers.size());
-        
-        for (AuditHandler handler : auditHandlers) {
-            try {
-                handler.shutdown();
-            } catch (Exception e) {
-                log.error("Error shutting down handler {}: {}", handler.getClass().getSimpleName(), e.getMessage(), e);
+
+        long started = System.nanoTime();
+        long deadline = started + TimeUnit.MILLISECONDS.toNanos(auditConfig.getAuditShutdownTimeoutMs());
+        long handledBefore = getHandledEventCount();
+        long failedBefore = getFailedEventCount();
+        long abandonedBefore = consumers.stream().mapToLong(AuditHandlerConsumer::getAbandonedEvents).sum();
+
+        // 1. Stop intake, later events go straight to the journal; commit durable events already submitted
+        accepting = false;
+        if (groupCommitter != null) {
+            groupCommitter.stop(deadline);
+        }
+
+        // 2. Drain every sink in parallel
+        for (AuditHandlerConsumer consumer : consumers) {
+            consumer.signalStop(deadline);
+        }
+
+        // A producer that saw intake open may still be publishing into a ring; wait for it so the
+        // spill below picks up its event even if the consumer has already stopped
+        awaitProducers(deadline);
+
+        List<String> unfinishedSinks = new ArrayList<>();
+        long spilled = 0;
+        for (AuditHandlerConsumer consumer : consumers) {
+            boolean finished = consumer.awaitStop(deadline);
+
+            // 3. Whatever the consumer could not hand over in time goes to the journal
+            spilled += consumer.spillRemaining();
+
+            // 4. Flush buffered batches and close files, unless the handler is stuck
+            if (finished) {
+                shutdownHandler(consumer.getHandler());
+            } else {
+                unfinishedSinks.add(consumer.getSinkName());
+                log.warn("Audit sink {} did not finish its current batch before the shutdown deadline, skipping flush",
+                        consumer.getSinkName());
             }
+            consumer.closeJournal();
         }
-        
-        log.info("Audit handler manager shutdown completed");
+
+        shutdownReport = AuditShutdownReport.builder()
+                .flushedEvents(getHandledEventCount() - handledBefore)
+                .failedEvents(getFailedEventCount() - failedBefore)
+                .spilledEvents(spilled)
+                .abandonedEvents(consumers.stream().mapToLong(AuditHandlerConsumer::getAbandonedEvents).sum() - abandonedBefore)
+                .journalDepth(getJournalDepth())
+                .unfinishedSinks(unfinishedSinks)
+                .elapsedMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started))
+                .deadlineExceeded(System.nanoTime() > deadline)
+                .build();
+
+        log.info("Audit handler manager shutdown completed in {} ms: {} events flushed, {} failed, {} spilled to the overflow journal, "
+                        + "{} abandoned, {} pending in the journal",
+                shutdownReport.getElapsedMs(), shutdownReport.getFlushedEvents(), shutdownReport.getFailedEvents(),
+                shutdownReport.getSpilledEvents(), shutdownReport.getAbandonedEvents(), shutdownReport.getJournalDepth());
+    }
+
+    /**
+     * Wait until no producer is publishing into the rings, or the deadline passes
+     * The sum is not an atomic snapshot, so a zero is only trusted once it is read twice a park apart
+     */
+    private void awaitProducers(long deadlineNanos) {
+        boolean idle = false;
+        while (true) {
+            long inFlight = inFlightProducers.sum();
+            if (inFlight <= 0) {
+                if (idle) {
+                    return;
+                }
+                idle = true;
+            } else {
+                idle = false;
+            }
+            if (System.nanoTime() >= deadlineNanos) {
+                if (inFlight > 0) {
+                    log.warn("{} audit producers still publishing at the shutdown deadline", inFlight);
+                }
+                return;
+            }
+            LockSupport.parkNanos(PRODUCER_WAIT_NANOS);
+        }
+    }
+
+    private void shutdownHandler(AuditHandler handler) {
+        try {
+            handler.shutdown();
+        } catch (Exception e) {
+            log.error("Error shutting down handler {}: {}", handler.getClass().getSimpleName(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Get the result of the last shutdown, or null if the pipeline is running
+     */
+    public AuditShutdownReport getShutdownReport() {
+        return shutdownReport;
     }
 }
@@ -0,0 +1,106 @@
+package com.fastcode.audit.handler;
+
+import com.fastcode.audit.domain.AuditEvent;
+import com.fastcode.audit.performance.AuditPriorityLane;
+import com.fastcode.audit.performance.AuditRingBuffer;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One priority lane of a handler consumer: a ring buffer plus its drain weight and latency SLO
+ * Wait times are measured from publish to drain; only the consumer thread drains, so the
+ * latency fields are written by a single thread
+ */
+class AuditLaneQueue {
+
+    private final AuditPriorityLane lane;
+    private final AuditRingBuffer<AuditEvent> ringBuffer;
+    private final int weight;
+    private final long sloNanos;
+
+    private final AtomicLong handledEvents = new AtomicLong();
+    private final AtomicLong sloBreaches = new AtomicLong();
+
+    private volatile long lastWaitNanos;
+    private volatile long maxWaitNanos;
+    private long batchWaitNanos;
+
+    AuditLaneQueue(AuditPriorityLane lane, int capacity, int weight, long sloMs) {
+        this.lane = lane;
+        this.ringBuffer = new AuditRingBuffer<>(capacity);
+        this.weight = Math.max(1, weight);
+        this.sloNanos = TimeUnit.MILLISECONDS.toNanos(sloMs);
+    }
+
+    /**
+     * Move up to maxEvents into the batch, recording how long they waited
+     * @return number of events moved
+     */
+    int drainTo(List<AuditEvent> batch, int maxEvents) {
+        if (maxEvents <= 0) {
+            return 0;
+        }
+        batchWaitNanos = 0;
+        int drained = ringBuffer.drain(batch::add, maxEvents, this::recordWait);
+        if (drained > 0) {
+            // The longest wait in the slice is the lane's head-of-line latency
+            lastWaitNanos = batchWaitNanos;
+            if (batchWaitNanos > maxWaitNanos) {
+                maxWaitNanos = batchWaitNanos;
+            }
+            handledEvents.addAndGet(drained);
+        }
+        return drained;
+    }
+
+    private void recordWait(long waitNanos) {
+        if (waitNanos > batchWaitNanos) {
+            batchWaitNanos = waitNanos;
+        }
+        if (waitNanos > sloNanos) {
+            sloBreaches.incrementAndGet();
+        }
+    }
+
+    /**
+     * Check if the most recently drained events waited longer than the lane's SLO
+     * A breaching lane may take all room left in the next batch after higher priority lanes
+     */
+    boolean isBreachingSlo() {
+        return lastWaitNanos > sloNanos && !ringBuffer.isEmpty();
+    }
+
+    AuditPriorityLane getLane() {
+        return lane;
+    }
+
+    AuditRingBuffer<AuditEvent> getRingBuffer() {
+        return ringBuffer;
+    }
+
+    int getWeight() {
+        return weight;
+    }
+
+    long getSloNanos() {
+        return sloNanos;
+    }
+
+    long getHandledEvents() {
+        return handledEvents.get();
+    }
+
+    long getSloBreaches() {
+        return sloBreaches.get();
+    }
+
+    long getLastWaitNanos() {
+        return lastWaitNanos;
+    }
+
+    long getMaxWaitNanos() {
+        return maxWaitNanos;
+    }
+}
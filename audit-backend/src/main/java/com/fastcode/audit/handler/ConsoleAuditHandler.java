@@ -7,10 +7,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
 
 /**
  * Console audit handler for logging audit events to console
@@ -22,11 +20,6 @@ import java.util.concurrent.Executors;
 public class ConsoleAuditHandler implements AuditHandler {
 
     private final AuditPropertiesConfiguration auditConfig;
-    private final Executor asyncExecutor = Executors.newSingleThreadExecutor(r -> {
-        Thread t = new Thread(r, "audit-console-handler");
-        t.setDaemon(true);
-        return t;
-    });
 
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
 
@@ -36,15 +29,32 @@ public class ConsoleAuditHandler implements AuditHandler {
             return;
         }
 
-        // Process asynchronously to avoid blocking the main thread
-        CompletableFuture.runAsync(() -> {
+        try {
+            String formattedMessage = formatAuditEvent(auditEvent);
+            System.out.println(formattedMessage);
+        } catch (Exception e) {
+            log.error("Error in console audit handler: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void handleBatch(List<AuditEvent> auditEvents) {
+        if (!auditConfig.isAuditConsoleEnabled()) {
+            return;
+        }
+
+        // Write the whole batch with a single call to keep stdout lock contention low
+        StringBuilder output = new StringBuilder();
+        for (AuditEvent auditEvent : auditEvents) {
             try {
-                String formattedMessage = formatAuditEvent(auditEvent);
-                System.out.println(formattedMessage);
+                output.append(formatAuditEvent(auditEvent)).append(System.lineSeparator());
             } catch (Exception e) {
                 log.error("Error in console audit handler: {}", e.getMessage(), e);
             }
-        }, asyncExecutor);
+        }
+        if (output.length() > 0) {
+            System.out.print(output);
+        }
     }
 
     @Override
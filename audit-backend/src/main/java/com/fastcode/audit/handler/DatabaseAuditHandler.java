@@ -2,33 +2,49 @@ package com.fastcode.audit.handler;
 
 import com.fastcode.audit.AuditPropertiesConfiguration;
 import com.fastcode.audit.domain.AuditEvent;
-import com.fastcode.audit.domain.IAuditRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
+import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Database audit handler for persisting audit events to database
  * Similar to audit4j database handler but optimized for performance
+ * Events are buffered and written with batched JDBC inserts once the buffer reaches
+ * audit.database.batch.size events or the oldest event has waited audit.database.linger.ms
+ * With audit.database.write.mode=copy the buffer is bulk-loaded with PostgreSQL COPY instead
+ * Concurrent writes from the consumer, group commits and callers writing through are bounded by
+ * audit.database.max.concurrent.writes
+ * Buffered writes do not throw back to the pipeline, so the events they fail to write are counted in getFailedEvents
  */
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class DatabaseAuditHandler implements AuditHandler {
 
-    @Qualifier("auditRepository")
-    private final IAuditRepository auditRepository;
+    private final AuditEventJdbcWriter jdbcWriter;
     private final AuditPropertiesConfiguration auditConfig;
-    private final Executor asyncExecutor = Executors.newSingleThreadExecutor(r -> {
-        Thread t = new Thread(r, "audit-database-handler");
-        t.setDaemon(true);
-        return t;
-    });
+
+    private final ReentrantLock bufferLock = new ReentrantLock();
+    private final List<AuditEvent> buffer = new ArrayList<>();
+    private long oldestBufferedAt;
+    private final AtomicLong failedEvents = new AtomicLong();
+
+    private Semaphore writePermits;
+    private int maxConcurrentWrites;
+
+    @PostConstruct
+    public void init() {
+        maxConcurrentWrites = Math.max(1, auditConfig.getAuditDatabaseMaxConcurrentWrites());
+        writePermits = new Semaphore(maxConcurrentWrites);
+    }
 
     @Override
     public void handle(AuditEvent auditEvent) {
@@ -36,15 +52,96 @@ public class DatabaseAuditHandler implements AuditHandler {
             return;
         }
 
-        // Process asynchronously to avoid blocking the main thread
-        CompletableFuture.runAsync(() -> {
-            try {
-                auditRepository.save(auditEvent);
+        writePermits.acquireUninterruptibly();
+        try {
+            if (jdbcWriter.insert(auditEvent)) {
                 log.debug("Database audit event saved: {} by {}", auditEvent.getAction(), auditEvent.getActor());
-            } catch (Exception e) {
-                log.error("Error saving audit event to database: {}", e.getMessage(), e);
             }
-        }, asyncExecutor);
+        } finally {
+            writePermits.release();
+        }
+    }
+
+    @Override
+    public void handleBatch(List<AuditEvent> auditEvents) {
+        if (!auditConfig.isAuditDatabaseEnabled()) {
+            return;
+        }
+
+        bufferLock.lock();
+        try {
+            if (buffer.isEmpty()) {
+                oldestBufferedAt = System.nanoTime();
+            }
+            buffer.addAll(auditEvents);
+
+            if (buffer.size() >= auditConfig.getAuditDatabaseBatchSize() || isLingerExpired()) {
+                flushBuffer();
+            }
+        } finally {
+            bufferLock.unlock();
+        }
+    }
+
+    /**
+     * Insert the events in one transaction on the calling thread
+     * Rows already in the table count as committed, so a batch can be retried after a partial failure
+     * @throws AuditEventsRejectedException if every other event was committed but the database refused some for their content
+     * @throws IllegalStateException if some events were not committed and may succeed on a retry
+     */
+    @Override
+    public void handleBatchDurable(List<AuditEvent> auditEvents) {
+        if (!auditConfig.isAuditDatabaseEnabled()) {
+            return;
+        }
+
+        writePermits.acquireUninterruptibly();
+        try {
+            List<AuditEvent> rejected = new ArrayList<>();
+            int written = writeRows(auditEvents, rejected);
+            if (written + rejected.size() < auditEvents.size()) {
+                throw new IllegalStateException("Only " + written + " of " + auditEvents.size() + " audit events were committed");
+            }
+            if (!rejected.isEmpty()) {
+                throw new AuditEventsRejectedException(rejected, auditEvents.size());
+            }
+        } finally {
+            writePermits.release();
+        }
+    }
+
+    /**
+     * Write the buffered events on the calling thread
+     */
+    @Override
+    public void flush() {
+        bufferLock.lock();
+        try {
+            if (!buffer.isEmpty()) {
+                List<AuditEvent> events = takeBuffer();
+                writePermits.acquireUninterruptibly();
+                write(events);
+            }
+        } finally {
+            bufferLock.unlock();
+        }
+    }
+
+    @Override
+    public void onIdle() {
+        bufferLock.lock();
+        try {
+            if (!buffer.isEmpty() && isLingerExpired()) {
+                flushBuffer();
+            }
+        } finally {
+            bufferLock.unlock();
+        }
+    }
+
+    @Override
+    public long getFailedEvents() {
+        return failedEvents.get();
     }
 
     @Override
@@ -52,9 +149,80 @@ public class DatabaseAuditHandler implements AuditHandler {
         return auditConfig.isAuditDatabaseEnabled();
     }
 
+    private boolean isLingerExpired() {
+        long lingerNanos = TimeUnit.MILLISECONDS.toNanos(auditConfig.getAuditDatabaseLingerMs());
+        return System.nanoTime() - oldestBufferedAt >= lingerNanos;
+    }
+
+    /**
+     * Write all buffered events on the calling thread
+     * Blocks while the maximum number of writes are in flight, which pushes back on the consumer
+     */
+    private void flushBuffer() {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        List<AuditEvent> events = takeBuffer();
+
+        writePermits.acquireUninterruptibly();
+        write(events);
+    }
+
+    private List<AuditEvent> takeBuffer() {
+        List<AuditEvent> events = new ArrayList<>(buffer);
+        buffer.clear();
+        return events;
+    }
+
+    /**
+     * Write the events in one transaction and release the write permit
+     */
+    private void write(List<AuditEvent> events) {
+        try {
+            int written = writeRows(events, null);
+            if (written < events.size()) {
+                failedEvents.addAndGet(events.size() - written);
+                log.warn("Database audit batch saved only {} of {} events", written, events.size());
+            } else {
+                log.debug("Database audit batch saved: {} events", written);
+            }
+        } catch (RuntimeException e) {
+            failedEvents.addAndGet(events.size());
+            log.error("Error saving database audit batch of {} events: {}", events.size(), e.getMessage(), e);
+        } finally {
+            writePermits.release();
+        }
+    }
+
+    private int writeRows(List<AuditEvent> events, List<AuditEvent> rejected) {
+        return auditConfig.isAuditDatabaseCopyMode() ? jdbcWriter.copy(events, rejected) : jdbcWriter.insert(events, rejected);
+    }
+
     @Override
     public void shutdown() {
-        // No specific shutdown needed for database handler
+        bufferLock.lock();
+        try {
+            flushBuffer();
+        } finally {
+            bufferLock.unlock();
+        }
+        awaitWrites();
         log.debug("Database audit handler shutdown");
     }
+
+    /**
+     * Wait for in-flight writes by taking every permit
+     */
+    private void awaitWrites() {
+        try {
+            long timeoutMs = auditConfig.getAuditShutdownTimeoutMs();
+            if (writePermits.tryAcquire(maxConcurrentWrites, timeoutMs, TimeUnit.MILLISECONDS)) {
+                writePermits.release(maxConcurrentWrites);
+            } else {
+                log.warn("Database audit writes still in flight after {} ms", timeoutMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 }
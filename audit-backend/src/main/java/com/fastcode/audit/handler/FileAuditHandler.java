@@ -8,17 +8,19 @@ import org.springframework.stereotype.Component;
 
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
@@ -31,11 +33,6 @@ import java.util.concurrent.locks.ReentrantLock;
 public class FileAuditHandler implements AuditHandler {
 
     private final AuditPropertiesConfiguration auditConfig;
-    private final Executor asyncExecutor = Executors.newSingleThreadExecutor(r -> {
-        Thread t = new Thread(r, "audit-file-handler");
-        t.setDaemon(true);
-        return t;
-    });
 
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
     private static final DateTimeFormatter FILE_DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
@@ -43,6 +40,7 @@ public class FileAuditHandler implements AuditHandler {
     private final ReentrantLock fileLock = new ReentrantLock();
     private volatile String currentFileName;
     private volatile BufferedWriter currentWriter;
+    private volatile FileChannel currentChannel;
 
     @Override
     public void handle(AuditEvent auditEvent) {
@@ -50,14 +48,59 @@ public class FileAuditHandler implements AuditHandler {
             return;
         }
 
-        // Process asynchronously to avoid blocking the main thread
-        CompletableFuture.runAsync(() -> {
-            try {
-                writeToFile(auditEvent);
-            } catch (Exception e) {
-                log.error("Error in file audit handler: {}", e.getMessage(), e);
-            }
-        }, asyncExecutor);
+        try {
+            writeToFile(Collections.singletonList(auditEvent));
+        } catch (Exception e) {
+            log.error("Error in file audit handler: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void handleBatch(List<AuditEvent> auditEvents) {
+        if (!auditConfig.isAuditFileEnabled()) {
+            return;
+        }
+
+        try {
+            writeToFile(auditEvents);
+        } catch (Exception e) {
+            log.error("Error in file audit handler: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Write the events and fsync the file before returning
+     */
+    @Override
+    public void handleBatchDurable(List<AuditEvent> auditEvents) {
+        if (!auditConfig.isAuditFileEnabled()) {
+            return;
+        }
+
+        fileLock.lock();
+        try {
+            write(auditEvents);
+            force();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error writing durable audit events to file", e);
+        } finally {
+            fileLock.unlock();
+        }
+    }
+
+    /**
+     * Force written events to disk
+     */
+    @Override
+    public void flush() {
+        fileLock.lock();
+        try {
+            force();
+        } catch (IOException e) {
+            log.error("Error syncing audit file: {}", e.getMessage(), e);
+        } finally {
+            fileLock.unlock();
+        }
     }
 
     @Override
@@ -66,20 +109,12 @@ public class FileAuditHandler implements AuditHandler {
     }
 
     /**
-     * Write audit event to file
+     * Write audit events to file, flushing once per batch
      */
-    private void writeToFile(AuditEvent auditEvent) {
+    private void writeToFile(List<AuditEvent> auditEvents) {
         fileLock.lock();
         try {
-            String fileName = getCurrentFileName();
-            BufferedWriter writer = getCurrentWriter(fileName);
-            
-            if (writer != null) {
-                String formattedMessage = formatAuditEvent(auditEvent);
-                writer.write(formattedMessage);
-                writer.newLine();
-                writer.flush();
-            }
+            write(auditEvents);
         } catch (IOException e) {
             log.error("Error writing to audit file: {}", e.getMessage(), e);
         } finally {
@@ -87,13 +122,36 @@ public class FileAuditHandler implements AuditHandler {
         }
     }
 
+    private void write(List<AuditEvent> auditEvents) throws IOException {
+        String fileName = getCurrentFileName();
+        BufferedWriter writer = getCurrentWriter(fileName);
+
+        if (writer == null) {
+            throw new IOException("Audit file " + fileName + " is not writable");
+        }
+        for (AuditEvent auditEvent : auditEvents) {
+            String formattedMessage = formatAuditEvent(auditEvent);
+            writer.write(formattedMessage);
+            writer.newLine();
+        }
+        writer.flush();
+    }
+
+    private void force() throws IOException {
+        if (currentWriter != null) {
+            currentWriter.flush();
+            currentChannel.force(false);
+        }
+    }
+
     /**
-     * Get current file name based on date
+     * Get current file based on path, prefix and date
+     * The path and prefix can be reloaded at runtime, so they are part of the name the writer is kept for
      */
     private String getCurrentFileName() {
         String today = LocalDate.now().format(FILE_DATE_FORMATTER);
         String fileName = auditConfig.getAuditFilePrefix() + today + ".log";
-        return fileName;
+        return Paths.get(auditConfig.getAuditFilePath(), fileName).toString();
     }
 
     /**
@@ -113,17 +171,17 @@ public class FileAuditHandler implements AuditHandler {
      */
     private BufferedWriter createNewWriter(String fileName) {
         try {
-            String filePath = auditConfig.getAuditFilePath();
-            Path directory = Paths.get(filePath);
+            File file = new File(fileName);
+            Path directory = file.getAbsoluteFile().toPath().getParent();
             
             // Create directory if it doesn't exist
             if (!Files.exists(directory)) {
                 Files.createDirectories(directory);
             }
             
-            File file = new File(directory.toFile(), fileName);
-            FileWriter fileWriter = new FileWriter(file, true); // Append mode
-            return new BufferedWriter(fileWriter);
+            FileOutputStream outputStream = new FileOutputStream(file, true); // Append mode
+            currentChannel = outputStream.getChannel();
+            return new BufferedWriter(new OutputStreamWriter(outputStream));
         } catch (IOException e) {
             log.error("Failed to create audit file writer: {}", e.getMessage(), e);
             return null;
@@ -141,6 +199,7 @@ public class FileAuditHandler implements AuditHandler {
                 log.error("Error closing audit file writer: {}", e.getMessage(), e);
             }
             currentWriter = null;
+            currentChannel = null;
         }
     }
 
@@ -0,0 +1,104 @@
+package com.fastcode.audit.performance;
+
+import com.fastcode.audit.AuditPropertiesConfiguration;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-category backpressure policies and decision counters
+ * Policies are configured with audit.backpressure.&lt;category&gt; (e.g. audit.backpressure.api=sample:0.01)
+ * SECURITY and COMPLIANCE events default to block-sync so a full queue slows the caller down instead of
+ * losing the event when the overflow journal is full or disabled; other categories default to spill
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AuditBackpressure {
+
+    private static final String DEFAULT_POLICY = "spill";
+    private static final String NEVER_SHED_DEFAULT_POLICY = "block-sync:200";
+
+    private final AuditPropertiesConfiguration auditConfig;
+
+    private final Map<AuditEventCategory, AuditBackpressurePolicy> policies = new EnumMap<>(AuditEventCategory.class);
+    private final Map<AuditEventCategory, LongAdder[]> counters = new EnumMap<>(AuditEventCategory.class);
+
+    @PostConstruct
+    public void init() {
+        for (AuditEventCategory category : AuditEventCategory.values()) {
+            policies.put(category, resolvePolicy(category));
+            LongAdder[] outcomeCounters = new LongAdder[AuditPublishOutcome.values().length];
+            for (int i = 0; i < outcomeCounters.length; i++) {
+                outcomeCounters[i] = new LongAdder();
+            }
+            counters.put(category, outcomeCounters);
+        }
+        log.info("Audit backpressure policies: {}", policies);
+    }
+
+    private AuditBackpressurePolicy resolvePolicy(AuditEventCategory category) {
+        String defaultPolicy = defaultPolicy(category);
+        String definition = auditConfig.getAuditBackpressurePolicy(category.name(), defaultPolicy);
+        try {
+            return AuditBackpressurePolicy.parse(definition);
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid backpressure policy '{}' for {}, using {}: {}", definition, category, defaultPolicy, e.getMessage());
+            return AuditBackpressurePolicy.parse(defaultPolicy);
+        }
+    }
+
+    private static String defaultPolicy(AuditEventCategory category) {
+        switch (category) {
+            case SECURITY:
+            case COMPLIANCE:
+                return NEVER_SHED_DEFAULT_POLICY;
+            default:
+                return DEFAULT_POLICY;
+        }
+    }
+
+    /**
+     * Get the policy applied to events of the given category
+     */
+    public AuditBackpressurePolicy getPolicy(AuditEventCategory category) {
+        return policies.get(category);
+    }
+
+    /**
+     * Record the outcome of publishing one event to one handler
+     */
+    public void record(AuditEventCategory category, AuditPublishOutcome outcome) {
+        counters.get(category)[outcome.ordinal()].increment();
+    }
+
+    /**
+     * Snapshot of decision counts per category
+     */
+    public List<AuditCategoryStats> getCategoryStats() {
+        List<AuditCategoryStats> stats = new ArrayList<>();
+        for (AuditEventCategory category : AuditEventCategory.values()) {
+            LongAdder[] outcomeCounters = counters.get(category);
+            stats.add(AuditCategoryStats.builder()
+                    .category(category.name())
+                    .policy(policies.get(category).toString())
+                    .accepted(outcomeCounters[AuditPublishOutcome.ACCEPTED.ordinal()].sum())
+                    .blocked(outcomeCounters[AuditPublishOutcome.BLOCKED.ordinal()].sum())
+                    .spilled(outcomeCounters[AuditPublishOutcome.SPILLED.ordinal()].sum())
+                    .writtenSync(outcomeCounters[AuditPublishOutcome.WRITTEN_SYNC.ordinal()].sum())
+                    .droppedNewest(outcomeCounters[AuditPublishOutcome.DROPPED_NEWEST.ordinal()].sum())
+                    .droppedOldest(outcomeCounters[AuditPublishOutcome.DROPPED_OLDEST.ordinal()].sum())
+                    .sampledOut(outcomeCounters[AuditPublishOutcome.SAMPLED_OUT.ordinal()].sum())
+                    .rejected(outcomeCounters[AuditPublishOutcome.REJECTED.ordinal()].sum())
+                    .build());
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,83 @@
+package com.fastcode.audit.performance;
+
+import lombok.Getter;
+
+import java.util.Locale;
+
+/**
+ * What to do with an audit event when its handler queue is full
+ *
+ * Parsed from strings such as "block:100" (wait up to 100 ms, then spill), "block-sync:200" (wait up to 200 ms,
+ * then write the event through the handler on the caller's thread), "drop-newest", "drop-oldest",
+ * "sample:0.01" (keep 1% of events, spilling the kept ones) or "spill"
+ */
+@Getter
+public final class AuditBackpressurePolicy {
+
+    public enum Type {
+        BLOCK,
+        BLOCK_SYNC,
+        DROP_NEWEST,
+        DROP_OLDEST,
+        SAMPLE,
+        SPILL
+    }
+
+    public static final AuditBackpressurePolicy SPILL = new AuditBackpressurePolicy(Type.SPILL, 0, 1.0);
+
+    private static final long DEFAULT_BLOCK_TIMEOUT_MS = 50;
+
+    private final Type type;
+    private final long blockTimeoutMs;
+    private final double sampleRate;
+
+    private AuditBackpressurePolicy(Type type, long blockTimeoutMs, double sampleRate) {
+        this.type = type;
+        this.blockTimeoutMs = blockTimeoutMs;
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * Parse a policy definition
+     * @throws IllegalArgumentException if the definition is not valid
+     */
+    public static AuditBackpressurePolicy parse(String definition) {
+        String[] parts = definition.trim().split(":", 2);
+        String name = parts[0].trim().toUpperCase(Locale.ROOT).replace('-', '_');
+        Type type = Type.valueOf(name);
+        switch (type) {
+            case BLOCK:
+            case BLOCK_SYNC:
+                long timeout = parts.length > 1 ? Long.parseLong(parts[1].trim()) : DEFAULT_BLOCK_TIMEOUT_MS;
+                if (timeout < 0) {
+                    throw new IllegalArgumentException("Block timeout must not be negative: " + definition);
+                }
+                return new AuditBackpressurePolicy(type, timeout, 1.0);
+            case SAMPLE:
+                if (parts.length < 2) {
+                    throw new IllegalArgumentException("Sample policy requires a rate, e.g. sample:0.1");
+                }
+                double rate = Double.parseDouble(parts[1].trim());
+                if (rate < 0.0 || rate > 1.0) {
+                    throw new IllegalArgumentException("Sample rate must be between 0 and 1: " + definition);
+                }
+                return new AuditBackpressurePolicy(type, 0, rate);
+            default:
+                return new AuditBackpressurePolicy(type, 0, 1.0);
+        }
+    }
+
+    @Override
+    public String toString() {
+        switch (type) {
+            case BLOCK:
+                return "block:" + blockTimeoutMs;
+            case BLOCK_SYNC:
+                return "block-sync:" + blockTimeoutMs;
+            case SAMPLE:
+                return "sample:" + sampleRate;
+            default:
+                return type.name().toLowerCase(Locale.ROOT).replace('_', '-');
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.fastcode.audit.performance;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Backpressure decisions taken for one audit event category
+ */
+@Data
+@Builder
+public class AuditCategoryStats {
+
+    private String category;
+    private String policy;
+    private long accepted;
+    private long blocked;
+    private long spilled;
+    private long writtenSync;
+    private long droppedNewest;
+    private long droppedOldest;
+    private long sampledOut;
+    private long rejected;
+}
@@ -0,0 +1,262 @@
+package com.fastcode.audit.performance;
+
+import com.fastcode.audit.AuditPropertiesConfiguration;
+import com.fastcode.audit.application.AuditIdGenerator;
+import com.fastcode.audit.domain.AuditEvent;
+import com.fastcode.audit.handler.AuditHandlerManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Collapses identical audit events repeated within a tumbling window
+ * The first occurrence of an event passes straight through; later occurrences with the same actor, action,
+ * origin, method, path, status, entity, operation and exception are counted instead of logged, and when
+ * the window closes one summary event carries the number of suppressed repeats and the first and last
+ * time the event was seen
+ * State lives in a fixed-size open-addressing table cleared every window; when it is full, new
+ * events pass through unchanged
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AuditDeduplicator {
+
+    private final AuditPropertiesConfiguration auditConfig;
+    private final AuditHandlerManager handlerManager;
+    private final AuditIdGenerator idGenerator;
+
+    private final ReentrantLock tableLock = new ReentrantLock();
+    private long[] hashes;
+    private AuditEvent[] firstEvents;
+    private int[] repeats;
+    private long[] firstSeen;
+    private long[] lastSeen;
+    private int mask;
+    private int size;
+    private int maxEntries;
+
+    private Set<AuditEventCategory> categories;
+    private ScheduledExecutorService flusher;
+
+    private final AtomicLong suppressedEvents = new AtomicLong();
+    private final AtomicLong summaryEvents = new AtomicLong();
+    private final AtomicLong untrackedEvents = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        if (!auditConfig.isAuditDedupEnabled()) {
+            return;
+        }
+        maxEntries = Math.max(1, auditConfig.getAuditDedupMaxEntries());
+        int capacity = Integer.highestOneBit(maxEntries * 2 - 1) << 1;
+        hashes = new long[capacity];
+        firstEvents = new AuditEvent[capacity];
+        repeats = new int[capacity];
+        firstSeen = new long[capacity];
+        lastSeen = new long[capacity];
+        mask = capacity - 1;
+        categories = parseCategories(auditConfig.getAuditDedupCategories());
+
+        long windowMs = Math.max(1, auditConfig.getAuditDedupWindowMs());
+        flusher = Executors.newSingleThreadScheduledExecutor(new AuditThreadFactory("audit-dedup"));
+        flusher.scheduleAtFixedRate(this::flushSafely, windowMs, windowMs, TimeUnit.MILLISECONDS);
+        log.info("Audit deduplication enabled for {} with a {} ms window and {} entries", categories, windowMs, maxEntries);
+    }
+
+    private static Set<AuditEventCategory> parseCategories(String definition) {
+        Set<AuditEventCategory> parsed = EnumSet.noneOf(AuditEventCategory.class);
+        for (String name : definition.split("\\s*,\\s*")) {
+            if (name.isEmpty()) {
+                continue;
+            }
+            try {
+                parsed.add(AuditEventCategory.valueOf(name.trim().toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                log.warn("Unknown audit category '{}' in deduplication categories", name);
+            }
+        }
+        return parsed;
+    }
+
+    public boolean isEnabled() {
+        return flusher != null;
+    }
+
+    /**
+     * Record an event
+     * @return true if the event repeats one already seen in this window and must not be logged
+     */
+    public boolean suppress(AuditEvent auditEvent) {
+        if (!categories.contains(AuditEventCategory.of(auditEvent.getAction()))) {
+            return false;
+        }
+
+        long hash = hash(auditEvent);
+        long now = System.currentTimeMillis();
+        tableLock.lock();
+        try {
+            int index = (int) hash & mask;
+            while (firstEvents[index] != null) {
+                if (hashes[index] == hash && isRepeat(firstEvents[index], auditEvent)) {
+                    repeats[index]++;
+                    lastSeen[index] = now;
+                    suppressedEvents.incrementAndGet();
+                    return true;
+                }
+                index = (index + 1) & mask;
+            }
+            if (size >= maxEntries) {
+                untrackedEvents.incrementAndGet();
+                return false;
+            }
+            hashes[index] = hash;
+            firstEvents[index] = auditEvent;
+            repeats[index] = 0;
+            firstSeen[index] = now;
+            lastSeen[index] = now;
+            size++;
+            return false;
+        } finally {
+            tableLock.unlock();
+        }
+    }
+
+    /**
+     * Close the current window: log one summary event per repeated event and clear the table
+     */
+    public void flush() {
+        if (!isEnabled()) {
+            return;
+        }
+
+        List<AuditEvent> summaries = new ArrayList<>();
+        tableLock.lock();
+        try {
+            for (int i = 0; i < firstEvents.length; i++) {
+                if (firstEvents[i] == null) {
+                    continue;
+                }
+                if (repeats[i] > 0) {
+                    summaries.add(summarize(firstEvents[i], repeats[i], firstSeen[i], lastSeen[i]));
+                }
+                firstEvents[i] = null;
+            }
+            size = 0;
+        } finally {
+            tableLock.unlock();
+        }
+
+        for (AuditEvent summary : summaries) {
+            handlerManager.handle(summary);
+        }
+        summaryEvents.addAndGet(summaries.size());
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("Error flushing audit deduplication window: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Copy of the first occurrence carrying the repeat count and the first and last time it was seen
+     */
+    private AuditEvent summarize(AuditEvent first, int repeatCount, long firstSeenAt, long lastSeenAt) {
+        AuditEvent summary = new AuditEvent();
+        summary.setIdentifier(idGenerator.nextId());
+        summary.setTimestamp(new Timestamp(lastSeenAt));
+        summary.setActor(first.getActor());
+        summary.setOrigin(first.getOrigin());
+        summary.setAction(first.getAction());
+        summary.setHttpMethod(first.getHttpMethod());
+        summary.setPath(first.getPath());
+        summary.setEntityName(first.getEntityName());
+        summary.setOperation(first.getOperation());
+        summary.setResponseStatus(first.getResponseStatus());
+        summary.setExceptionType(first.getExceptionType());
+        summary.setSessionIdBlindIndex(first.getSessionIdBlindIndex());
+        summary.setUserIdBlindIndex(first.getUserIdBlindIndex());
+        summary.setUsernameBlindIndex(first.getUsernameBlindIndex());
+
+        Map<String, Object> elements = first.getElements() != null ? new HashMap<>(first.getElements()) : new HashMap<>();
+        elements.put("occurrenceCount", repeatCount);
+        elements.put("firstSeen", Instant.ofEpochMilli(firstSeenAt).toString());
+        elements.put("lastSeen", Instant.ofEpochMilli(lastSeenAt).toString());
+        elements.put("deduplicatedFrom", first.getIdentifier());
+        summary.setElements(elements);
+        return summary;
+    }
+
+    private static boolean isRepeat(AuditEvent first, AuditEvent candidate) {
+        return Objects.equals(first.getAction(), candidate.getAction())
+                && Objects.equals(first.getActor(), candidate.getActor())
+                && Objects.equals(first.getOrigin(), candidate.getOrigin())
+                && Objects.equals(first.getHttpMethod(), candidate.getHttpMethod())
+                && Objects.equals(first.getPath(), candidate.getPath())
+                && Objects.equals(first.getResponseStatus(), candidate.getResponseStatus())
+                && Objects.equals(first.getEntityName(), candidate.getEntityName())
+                && Objects.equals(first.getOperation(), candidate.getOperation())
+                && Objects.equals(first.getExceptionType(), candidate.getExceptionType());
+    }
+
+    private static long hash(AuditEvent auditEvent) {
+        long hash = 17;
+        hash = 31 * hash + Objects.hashCode(auditEvent.getAction());
+        hash = 31 * hash + Objects.hashCode(auditEvent.getActor());
+        hash = 31 * hash + Objects.hashCode(auditEvent.getOrigin());
+        hash = 31 * hash + Objects.hashCode(auditEvent.getHttpMethod());
+        hash = 31 * hash + Objects.hashCode(auditEvent.getPath());
+        hash = 31 * hash + Objects.hashCode(auditEvent.getResponseStatus());
+        hash = 31 * hash + Objects.hashCode(auditEvent.getEntityName());
+        hash = 31 * hash + Objects.hashCode(auditEvent.getOperation());
+        hash = 31 * hash + Objects.hashCode(auditEvent.getExceptionType());
+        // Spread the bits so linear probing does not cluster on similar strings
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    public long getSuppressedEvents() {
+        return suppressedEvents.get();
+    }
+
+    public long getSummaryEvents() {
+        return summaryEvents.get();
+    }
+
+    public long getUntrackedEvents() {
+        return untrackedEvents.get();
+    }
+
+    /**
+     * Stop the window timer and log the summaries of the current window
+     */
+    public void shutdown() {
+        if (flusher == null) {
+            return;
+        }
+        flusher.shutdownNow();
+        flush();
+    }
+}
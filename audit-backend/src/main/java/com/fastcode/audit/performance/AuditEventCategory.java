@@ -0,0 +1,34 @@
+package com.fastcode.audit.performance;
+
+/**
+ * Categories of audit events, derived from the action prefix set by AuditService
+ */
+public enum AuditEventCategory {
+
+    API("API_"),
+    ENTITY("ENTITY_"),
+    SECURITY("SECURITY_"),
+    COMPLIANCE("COMPLIANCE_"),
+    ERROR("ERROR_"),
+    OTHER(null);
+
+    private final String actionPrefix;
+
+    AuditEventCategory(String actionPrefix) {
+        this.actionPrefix = actionPrefix;
+    }
+
+    /**
+     * Resolve the category of an audit action such as API_REQUEST or SECURITY_AUTH_FAILURE
+     */
+    public static AuditEventCategory of(String action) {
+        if (action != null) {
+            for (AuditEventCategory category : values()) {
+                if (category.actionPrefix != null && action.startsWith(category.actionPrefix)) {
+                    return category;
+                }
+            }
+        }
+        return OTHER;
+    }
+}
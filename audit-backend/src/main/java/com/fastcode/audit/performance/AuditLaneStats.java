@@ -0,0 +1,21 @@
+package com.fastcode.audit.performance;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Queueing statistics for one priority lane across all handlers
+ */
+@Data
+@Builder
+public class AuditLaneStats {
+
+    private String lane;
+    private int weight;
+    private long sloMs;
+    private int queueSize;
+    private long handledEvents;
+    private double lastWaitMs;
+    private double maxWaitMs;
+    private long sloBreaches;
+}
@@ -0,0 +1,430 @@
+package com.fastcode.audit.performance;
+
+import com.fastcode.audit.domain.AuditEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Memory-mapped circular overflow journal for audit events
+ * Absorbs events while an in-memory queue is saturated and hands them back in append order
+ * Space is reclaimed as soon as replayed events are acknowledged, so the journal keeps absorbing a
+ * sustained spill as long as replay keeps up; appends are only rejected while it is actually full
+ * The read and write positions live in the file header, and the read position only moves once the
+ * replayed events have been delivered, so events still pending after a crash are replayed on the next start
+ * Events a sink can never accept are moved to a dead-letter file next to the journal, one JSON document per line,
+ * so they do not hold up the events behind them
+ *
+ * Layout: [magic:long][readPosition:long][writePosition:long] followed by
+ * [length:int][crc32:int][json bytes] records; a length of -1 marks the point where the log wraps
+ * back to the first record, as does a tail too short for a record header
+ */
+@Slf4j
+public class AuditOverflowJournal {
+
+    private static final long MAGIC = 0x4155444A524E4C02L;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int READ_POSITION_OFFSET = 8;
+    private static final int WRITE_POSITION_OFFSET = 16;
+    private static final int HEADER_SIZE = 24;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final int WRAP_MARKER = -1;
+    private static final int MIN_SIZE = 4096;
+
+    private final Path file;
+    private final Path deadLetterFile;
+    private final int size;
+    private final ObjectMapper objectMapper;
+    private final CRC32 crc = new CRC32();
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private boolean closed;
+    private volatile long pendingEvents;
+
+    // Records handed out by the last read() and not acknowledged yet
+    private long readAheadPosition;
+    private int readAheadRecords;
+
+    private final AtomicLong spilledEvents = new AtomicLong();
+    private final AtomicLong replayedEvents = new AtomicLong();
+    private final AtomicLong rejectedEvents = new AtomicLong();
+    private final AtomicLong discardedEvents = new AtomicLong();
+    private final AtomicLong deadLetteredEvents = new AtomicLong();
+
+    private long rateWindowStart = System.nanoTime();
+    private long rateWindowReplayed;
+    private double replayRate;
+
+    /**
+     * @param size journal file size in bytes, mapped as a whole, so at most Integer.MAX_VALUE
+     * @throws IllegalArgumentException if the size cannot be mapped
+     */
+    public AuditOverflowJournal(Path file, long size, ObjectMapper objectMapper) {
+        if (size < MIN_SIZE || size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Overflow journal size must be between " + MIN_SIZE + " and "
+                    + Integer.MAX_VALUE + " bytes, got " + size);
+        }
+        this.file = file;
+        this.deadLetterFile = file.resolveSibling(file.getFileName() + ".dead");
+        this.size = (int) size;
+        this.objectMapper = objectMapper;
+        if (Files.exists(file)) {
+            recover();
+        }
+    }
+
+    /**
+     * Append an event to the end of the journal
+     * @return false if the journal is full, closed or cannot be written
+     */
+    public synchronized boolean append(AuditEvent auditEvent) {
+        try {
+            byte[] record = objectMapper.writeValueAsBytes(auditEvent);
+            if (!ensureOpen()) {
+                rejectedEvents.incrementAndGet();
+                return false;
+            }
+            int position = reserve(RECORD_HEADER_SIZE + record.length);
+            if (position < 0) {
+                rejectedEvents.incrementAndGet();
+                return false;
+            }
+            buffer.putInt(position, record.length);
+            buffer.putInt(position + 4, checksum(record, record.length));
+            buffer.put(position + RECORD_HEADER_SIZE, record);
+            // The write position is published last, so a crash never exposes a half written record
+            buffer.putLong(WRITE_POSITION_OFFSET, position + RECORD_HEADER_SIZE + record.length);
+            pendingEvents++;
+            spilledEvents.incrementAndGet();
+            return true;
+        } catch (IOException e) {
+            log.error("Error writing audit event to overflow journal {}: {}", file, e.getMessage());
+            rejectedEvents.incrementAndGet();
+            return false;
+        }
+    }
+
+    /**
+     * Find room for a record, wrapping to the start of the log when the tail is too short
+     * The write position never catches up with the read position, so equal positions always mean empty
+     * @return the position to write the record at, or -1 if the journal is full
+     */
+    private int reserve(int recordSize) {
+        long readPosition = buffer.getLong(READ_POSITION_OFFSET);
+        long writePosition = buffer.getLong(WRITE_POSITION_OFFSET);
+        if (pendingEvents == 0) {
+            readPosition = HEADER_SIZE;
+            writePosition = HEADER_SIZE;
+            buffer.putLong(READ_POSITION_OFFSET, HEADER_SIZE);
+            buffer.putLong(WRITE_POSITION_OFFSET, HEADER_SIZE);
+        }
+        if (writePosition >= readPosition) {
+            if (writePosition + recordSize <= size) {
+                return (int) writePosition;
+            }
+            if (HEADER_SIZE + recordSize < readPosition) {
+                if (writePosition + 4 <= size) {
+                    buffer.putInt((int) writePosition, WRAP_MARKER);
+                }
+                return HEADER_SIZE;
+            }
+            return -1;
+        }
+        return writePosition + recordSize < readPosition ? (int) writePosition : -1;
+    }
+
+    /**
+     * Read up to maxEvents of the oldest pending events into the target list
+     * The events stay in the journal until acknowledge() is called; reading again without acknowledging
+     * returns the same events, so a batch that could not be delivered is replayed later
+     * A record that fails its length or checksum check ends the readable log: it and everything after it
+     * are discarded, since the start of the next record cannot be trusted
+     * @return number of records taken, including unreadable ones that are skipped
+     */
+    public synchronized int read(List<AuditEvent> target, int maxEvents) {
+        readAheadRecords = 0;
+        if (pendingEvents == 0 || buffer == null) {
+            return 0;
+        }
+
+        long writePosition = buffer.getLong(WRITE_POSITION_OFFSET);
+        long position = buffer.getLong(READ_POSITION_OFFSET);
+        boolean wrapped = false;
+        while (readAheadRecords < maxEvents && readAheadRecords < pendingEvents && position != writePosition) {
+            if (position + RECORD_HEADER_SIZE > size || buffer.getInt((int) position) == WRAP_MARKER) {
+                if (wrapped || position < writePosition) {
+                    truncate(position, "unexpected wrap marker");
+                    break;
+                }
+                position = HEADER_SIZE;
+                wrapped = true;
+                continue;
+            }
+            byte[] record = readRecord(position, writePosition);
+            if (record == null) {
+                truncate(position, "record length or checksum mismatch");
+                break;
+            }
+            position += RECORD_HEADER_SIZE + record.length;
+            readAheadRecords++;
+            try {
+                target.add(objectMapper.readValue(record, AuditEvent.class));
+            } catch (IOException e) {
+                discardedEvents.incrementAndGet();
+                log.error("Skipping unreadable audit event in overflow journal {}: {}", file, e.getMessage());
+            }
+        }
+        readAheadPosition = position;
+        return readAheadRecords;
+    }
+
+    /**
+     * Release the records returned by the last read() once their events have been delivered
+     */
+    public synchronized void acknowledge() {
+        if (readAheadRecords == 0 || buffer == null) {
+            return;
+        }
+        pendingEvents -= readAheadRecords;
+        replayedEvents.addAndGet(readAheadRecords);
+        if (pendingEvents == 0) {
+            // Empty, start appending from the beginning again
+            buffer.putLong(WRITE_POSITION_OFFSET, HEADER_SIZE);
+            buffer.putLong(READ_POSITION_OFFSET, HEADER_SIZE);
+        } else {
+            buffer.putLong(READ_POSITION_OFFSET, readAheadPosition);
+        }
+        readAheadRecords = 0;
+    }
+
+    /**
+     * Append events that can never be delivered to the dead-letter file
+     * Call before acknowledging the batch they were read in; if this fails the batch stays pending and is retried
+     * @return false if the dead-letter file cannot be written
+     */
+    public synchronized boolean deadLetter(List<AuditEvent> auditEvents) {
+        try {
+            Files.createDirectories(deadLetterFile.toAbsolutePath().getParent());
+            try (OutputStream out = Files.newOutputStream(deadLetterFile, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (AuditEvent auditEvent : auditEvents) {
+                    out.write(objectMapper.writeValueAsBytes(auditEvent));
+                    out.write('\n');
+                }
+            }
+            deadLetteredEvents.addAndGet(auditEvents.size());
+            log.error("Moved {} audit events that cannot be delivered to {}", auditEvents.size(), deadLetterFile);
+            return true;
+        } catch (IOException e) {
+            log.error("Error writing audit events to dead-letter file {}: {}", deadLetterFile, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * The record at position if it lies within the log and matches its checksum, else null
+     * A record before the write position must end at or before it; one in the tail past it, at the end of the file
+     */
+    private byte[] readRecord(long position, long writePosition) {
+        int length = buffer.getInt((int) position);
+        long limit = position < writePosition ? writePosition : size;
+        if (length < 0 || position + RECORD_HEADER_SIZE + length > limit) {
+            return null;
+        }
+        byte[] record = new byte[length];
+        buffer.get((int) position + RECORD_HEADER_SIZE, record);
+        return checksum(record, length) == buffer.getInt((int) position + 4) ? record : null;
+    }
+
+    /**
+     * Drop the corrupt record at position and everything written after it
+     * Records taken by the current read() before it are kept until they are acknowledged
+     */
+    private void truncate(long position, String reason) {
+        long lost = pendingEvents - readAheadRecords;
+        log.error("Overflow journal {} is corrupt at position {} ({}), discarding {} pending audit events",
+                file, position, reason, lost);
+        discardedEvents.addAndGet(lost);
+        pendingEvents = readAheadRecords;
+        buffer.putLong(WRITE_POSITION_OFFSET, position);
+    }
+
+    private int checksum(byte[] record, int length) {
+        crc.reset();
+        crc.update(record, 0, length);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Check if events are waiting in the journal
+     * New events must go to the journal while this is true to preserve ordering
+     */
+    public boolean hasPending() {
+        return pendingEvents > 0;
+    }
+
+    /**
+     * Number of events waiting in the journal
+     */
+    public long getDepth() {
+        return pendingEvents;
+    }
+
+    public long getSpilledEvents() {
+        return spilledEvents.get();
+    }
+
+    public long getReplayedEvents() {
+        return replayedEvents.get();
+    }
+
+    public long getRejectedEvents() {
+        return rejectedEvents.get();
+    }
+
+    /**
+     * Events lost to unreadable or corrupt records
+     */
+    public long getDiscardedEvents() {
+        return discardedEvents.get();
+    }
+
+    /**
+     * Events moved to the dead-letter file
+     */
+    public long getDeadLetteredEvents() {
+        return deadLetteredEvents.get();
+    }
+
+    public Path getDeadLetterFile() {
+        return deadLetterFile;
+    }
+
+    /**
+     * Replayed events per second, measured over windows of at least one second
+     */
+    public synchronized double getReplayRate() {
+        long now = System.nanoTime();
+        long elapsed = now - rateWindowStart;
+        if (elapsed >= TimeUnit.SECONDS.toNanos(1)) {
+            long replayed = replayedEvents.get();
+            replayRate = (replayed - rateWindowReplayed) * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+            rateWindowReplayed = replayed;
+            rateWindowStart = now;
+        }
+        return replayRate;
+    }
+
+    /**
+     * Force pending journal contents to disk and release the mapping
+     * A closed journal rejects further appends instead of mapping the file again
+     */
+    public synchronized void close() {
+        closed = true;
+        if (buffer != null) {
+            buffer.force();
+        }
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.error("Error closing overflow journal {}: {}", file, e.getMessage());
+            }
+        }
+        buffer = null;
+        channel = null;
+    }
+
+    /**
+     * Map the journal file lazily on first overflow
+     */
+    private boolean ensureOpen() {
+        if (buffer != null) {
+            return true;
+        }
+        if (closed) {
+            return false;
+        }
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            long readPosition = buffer.getLong(READ_POSITION_OFFSET);
+            long writePosition = buffer.getLong(WRITE_POSITION_OFFSET);
+            if (buffer.getLong(MAGIC_OFFSET) != MAGIC
+                    || readPosition < HEADER_SIZE || readPosition > size
+                    || writePosition < HEADER_SIZE || writePosition > size) {
+                // New file, another format, or a journal mapped with a different size
+                buffer.putLong(MAGIC_OFFSET, MAGIC);
+                buffer.putLong(READ_POSITION_OFFSET, HEADER_SIZE);
+                buffer.putLong(WRITE_POSITION_OFFSET, HEADER_SIZE);
+            }
+            return true;
+        } catch (IOException e) {
+            log.error("Unable to open audit overflow journal {}: {}", file, e.getMessage());
+            closeQuietly();
+            return false;
+        }
+    }
+
+    private void closeQuietly() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.debug("Error closing overflow journal {}: {}", file, e.getMessage());
+            }
+        }
+        buffer = null;
+        channel = null;
+    }
+
+    /**
+     * Count the records between the read and write positions, truncating the log at the first bad one
+     */
+    private synchronized void recover() {
+        if (!ensureOpen()) {
+            return;
+        }
+        long writePosition = buffer.getLong(WRITE_POSITION_OFFSET);
+        long position = buffer.getLong(READ_POSITION_OFFSET);
+        long records = 0;
+        boolean wrapped = false;
+        while (position != writePosition) {
+            if (position + RECORD_HEADER_SIZE > size || buffer.getInt((int) position) == WRAP_MARKER) {
+                if (wrapped || position < writePosition) {
+                    break;
+                }
+                position = HEADER_SIZE;
+                wrapped = true;
+                continue;
+            }
+            byte[] record = readRecord(position, writePosition);
+            if (record == null) {
+                break;
+            }
+            position += RECORD_HEADER_SIZE + record.length;
+            records++;
+        }
+        if (position != writePosition) {
+            log.error("Overflow journal {} is corrupt at position {}, keeping the {} audit events before it",
+                    file, position, records);
+            buffer.putLong(WRITE_POSITION_OFFSET, position);
+        }
+        pendingEvents = records;
+        if (records > 0) {
+            log.info("Recovered {} pending audit events from overflow journal {}", records, file);
+        }
+    }
+}
@@ -6,17 +6,14 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import jakarta.annotation.PreDestroy;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executor;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.RejectedExecutionHandler;
-import java.util.concurrent.ThreadFactory;
 
 /**
  * Performance-optimized audit interceptor
  * Ensures audit operations don't impact application performance
+ * Events are published straight into the handler ring buffers, so the calling thread
+ * never allocates a task or waits on a lock
  */
 @Component
 @RequiredArgsConstructor
@@ -24,43 +21,8 @@ import java.util.concurrent.ThreadFactory;
 public class AuditPerformanceInterceptor {
 
     private final AuditHandlerManager handlerManager;
-    
-    // Dedicated thread pool for audit operations
-    private final Executor auditExecutor = createAuditExecutor();
-
-    /**
-     * Create optimized thread pool for audit operations
-     */
-    private Executor createAuditExecutor() {
-        ThreadPoolExecutor executor = new ThreadPoolExecutor(
-            2, // Core pool size
-            5, // Maximum pool size
-            60L, TimeUnit.SECONDS, // Keep alive time
-            new LinkedBlockingQueue<>(1000), // Queue size
-            new ThreadFactory() {
-                private int counter = 0;
-                @Override
-                public Thread newThread(Runnable r) {
-                    Thread t = new Thread(r, "audit-perf-" + (++counter));
-                    t.setDaemon(true);
-                    t.setPriority(Thread.MIN_PRIORITY); // Low priority to not impact main app
-                    return t;
-                }
-            },
-            new RejectedExecutionHandler() {
-                @Override
-                public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
-                    // If queue is full, log and continue (fail fast)
-                    log.warn("Audit queue full, dropping audit event to maintain performance");
-                }
-            }
-        );
-        
-        // Allow core threads to timeout
-        executor.allowCoreThreadTimeOut(true);
-        
-        return executor;
-    }
+    private final AuditBackpressure backpressure;
+    private final AuditDeduplicator deduplicator;
 
     /**
      * Process audit event asynchronously with performance safeguards
@@ -70,14 +32,14 @@ public class AuditPerformanceInterceptor {
             return;
         }
 
-        // Process asynchronously with low priority
-        CompletableFuture.runAsync(() -> {
-            try {
-                handlerManager.handle(auditEvent);
-            } catch (Exception e) {
-                log.error("Error processing audit event: {}", e.getMessage(), e);
+        try {
+            if (deduplicator.isEnabled() && deduplicator.suppress(auditEvent)) {
+                return;
             }
-        }, auditExecutor);
+            handlerManager.handle(auditEvent);
+        } catch (Exception e) {
+            log.error("Error processing audit event: {}", e.getMessage(), e);
+        }
     }
 
     /**
@@ -95,51 +57,67 @@ public class AuditPerformanceInterceptor {
         }
     }
 
+    /**
+     * Process audit event durably (for events that must be persisted before the caller continues)
+     * Concurrent callers share group commits, so waiting on many events costs roughly one commit
+     * @return a future completed once every enabled handler has made the event durable
+     */
+    public CompletableFuture<Void> processAuditEventDurable(AuditEvent auditEvent) {
+        if (auditEvent == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        try {
+            return handlerManager.handleDurable(auditEvent);
+        } catch (Exception e) {
+            log.error("Error processing durable audit event: {}", e.getMessage(), e);
+            CompletableFuture<Void> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
     /**
      * Check if audit processing is healthy
      */
     public boolean isHealthy() {
-        if (auditExecutor instanceof ThreadPoolExecutor) {
-            ThreadPoolExecutor tpe = (ThreadPoolExecutor) auditExecutor;
-            return tpe.getActiveCount() < tpe.getMaximumPoolSize() && 
-                   tpe.getQueue().remainingCapacity() > 0;
-        }
-        return true;
+        return handlerManager.hasRemainingCapacity();
     }
 
     /**
      * Get audit processing statistics
      */
     public AuditPerformanceStats getStats() {
-        if (auditExecutor instanceof ThreadPoolExecutor) {
-            ThreadPoolExecutor tpe = (ThreadPoolExecutor) auditExecutor;
-            return AuditPerformanceStats.builder()
-                .activeThreads(tpe.getActiveCount())
-                .maxThreads(tpe.getMaximumPoolSize())
-                .queueSize(tpe.getQueue().size())
-                .queueCapacity(tpe.getQueue().remainingCapacity())
-                .completedTasks(tpe.getCompletedTaskCount())
-                .build();
-        }
-        return AuditPerformanceStats.builder().build();
+        return AuditPerformanceStats.builder()
+            .activeThreads(handlerManager.getBusyConsumerCount())
+            .maxThreads(handlerManager.getConsumerCount())
+            .queueSize(handlerManager.getQueuedEventCount())
+            .queueCapacity(handlerManager.getRemainingCapacity())
+            .completedTasks(handlerManager.getHandledEventCount())
+            .droppedEvents(handlerManager.getDroppedEventCount())
+            .spilledEvents(handlerManager.getSpilledEventCount())
+            .journalDepth(handlerManager.getJournalDepth())
+            .journalReplayRate(handlerManager.getJournalReplayRate())
+            .groupCommits(handlerManager.getGroupCommitCount())
+            .groupCommittedEvents(handlerManager.getGroupCommittedEventCount())
+            .deduplicatedEvents(deduplicator.getSuppressedEvents())
+            .deduplicationSummaries(deduplicator.getSummaryEvents())
+            .categories(backpressure.getCategoryStats())
+            .lanes(handlerManager.getLaneStats())
+            .sinks(handlerManager.getSinkStats())
+            .build();
     }
 
     /**
      * Shutdown the audit interceptor
+     * Runs before the handler manager is destroyed, so the pipeline is drained and flushed
+     * while the handlers and their data sources are still available
+     * The open deduplication window is closed first so its summaries enter the pipeline before intake stops
      */
+    @PreDestroy
     public void shutdown() {
-        if (auditExecutor instanceof ThreadPoolExecutor) {
-            ThreadPoolExecutor tpe = (ThreadPoolExecutor) auditExecutor;
-            tpe.shutdown();
-            try {
-                if (!tpe.awaitTermination(5, TimeUnit.SECONDS)) {
-                    tpe.shutdownNow();
-                }
-            } catch (InterruptedException e) {
-                tpe.shutdownNow();
-                Thread.currentThread().interrupt();
-            }
-        }
+        deduplicator.shutdown();
+        handlerManager.shutdown();
         log.info("Audit performance interceptor shutdown completed");
     }
 }
@@ -3,6 +3,8 @@ package com.fastcode.audit.performance;
 import lombok.Builder;
 import lombok.Data;
 
+import java.util.List;
+
 /**
  * Performance statistics for audit operations
  */
@@ -15,6 +17,17 @@ public class AuditPerformanceStats {
     private int queueSize;
     private int queueCapacity;
     private long completedTasks;
+    private long droppedEvents;
+    private long spilledEvents;
+    private long journalDepth;
+    private double journalReplayRate;
+    private long groupCommits;
+    private long groupCommittedEvents;
+    private long deduplicatedEvents;
+    private long deduplicationSummaries;
+    private List<AuditCategoryStats> categories;
+    private List<AuditLaneStats> lanes;
+    private List<AuditSinkStats> sinks;
     
     /**
      * Get queue utilization percentage
@@ -26,6 +39,16 @@ public class AuditPerformanceStats {
         return (double) queueSize / (queueSize + queueCapacity) * 100.0;
     }
     
+    /**
+     * Get average number of durable events per group commit
+     */
+    public double getAverageGroupCommitSize() {
+        if (groupCommits == 0) {
+            return 0.0;
+        }
+        return (double) groupCommittedEvents / groupCommits;
+    }
+    
     /**
      * Get thread utilization percentage
      */
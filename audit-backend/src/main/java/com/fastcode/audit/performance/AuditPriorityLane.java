@@ -0,0 +1,45 @@
+package com.fastcode.audit.performance;
+
+/**
+ * Priority lanes of the audit pipeline
+ * Each handler keeps one queue per lane and drains them with weighted round robin,
+ * so security and compliance events are not stuck behind bursts of API traffic
+ */
+public enum AuditPriorityLane {
+
+    HIGH(8, 100),
+    NORMAL(4, 1000),
+    BULK(1, 5000);
+
+    private final int defaultWeight;
+    private final int defaultSloMs;
+
+    AuditPriorityLane(int defaultWeight, int defaultSloMs) {
+        this.defaultWeight = defaultWeight;
+        this.defaultSloMs = defaultSloMs;
+    }
+
+    public int getDefaultWeight() {
+        return defaultWeight;
+    }
+
+    public int getDefaultSloMs() {
+        return defaultSloMs;
+    }
+
+    /**
+     * Resolve the lane an event category is queued on
+     */
+    public static AuditPriorityLane of(AuditEventCategory category) {
+        switch (category) {
+            case SECURITY:
+            case COMPLIANCE:
+            case ERROR:
+                return HIGH;
+            case API:
+                return BULK;
+            default:
+                return NORMAL;
+        }
+    }
+}
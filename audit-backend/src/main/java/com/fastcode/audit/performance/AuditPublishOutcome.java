@@ -0,0 +1,24 @@
+package com.fastcode.audit.performance;
+
+/**
+ * Result of publishing an audit event to a handler queue
+ * DROPPED_OLDEST is recorded against the category of an event evicted to make room for a newer one
+ * WRITTEN_SYNC means the ring stayed full and the caller wrote the event through the handler itself
+ */
+public enum AuditPublishOutcome {
+    ACCEPTED,
+    BLOCKED,
+    SPILLED,
+    WRITTEN_SYNC,
+    DROPPED_NEWEST,
+    DROPPED_OLDEST,
+    SAMPLED_OUT,
+    REJECTED;
+
+    /**
+     * @return true if the event will reach the handler
+     */
+    public boolean isDelivered() {
+        return this == ACCEPTED || this == BLOCKED || this == SPILLED || this == WRITTEN_SYNC;
+    }
+}
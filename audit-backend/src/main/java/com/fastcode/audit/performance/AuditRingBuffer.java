@@ -0,0 +1,153 @@
+package com.fastcode.audit.performance;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Bounded, lock-free multi-producer ring buffer used by the audit pipeline
+ * Slots are preallocated once; publishing an event allocates nothing and never blocks
+ * Each slot carries a sequence number so producers and consumers can claim slots with a single CAS,
+ * and the time the element was published so consumers can measure queueing latency
+ */
+public final class AuditRingBuffer<E> {
+
+    private final int capacity;
+    private final int mask;
+    private final Object[] elements;
+    private final long[] publishedAt;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    public AuditRingBuffer(int requestedCapacity) {
+        if (requestedCapacity < 2) {
+            throw new IllegalArgumentException("Ring buffer capacity must be at least 2");
+        }
+        this.capacity = roundToPowerOfTwo(requestedCapacity);
+        this.mask = capacity - 1;
+        this.elements = new Object[capacity];
+        this.publishedAt = new long[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Publish an element into the ring
+     * @return false if the ring is full
+     */
+    public boolean offer(E element) {
+        if (element == null) {
+            throw new NullPointerException("Ring buffer does not accept null elements");
+        }
+        long position = tail.get();
+        for (;;) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements[index] = element;
+                    publishedAt[index] = System.nanoTime();
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Take the oldest element from the ring
+     * @return the element, or null if the ring is empty
+     */
+    public E poll() {
+        return poll(0, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private E poll(long now, LongConsumer waitObserver) {
+        long position = head.get();
+        for (;;) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    E element = (E) elements[index];
+                    long published = publishedAt[index];
+                    elements[index] = null;
+                    sequences.lazySet(index, position + capacity);
+                    if (waitObserver != null) {
+                        waitObserver.accept(now - published);
+                    }
+                    return element;
+                }
+                position = head.get();
+            } else if (difference < 0) {
+                return null;
+            } else {
+                position = head.get();
+            }
+        }
+    }
+
+    /**
+     * Drain up to maxElements into the given consumer
+     * @return number of elements drained
+     */
+    public int drain(Consumer<E> consumer, int maxElements) {
+        return drain(consumer, maxElements, null);
+    }
+
+    /**
+     * Drain up to maxElements into the given consumer, reporting the nanoseconds each element waited in the ring
+     * @return number of elements drained
+     */
+    public int drain(Consumer<E> consumer, int maxElements, LongConsumer waitObserver) {
+        long now = waitObserver != null ? System.nanoTime() : 0;
+        int drained = 0;
+        while (drained < maxElements) {
+            E element = poll(now, waitObserver);
+            if (element == null) {
+                break;
+            }
+            consumer.accept(element);
+            drained++;
+        }
+        return drained;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Approximate number of elements currently in the ring
+     */
+    public int size() {
+        long size = tail.get() - head.get();
+        if (size < 0) {
+            return 0;
+        }
+        return (int) Math.min(size, capacity);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int remainingCapacity() {
+        return capacity - size();
+    }
+
+    private static int roundToPowerOfTwo(int value) {
+        int highest = Integer.highestOneBit(value);
+        return highest == value ? value : highest << 1;
+    }
+}
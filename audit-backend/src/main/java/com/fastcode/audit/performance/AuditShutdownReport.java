@@ -0,0 +1,23 @@
+package com.fastcode.audit.performance;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Outcome of draining the audit pipeline on shutdown
+ */
+@Data
+@Builder
+public class AuditShutdownReport {
+
+    private long flushedEvents;
+    private long failedEvents;
+    private long spilledEvents;
+    private long abandonedEvents;
+    private long journalDepth;
+    private List<String> unfinishedSinks;
+    private long elapsedMs;
+    private boolean deadlineExceeded;
+}
@@ -0,0 +1,31 @@
+package com.fastcode.audit.performance;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Queue and delivery statistics for one audit sink (handler)
+ */
+@Data
+@Builder
+public class AuditSinkStats {
+
+    private String sink;
+    private boolean enabled;
+    private String overflowPolicy;
+    private int queueSize;
+    private int queueCapacity;
+    private long publishedEvents;
+    private long handledEvents;
+    private long droppedEvents;
+    private long failedBatches;
+    // events lost because the handler threw on their batch or reported it could not write them
+    private long failedEvents;
+    private long journalDepth;
+    // events moved from the journal to its dead-letter file because the handler can never accept them
+    private long deadLetteredEvents;
+    // failed replays of the batch at the head of the journal; the journal is stuck after a few of them
+    private int journalReplayFailures;
+    private boolean journalStuck;
+    private long stalledMs;
+}
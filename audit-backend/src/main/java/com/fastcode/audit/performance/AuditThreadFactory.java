@@ -0,0 +1,24 @@
+package com.fastcode.audit.performance;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Creates the daemon platform threads used for audit work, named namePrefix-N
+ */
+public class AuditThreadFactory implements ThreadFactory {
+
+    private final String namePrefix;
+    private final AtomicLong counter = new AtomicLong();
+
+    public AuditThreadFactory(String namePrefix) {
+        this.namePrefix = namePrefix;
+    }
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, namePrefix + "-" + counter.getAndIncrement());
+        thread.setDaemon(true);
+        return thread;
+    }
+}
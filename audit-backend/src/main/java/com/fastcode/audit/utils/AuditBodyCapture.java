@@ -0,0 +1,92 @@
+package com.fastcode.audit.utils;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Turns a request or response body into the text stored with an API audit event
+ * At most maxBytes of the body are decoded, so the captured text stays bounded however large the payload;
+ * longer bodies end with a truncation marker and binary content types are replaced by a short note
+ * The captured text is masked as a whole before the truncation marker is appended
+ * Instances are immutable and safe to share between threads
+ */
+public final class AuditBodyCapture {
+
+	public static final List<String> DEFAULT_BINARY_TYPES = List.of(
+			"image/", "audio/", "video/", "font/", "multipart/", "application/octet-stream", "application/pdf",
+			"application/zip", "application/gzip", "application/x-protobuf", "application/grpc");
+
+	private final int maxBytes;
+	private final List<String> binaryTypes;
+
+	private AuditBodyCapture(int maxBytes, List<String> binaryTypes) {
+		this.maxBytes = maxBytes;
+		this.binaryTypes = binaryTypes;
+	}
+
+	/**
+	 * @param maxBytes body bytes captured per message, 0 (the default) to capture no bodies
+	 * @param binaryTypes content type prefixes whose bodies are never captured
+	 */
+	public static AuditBodyCapture of(int maxBytes, List<String> binaryTypes) {
+		return new AuditBodyCapture(Math.max(0, maxBytes), binaryTypes.stream()
+				.map(type -> type.trim().toLowerCase(Locale.ROOT))
+				.filter(type -> !type.isEmpty())
+				.toList());
+	}
+
+	public int getMaxBytes() {
+		return maxBytes;
+	}
+
+	public boolean isEnabled() {
+		return maxBytes > 0;
+	}
+
+	public boolean isBinary(String contentType) {
+		if (contentType == null) {
+			return false;
+		}
+		String type = contentType.trim().toLowerCase(Locale.ROOT);
+		for (String binaryType : binaryTypes) {
+			if (type.startsWith(binaryType)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param masker masks the captured text, or null to keep it as it is
+	 * @return the captured body, or null when there is nothing to capture
+	 */
+	public String capture(byte[] body, String contentType, Charset charset, SensitiveDataMasker masker) {
+		if (!isEnabled() || body == null || body.length == 0) {
+			return null;
+		}
+		if (isBinary(contentType)) {
+			return "[binary body omitted, " + body.length + " bytes]";
+		}
+
+		Charset bodyCharset = charset != null ? charset : StandardCharsets.UTF_8;
+		int length = Math.min(body.length, maxBytes);
+		if (length < body.length && StandardCharsets.UTF_8.equals(bodyCharset)) {
+			// Do not cut a multi-byte character in half
+			while (length > 0 && (body[length] & 0xC0) == 0x80) {
+				length--;
+			}
+		}
+		String text = new String(body, 0, length, bodyCharset);
+		if (masker != null) {
+			// The text is already bounded by maxBytes, so it is masked in one pass; cutting it into windows
+			// could split a value such as a space separated card number between two of them
+			text = masker.mask(text);
+		}
+		if (length < body.length) {
+			return text + "...[truncated, " + length + " of " + body.length + " bytes captured]";
+		}
+		return text;
+	}
+}
@@ -0,0 +1,198 @@
+package com.fastcode.audit.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Matches request paths against the excluded API path patterns, compiled once into a segment trie
+ * Patterns are split on '/' and empty segments are ignored, so "/a/b" and "/a/b/" are the same path
+ * A segment is a literal, * for exactly one segment, ** for any number of segments (including none),
+ * or a glob such as *.css using * and ?; "/actuator/**" therefore excludes /actuator and everything below it
+ * Matching walks the trie one segment at a time without regular expressions
+ * Instances are immutable and safe to share between threads
+ */
+public final class PathExclusionMatcher {
+
+	private static final PathExclusionMatcher EMPTY = new PathExclusionMatcher(new Node(), false);
+
+	private final Node root;
+	private final boolean empty;
+
+	private PathExclusionMatcher(Node root, boolean hasPatterns) {
+		this.root = root;
+		this.empty = !hasPatterns;
+	}
+
+	public static PathExclusionMatcher compile(Collection<String> patterns) {
+		if (patterns.isEmpty()) {
+			return EMPTY;
+		}
+		Node root = new Node();
+		for (String rawPattern : patterns) {
+			String pattern = rawPattern.trim();
+			Node node = root;
+			String previous = null;
+			int start = 0;
+			while ((start = nextSegmentStart(pattern, start)) < pattern.length()) {
+				int end = segmentEnd(pattern, start);
+				String segment = pattern.substring(start, end);
+				// "**/**" is the same as "**", and collapsing it keeps a ** node free of ** children
+				if (!(segment.equals("**") && "**".equals(previous))) {
+					node = node.child(segment);
+				}
+				previous = segment;
+				start = end;
+			}
+			node.terminal = true;
+		}
+		return new PathExclusionMatcher(root, true);
+	}
+
+	public boolean matches(String path) {
+		return !empty && path != null && matches(root, path, nextSegmentStart(path, 0));
+	}
+
+	private static boolean matches(Node node, String path, int start) {
+		if (node.anySegments != null && matchesAnySegments(node.anySegments, path, start)) {
+			return true;
+		}
+		if (start >= path.length()) {
+			return node.terminal;
+		}
+		int end = segmentEnd(path, start);
+		int next = nextSegmentStart(path, end);
+		Node literal = node.literal(path, start, end);
+		if (literal != null && matches(literal, path, next)) {
+			return true;
+		}
+		if (node.anySegment != null && matches(node.anySegment, path, next)) {
+			return true;
+		}
+		if (node.globs != null) {
+			for (Glob glob : node.globs) {
+				if (glob.matches(path, start, end) && matches(glob.node, path, next)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	// ** consumes zero or more segments before the rest of the pattern continues
+	private static boolean matchesAnySegments(Node node, String path, int start) {
+		int position = start;
+		while (true) {
+			if (matches(node, path, position)) {
+				return true;
+			}
+			if (position >= path.length()) {
+				return false;
+			}
+			position = nextSegmentStart(path, segmentEnd(path, position));
+		}
+	}
+
+	private static int nextSegmentStart(String text, int from) {
+		while (from < text.length() && text.charAt(from) == '/') {
+			from++;
+		}
+		return from;
+	}
+
+	private static int segmentEnd(String text, int start) {
+		int slash = text.indexOf('/', start);
+		return slash < 0 ? text.length() : slash;
+	}
+
+	private static final class Node {
+		// Literal children compared in place, exclusion lists fan out too little to need hashing
+		private String[] literalNames = new String[0];
+		private Node[] literalNodes = new Node[0];
+		private Node anySegment;
+		private Node anySegments;
+		private List<Glob> globs;
+		private boolean terminal;
+
+		private Node child(String segment) {
+			if (segment.equals("**")) {
+				return anySegments != null ? anySegments : (anySegments = new Node());
+			}
+			if (segment.equals("*")) {
+				return anySegment != null ? anySegment : (anySegment = new Node());
+			}
+			if (segment.indexOf('*') >= 0 || segment.indexOf('?') >= 0) {
+				if (globs == null) {
+					globs = new ArrayList<>();
+				}
+				for (Glob glob : globs) {
+					if (glob.pattern.equals(segment)) {
+						return glob.node;
+					}
+				}
+				Glob glob = new Glob(segment, new Node());
+				globs.add(glob);
+				return glob.node;
+			}
+			for (int i = 0; i < literalNames.length; i++) {
+				if (literalNames[i].equals(segment)) {
+					return literalNodes[i];
+				}
+			}
+			literalNames = Arrays.copyOf(literalNames, literalNames.length + 1);
+			literalNodes = Arrays.copyOf(literalNodes, literalNodes.length + 1);
+			literalNames[literalNames.length - 1] = segment;
+			return literalNodes[literalNodes.length - 1] = new Node();
+		}
+
+		private Node literal(String path, int start, int end) {
+			int length = end - start;
+			for (int i = 0; i < literalNames.length; i++) {
+				String name = literalNames[i];
+				if (name.length() == length && path.regionMatches(start, name, 0, length)) {
+					return literalNodes[i];
+				}
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * A segment pattern with * (any characters) and ? (one character)
+	 */
+	private static final class Glob {
+		private final String pattern;
+		private final Node node;
+
+		private Glob(String pattern, Node node) {
+			this.pattern = pattern;
+			this.node = node;
+		}
+
+		private boolean matches(String text, int start, int end) {
+			int p = 0;
+			int t = start;
+			int starAt = -1;
+			int starMatch = start;
+			while (t < end) {
+				if (p < pattern.length() && (pattern.charAt(p) == '?' || pattern.charAt(p) == text.charAt(t))) {
+					p++;
+					t++;
+				} else if (p < pattern.length() && pattern.charAt(p) == '*') {
+					starAt = p++;
+					starMatch = t;
+				} else if (starAt >= 0) {
+					p = starAt + 1;
+					t = ++starMatch;
+				} else {
+					return false;
+				}
+			}
+			while (p < pattern.length() && pattern.charAt(p) == '*') {
+				p++;
+			}
+			return p == pattern.length();
+		}
+	}
+}
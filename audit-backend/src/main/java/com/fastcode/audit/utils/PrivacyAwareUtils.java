@@ -11,8 +11,6 @@ import java.security.MessageDigest;
 import java.security.SecureRandom;
 import java.util.Base64;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class PrivacyAwareUtils {
 
@@ -24,28 +22,43 @@ public class PrivacyAwareUtils {
 	 * @return The message with sensitive data masked.
 	 */
 	public static String maskSensitiveData(String message, Map<String, String> sensitiveKeys) {
-		if (message == null) {
-			return null;
-		}
-		for (Map.Entry<String, String> entry : sensitiveKeys.entrySet()) {
-			String pattern = entry.getValue();
-			message = maskPattern(pattern, "****", message);
-		}
-		return message;
+		return maskSensitiveData(message, masker(sensitiveKeys));
 	}
 
 	/**
-	 * Replaces occurrences of the given pattern in the message with the provided mask.
+	 * Masks sensitive data in the provided message with precompiled patterns.
 	 *
-	 * @param pattern The regular expression pattern for sensitive data.
-	 * @param mask The mask to replace sensitive data with.
 	 * @param message The log message.
-	 * @return The message with sensitive data replaced by the mask.
+	 * @param masker The compiled sensitive data patterns.
+	 * @return The message with sensitive data masked, or the same message if nothing matched.
 	 */
-	private static String maskPattern(String pattern, String mask, String message) {
-		Pattern regexPattern = Pattern.compile(pattern);
-		Matcher matcher = regexPattern.matcher(message);
-		return matcher.replaceAll(mask);
+	public static String maskSensitiveData(String message, SensitiveDataMasker masker) {
+		return masker.mask(message);
+	}
+
+	/**
+	 * Masking engine for the given keys, compiled once and reused while callers pass the same map,
+	 * e.g. the one held by the configuration snapshot.
+	 */
+	private static SensitiveDataMasker masker(Map<String, String> sensitiveKeys) {
+		CompiledKeys compiled = lastCompiledKeys;
+		if (compiled == null || compiled.keys != sensitiveKeys) {
+			compiled = new CompiledKeys(sensitiveKeys, SensitiveDataMasker.compile(sensitiveKeys));
+			lastCompiledKeys = compiled;
+		}
+		return compiled.masker;
+	}
+
+	private static volatile CompiledKeys lastCompiledKeys;
+
+	private static final class CompiledKeys {
+		private final Map<String, String> keys;
+		private final SensitiveDataMasker masker;
+
+		private CompiledKeys(Map<String, String> keys, SensitiveDataMasker masker) {
+			this.keys = keys;
+			this.masker = masker;
+		}
 	}
 
 
@@ -129,15 +142,22 @@ public class PrivacyAwareUtils {
 	 * Masks sensitive data in all string values in a map
 	 */
 	public static Map<String, Object> maskMap(Map<String, Object> map, Map<String, String> sensitiveKeys) {
+		return maskMap(map, masker(sensitiveKeys));
+	}
+
+	/**
+	 * Masks sensitive data in all string values in a map with precompiled patterns
+	 */
+	public static Map<String, Object> maskMap(Map<String, Object> map, SensitiveDataMasker masker) {
 		Map<String, Object> maskedMap = new java.util.HashMap<>();
 		for (Map.Entry<String, Object> entry : map.entrySet()) {
 			Object value = entry.getValue();
 			if (value instanceof String) {
-				maskedMap.put(entry.getKey(), maskSensitiveData((String) value, sensitiveKeys));
+				maskedMap.put(entry.getKey(), masker.mask((String) value));
 			} else if (value instanceof Map) {
 				@SuppressWarnings("unchecked")
 				Map<String, Object> mapValue = (Map<String, Object>) value;
-				maskedMap.put(entry.getKey(), maskMap(mapValue, sensitiveKeys));
+				maskedMap.put(entry.getKey(), maskMap(mapValue, masker));
 			} else {
 				maskedMap.put(entry.getKey(), value);
 			}
@@ -145,6 +165,13 @@ public class PrivacyAwareUtils {
 		return maskedMap;
 	}
 
+	/**
+	 * Masks a map field by field: policy MASK fields are replaced, SKIP fields kept, the rest scanned
+	 */
+	public static Map<String, Object> maskMap(Map<String, Object> map, SensitiveDataMaskingPolicy policy) {
+		return policy.mask(map);
+	}
+
 	/**
 	 * Encrypts a message using secure layout with key and salt
 	 */
@@ -0,0 +1,605 @@
+package com.fastcode.audit.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Masks every configured sensitive data pattern in a value
+ * A prefilter derived from the patterns (required literals such as "token" or "@", minimum digit counts)
+ * picks in one scan the patterns that could match at all, so most values never reach a regex
+ * Only the candidate patterns are run, each on its own: a single alternation of all patterns was measured to
+ * cost more than the separate scans, as it retries every branch at every position
+ * The union of all matched spans is masked, so a match of one pattern never hides an overlapping match of
+ * another; values without a match are returned as is
+ * Instances are immutable and safe to share between threads
+ */
+public final class SensitiveDataMasker {
+
+	public static final String MASK = "****";
+
+	private static final SensitiveDataMasker EMPTY = new SensitiveDataMasker(List.of(), null);
+
+	// Up to this many patterns are tracked by the prefilter
+	private static final int MAX_PREFILTERED_PATTERNS = 64;
+
+	private final List<Pattern> patterns;
+	// One requirement per pattern, null for a pattern that must always be tried
+	private final Requirement[] requirements;
+	private final boolean prefilter;
+
+	private SensitiveDataMasker(List<Pattern> patterns, Requirement[] requirements) {
+		this.patterns = patterns;
+		this.requirements = requirements;
+		this.prefilter = requirements != null;
+	}
+
+	/**
+	 * Compile sensitive data keys given as name to regex
+	 * @throws PatternSyntaxException if a regex is invalid
+	 */
+	public static SensitiveDataMasker compile(Map<String, String> sensitiveKeys) {
+		Map<String, Pattern> compiled = new LinkedHashMap<>();
+		sensitiveKeys.forEach((name, regex) -> compiled.put(name, Pattern.compile(regex)));
+		return of(compiled);
+	}
+
+	/**
+	 * Combine already compiled sensitive data patterns
+	 */
+	public static SensitiveDataMasker of(Map<String, Pattern> sensitivePatterns) {
+		if (sensitivePatterns == null || sensitivePatterns.isEmpty()) {
+			return EMPTY;
+		}
+		List<Pattern> patterns = new ArrayList<>(sensitivePatterns.values());
+		return new SensitiveDataMasker(List.copyOf(patterns), analyze(patterns));
+	}
+
+	public boolean isEmpty() {
+		return patterns.isEmpty();
+	}
+
+	/**
+	 * @return the value with every sensitive match replaced by {@link #MASK}, or the same instance if nothing matched
+	 */
+	public String mask(String value) {
+		if (value == null || value.isEmpty() || patterns.isEmpty()) {
+			return value;
+		}
+		long candidates = prefilter ? candidatesFor(value) : -1L;
+		if (candidates == 0) {
+			return value;
+		}
+
+		// Collect the spans matched by each candidate pattern, then mask their union
+		int[] spans = null;
+		int spanCount = 0;
+		for (int i = 0; i < patterns.size(); i++) {
+			if (prefilter && (candidates & (1L << i)) == 0) {
+				continue;
+			}
+			Matcher matcher = patterns.get(i).matcher(value);
+			while (matcher.find()) {
+				if (spans == null) {
+					spans = new int[8];
+				} else if (spanCount * 2 == spans.length) {
+					spans = Arrays.copyOf(spans, spans.length * 2);
+				}
+				spans[spanCount * 2] = matcher.start();
+				spans[spanCount * 2 + 1] = matcher.end();
+				spanCount++;
+			}
+		}
+		if (spanCount == 0) {
+			return value;
+		}
+		return maskSpans(value, spans, spanCount);
+	}
+
+	private static String maskSpans(String value, int[] spans, int spanCount) {
+		long[] ordered = new long[spanCount];
+		for (int i = 0; i < spanCount; i++) {
+			ordered[i] = ((long) spans[i * 2] << 32) | spans[i * 2 + 1];
+		}
+		Arrays.sort(ordered);
+
+		StringBuilder masked = new StringBuilder(value.length());
+		int last = 0;
+		int i = 0;
+		while (i < spanCount) {
+			int start = (int) (ordered[i] >>> 32);
+			int end = (int) ordered[i];
+			// Merge spans that overlap this one
+			while (++i < spanCount && (int) (ordered[i] >>> 32) < end) {
+				end = Math.max(end, (int) ordered[i]);
+			}
+			masked.append(value, last, Math.max(last, start)).append(MASK);
+			last = Math.max(last, end);
+		}
+		return masked.append(value, last, value.length()).toString();
+	}
+
+	/**
+	 * Check in one scan which patterns' required characters and literals occur in the value
+	 * @return bit i set if pattern i may match
+	 */
+	private long candidatesFor(String value) {
+		int digits = 0;
+		long low = 0;
+		long high = 0;
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c >= '0' && c <= '9') {
+				digits++;
+			}
+			if (c < 64) {
+				low |= 1L << c;
+			} else if (c < 128) {
+				high |= 1L << (c - 64);
+			}
+		}
+		long candidates = 0;
+		for (int i = 0; i < requirements.length; i++) {
+			if (requirements[i] == null || requirements[i].isMetBy(value, digits, low, high)) {
+				candidates |= 1L << i;
+			}
+		}
+		return candidates;
+	}
+
+	/**
+	 * @return the requirement of each pattern, or null if no pattern has one and the prefilter cannot help
+	 */
+	private static Requirement[] analyze(List<Pattern> patterns) {
+		if (patterns.size() > MAX_PREFILTERED_PATTERNS) {
+			return null;
+		}
+		Requirement[] requirements = new Requirement[patterns.size()];
+		boolean any = false;
+		for (int i = 0; i < patterns.size(); i++) {
+			requirements[i] = PatternAnalyzer.requirementOf(patterns.get(i));
+			any |= requirements[i] != null;
+		}
+		return any ? requirements : null;
+	}
+
+	/**
+	 * What a value must contain for one pattern to match: a minimum number of digits, some ASCII
+	 * characters, and one literal out of each literal set
+	 */
+	private static final class Requirement {
+
+		private final int minDigits;
+		private final long lowChars;
+		private final long highChars;
+		private final List<LiteralSet> literalSets;
+
+		Requirement(int minDigits, long lowChars, long highChars, List<LiteralSet> literalSets) {
+			this.minDigits = minDigits;
+			this.lowChars = lowChars;
+			this.highChars = highChars;
+			this.literalSets = literalSets;
+		}
+
+		boolean isMetBy(String value, int digits, long low, long high) {
+			if (digits < minDigits || (low & lowChars) != lowChars || (high & highChars) != highChars) {
+				return false;
+			}
+			for (LiteralSet literals : literalSets) {
+				if (!containsAny(value, literals)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private static boolean containsAny(String value, LiteralSet literals) {
+			for (String literal : literals.literals) {
+				if (literals.ignoreCase ? containsIgnoreCase(value, literal) : value.contains(literal)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private static boolean containsIgnoreCase(String value, String literal) {
+			int last = value.length() - literal.length();
+			for (int i = 0; i <= last; i++) {
+				if (value.regionMatches(true, i, literal, 0, literal.length())) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Literals of which at least one must occur in the value
+	 */
+	private static final class LiteralSet {
+
+		private final String[] literals;
+		private final boolean ignoreCase;
+
+		LiteralSet(String[] literals, boolean ignoreCase) {
+			this.literals = literals;
+			this.ignoreCase = ignoreCase;
+		}
+	}
+
+	/**
+	 * Conservative reading of a regex that collects only facts every match must satisfy
+	 * Anything it does not understand contributes no facts, and a pattern without facts disables the prefilter
+	 */
+	private static final class PatternAnalyzer {
+
+		private static final int MIN_LITERAL_LENGTH = 3;
+
+		private final String regex;
+		private int position;
+		// Whether the atom just parsed carried a quantifier
+		private boolean quantified;
+
+		private PatternAnalyzer(String regex) {
+			this.regex = regex;
+		}
+
+		static Requirement requirementOf(Pattern pattern) {
+			int flags = pattern.flags();
+			if ((flags & (Pattern.LITERAL | Pattern.COMMENTS)) != 0) {
+				return null;
+			}
+			PatternAnalyzer analyzer = new PatternAnalyzer(pattern.pattern());
+			try {
+				Facts facts = analyzer.parseSequence((flags & Pattern.CASE_INSENSITIVE) != 0);
+				if (analyzer.position != analyzer.regex.length() || facts.isEmpty()) {
+					return null;
+				}
+				return facts.toRequirement();
+			} catch (RuntimeException e) {
+				return null;
+			}
+		}
+
+		/**
+		 * Parse up to the closing parenthesis of the current group or the end of the regex
+		 */
+		private Facts parseSequence(boolean ignoreCase) {
+			List<Facts> alternatives = new ArrayList<>();
+			Facts current = new Facts();
+			StringBuilder literalRun = new StringBuilder();
+			boolean pureLiteral = true;
+
+			while (position < regex.length() && regex.charAt(position) != ')') {
+				char c = regex.charAt(position);
+				if (c == '|') {
+					current.addLiteral(literalRun, ignoreCase);
+					current.pureLiteral = pureLiteral ? current.literalText : null;
+					alternatives.add(current);
+					current = new Facts();
+					literalRun.setLength(0);
+					pureLiteral = true;
+					position++;
+					continue;
+				}
+
+				Atom atom = parseAtom(ignoreCase);
+				if (atom.flags != null) {
+					ignoreCase = atom.flags;
+					continue;
+				}
+				int min = parseQuantifier();
+
+				if (atom.literal != 0 && !quantified) {
+					literalRun.append(atom.literal);
+					current.addChar(atom.literal, ignoreCase);
+					current.literalText.append(atom.literal);
+					continue;
+				}
+				pureLiteral = false;
+				current.addLiteral(literalRun, ignoreCase);
+				literalRun.setLength(0);
+				if (min > 0) {
+					if (atom.literal != 0) {
+						current.addChar(atom.literal, ignoreCase);
+					} else if (atom.digit) {
+						current.minDigits += min;
+					} else if (atom.group != null) {
+						current.merge(atom.group, min);
+					}
+				}
+			}
+			current.addLiteral(literalRun, ignoreCase);
+			current.pureLiteral = pureLiteral ? current.literalText : null;
+
+			if (alternatives.isEmpty()) {
+				return current;
+			}
+			alternatives.add(current);
+			return Facts.alternationOf(alternatives, ignoreCase);
+		}
+
+		private Atom parseAtom(boolean ignoreCase) {
+			char c = regex.charAt(position++);
+			switch (c) {
+				case '\\':
+					return parseEscape();
+				case '[':
+					skipClass();
+					return Atom.OPAQUE;
+				case '(':
+					return parseGroup(ignoreCase);
+				case '.':
+					return Atom.OPAQUE;
+				case '^':
+				case '$':
+					return Atom.ZERO_WIDTH;
+				case '*':
+				case '+':
+				case '?':
+				case '{':
+					throw new IllegalStateException("Dangling quantifier");
+				default:
+					return Atom.literal(c);
+			}
+		}
+
+		private Atom parseEscape() {
+			char c = regex.charAt(position++);
+			switch (c) {
+				case 'd':
+					return Atom.DIGIT;
+				case 'b': case 'B': case 'A': case 'z': case 'Z': case 'G':
+					return Atom.ZERO_WIDTH;
+				case 'D': case 's': case 'S': case 'w': case 'W': case 'h': case 'H': case 'v': case 'V': case 'R': case 'X':
+				case 't': case 'n': case 'r': case 'f': case 'a': case 'e':
+					return Atom.OPAQUE;
+				case 'x':
+					position += regex.charAt(position) == '{' ? regex.indexOf('}', position) - position + 1 : 2;
+					return Atom.OPAQUE;
+				case 'u':
+					position += 4;
+					return Atom.OPAQUE;
+				case 'c':
+					position++;
+					return Atom.OPAQUE;
+				case '0':
+					for (int i = 0; i < 3 && position < regex.length() && regex.charAt(position) >= '0' && regex.charAt(position) <= '7'; i++) {
+						position++;
+					}
+					return Atom.OPAQUE;
+				case 'p': case 'P': case 'N':
+					position += regex.charAt(position) == '{' ? regex.indexOf('}', position) - position + 1 : 1;
+					return Atom.OPAQUE;
+				case 'k':
+					position = regex.indexOf('>', position) + 1;
+					return Atom.OPAQUE;
+				case 'Q': {
+					int end = regex.indexOf("\\E", position);
+					position = end < 0 ? regex.length() : end + 2;
+					return Atom.OPAQUE;
+				}
+				default:
+					if (Character.isDigit(c)) {
+						while (position < regex.length() && Character.isDigit(regex.charAt(position))) {
+							position++;
+						}
+						return Atom.OPAQUE;
+					}
+					if (Character.isLetter(c)) {
+						throw new IllegalStateException("Unknown escape \\" + c);
+					}
+					return Atom.literal(c);
+			}
+		}
+
+		private void skipClass() {
+			int depth = 1;
+			if (position < regex.length() && regex.charAt(position) == '^') {
+				position++;
+			}
+			if (position < regex.length() && regex.charAt(position) == ']') {
+				position++;
+			}
+			while (depth > 0) {
+				char c = regex.charAt(position++);
+				if (c == '\\') {
+					position++;
+				} else if (c == '[') {
+					depth++;
+				} else if (c == ']') {
+					depth--;
+				}
+			}
+		}
+
+		private Atom parseGroup(boolean ignoreCase) {
+			boolean groupIgnoreCase = ignoreCase;
+			boolean lookaround = false;
+			if (regex.charAt(position) == '?') {
+				position++;
+				char kind = regex.charAt(position);
+				if (kind == '=' || kind == '!') {
+					lookaround = true;
+					position++;
+				} else if (kind == '<' && (regex.charAt(position + 1) == '=' || regex.charAt(position + 1) == '!')) {
+					lookaround = true;
+					position += 2;
+				} else if (kind == '<') {
+					position = regex.indexOf('>', position) + 1;
+				} else if (kind == '>' || kind == ':') {
+					position++;
+				} else {
+					// Inline flags, either (?i) for the rest of the enclosing group or (?i:...) for this group
+					Boolean flags = parseFlags(ignoreCase);
+					if (regex.charAt(position) == ')') {
+						position++;
+						return Atom.flags(flags);
+					}
+					position++;
+					groupIgnoreCase = flags;
+				}
+			}
+			Facts inner = parseSequence(groupIgnoreCase);
+			if (regex.charAt(position) != ')') {
+				throw new IllegalStateException("Unclosed group");
+			}
+			position++;
+			return lookaround ? Atom.ZERO_WIDTH : Atom.group(inner);
+		}
+
+		private Boolean parseFlags(boolean ignoreCase) {
+			boolean enable = true;
+			boolean result = ignoreCase;
+			while (regex.charAt(position) != ')' && regex.charAt(position) != ':') {
+				char flag = regex.charAt(position++);
+				if (flag == '-') {
+					enable = false;
+				} else if (flag == 'i') {
+					result = enable;
+				} else if (flag == 'x') {
+					throw new IllegalStateException("Comments mode");
+				}
+			}
+			return result;
+		}
+
+		/**
+		 * @return the minimum repetitions of the preceding atom
+		 */
+		private int parseQuantifier() {
+			quantified = false;
+			if (position >= regex.length()) {
+				return 1;
+			}
+			int min;
+			char c = regex.charAt(position);
+			if (c == '?' || c == '*') {
+				min = 0;
+				position++;
+			} else if (c == '+') {
+				min = 1;
+				position++;
+			} else if (c == '{') {
+				int end = regex.indexOf('}', position);
+				String bounds = regex.substring(position + 1, end);
+				int comma = bounds.indexOf(',');
+				min = Integer.parseInt((comma < 0 ? bounds : bounds.substring(0, comma)).trim());
+				position = end + 1;
+			} else {
+				return 1;
+			}
+			if (position < regex.length() && (regex.charAt(position) == '?' || regex.charAt(position) == '+')) {
+				position++;
+			}
+			quantified = true;
+			return min;
+		}
+	}
+
+	private static final class Atom {
+
+		static final Atom OPAQUE = new Atom((char) 0, false, null, null);
+		static final Atom ZERO_WIDTH = new Atom((char) 0, false, null, null);
+		static final Atom DIGIT = new Atom((char) 0, true, null, null);
+
+		final char literal;
+		final boolean digit;
+		final Facts group;
+		final Boolean flags;
+
+		private Atom(char literal, boolean digit, Facts group, Boolean flags) {
+			this.literal = literal;
+			this.digit = digit;
+			this.group = group;
+			this.flags = flags;
+		}
+
+		static Atom literal(char c) {
+			return new Atom(c, false, null, null);
+		}
+
+		static Atom group(Facts facts) {
+			return new Atom((char) 0, false, facts, null);
+		}
+
+		static Atom flags(Boolean ignoreCase) {
+			return new Atom((char) 0, false, null, ignoreCase);
+		}
+	}
+
+	/**
+	 * Facts collected for a sequence; merged into the enclosing sequence when its group is required
+	 */
+	private static final class Facts {
+
+		int minDigits;
+		long lowChars;
+		long highChars;
+		final List<LiteralSet> literalSets = new ArrayList<>();
+		final StringBuilder literalText = new StringBuilder();
+		// The sequence's text if it consists of literal characters only, for literal alternations
+		StringBuilder pureLiteral;
+
+		boolean isEmpty() {
+			return minDigits == 0 && lowChars == 0 && highChars == 0 && literalSets.isEmpty();
+		}
+
+		void addChar(char c, boolean ignoreCase) {
+			// Letters may match in either case, so only digits, punctuation and symbols are required as is
+			if (c >= 128 || (ignoreCase && Character.isLetter(c))) {
+				return;
+			}
+			if (c < 64) {
+				lowChars |= 1L << c;
+			} else if (!Character.isLetter(c)) {
+				highChars |= 1L << (c - 64);
+			}
+		}
+
+		void addLiteral(CharSequence run, boolean ignoreCase) {
+			if (run.length() >= PatternAnalyzer.MIN_LITERAL_LENGTH) {
+				String literal = run.toString();
+				literalSets.add(new LiteralSet(new String[] {literal}, ignoreCase));
+			}
+		}
+
+		void merge(Facts inner, int times) {
+			minDigits += inner.minDigits * times;
+			lowChars |= inner.lowChars;
+			highChars |= inner.highChars;
+			literalSets.addAll(inner.literalSets);
+		}
+
+		/**
+		 * Facts of an alternation: a literal set if every branch is plain text, otherwise nothing
+		 */
+		static Facts alternationOf(List<Facts> alternatives, boolean ignoreCase) {
+			Set<String> literals = new LinkedHashSet<>();
+			for (Facts alternative : alternatives) {
+				if (alternative.pureLiteral == null || alternative.pureLiteral.length() == 0) {
+					return new Facts();
+				}
+				String literal = alternative.pureLiteral.toString();
+				literals.add(ignoreCase ? literal.toLowerCase(Locale.ROOT) : literal);
+			}
+			// A value containing "pass" also contains "password", so the longer literal adds nothing
+			literals.removeIf(literal -> literals.stream().anyMatch(other -> !other.equals(literal) && literal.contains(other)));
+			Facts facts = new Facts();
+			facts.literalSets.add(new LiteralSet(literals.toArray(new String[0]), ignoreCase));
+			return facts;
+		}
+
+		Requirement toRequirement() {
+			return new Requirement(minDigits, lowChars, highChars, literalSets);
+		}
+	}
+}
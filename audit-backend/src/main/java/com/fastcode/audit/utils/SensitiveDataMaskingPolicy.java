@@ -0,0 +1,152 @@
+package com.fastcode.audit.utils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Decides per field of an audit event how it is masked, from a lookup table built once per configuration
+ * MASK fields such as "password" are replaced outright, SKIP fields such as "httpMethod" are copied
+ * without scanning, and every other field is scanned with the sensitive data patterns
+ * Entries are field names, matched ignoring case, '_' and '-', or dotted paths such as "headers.authorization"
+ * for values nested in maps; a path entry wins over a name entry
+ * Instances are immutable and safe to share between threads
+ */
+public final class SensitiveDataMaskingPolicy {
+
+	public enum Action {
+		MASK,
+		SKIP,
+		SCAN
+	}
+
+	public static final List<String> DEFAULT_MASK_FIELDS = List.of(
+			"password", "passwd", "pwd", "secret", "clientSecret", "token", "accessToken", "refreshToken", "idToken",
+			"apiKey", "authorization", "creditCard", "cardNumber", "cvv", "ssn");
+
+	public static final List<String> DEFAULT_SKIP_FIELDS = List.of(
+			"httpMethod", "path", "operation", "responseStatus", "contentType", "requestContentType", "scheme",
+			"browser", "userAgent", "action", "actor", "origin", "entityName", "entityClass", "entityType", "entityId",
+			"exceptionType", "complianceType", "complianceEvent", "securityEvent", "errorEvent", "navigationEvent",
+			"authorizationEvent", "passwordChangeEvent", "authenticationMethod", "result", "severity", "timestamp",
+			"requestTimestamp", "checkTimestamp", "responseTime", "durationMs", "correlationId", "correlationTimedOut",
+			"samplingWeight", "occurrenceCount", "firstSeen", "lastSeen", "deduplicatedFrom", "version", "previousVersion");
+
+	private final SensitiveDataMasker masker;
+	private final Map<String, Action> byName;
+	private final Map<String, Action> byPath;
+	private final Action defaultAction;
+
+	private SensitiveDataMaskingPolicy(SensitiveDataMasker masker, Map<String, Action> byName, Map<String, Action> byPath,
+									   Action defaultAction) {
+		this.masker = masker;
+		this.byName = byName;
+		this.byPath = byPath;
+		this.defaultAction = defaultAction;
+	}
+
+	/**
+	 * Build the lookup table; a field listed as both MASK and SKIP is masked
+	 */
+	public static SensitiveDataMaskingPolicy of(SensitiveDataMasker masker, List<String> maskFields, List<String> skipFields,
+												Action defaultAction) {
+		Map<String, Action> byName = new HashMap<>();
+		Map<String, Action> byPath = new HashMap<>();
+		for (String field : skipFields) {
+			put(byName, byPath, field, Action.SKIP);
+		}
+		for (String field : maskFields) {
+			put(byName, byPath, field, Action.MASK);
+		}
+		return new SensitiveDataMaskingPolicy(masker, byName, byPath, defaultAction);
+	}
+
+	private static void put(Map<String, Action> byName, Map<String, Action> byPath, String field, Action action) {
+		String trimmed = field.trim();
+		if (trimmed.isEmpty()) {
+			return;
+		}
+		if (trimmed.indexOf('.') >= 0) {
+			byPath.put(trimmed.toLowerCase(Locale.ROOT), action);
+		} else {
+			// Keep the configured spelling so the usual keys resolve without normalising them
+			byName.put(trimmed, action);
+			byName.put(normalize(trimmed), action);
+		}
+	}
+
+	private static String normalize(String field) {
+		StringBuilder normalized = new StringBuilder(field.length());
+		for (int i = 0; i < field.length(); i++) {
+			char c = field.charAt(i);
+			if (c != '_' && c != '-') {
+				normalized.append(Character.toLowerCase(c));
+			}
+		}
+		return normalized.toString();
+	}
+
+	public SensitiveDataMasker getMasker() {
+		return masker;
+	}
+
+	public boolean hasPathRules() {
+		return !byPath.isEmpty();
+	}
+
+	/**
+	 * @param path dotted path of the field, or null when no path rules are configured
+	 */
+	public Action actionFor(String field, String path) {
+		if (path != null && !byPath.isEmpty()) {
+			Action action = byPath.get(path.toLowerCase(Locale.ROOT));
+			if (action != null) {
+				return action;
+			}
+		}
+		if (field == null) {
+			return defaultAction;
+		}
+		Action action = byName.get(field);
+		if (action == null) {
+			action = byName.get(normalize(field));
+		}
+		return action != null ? action : defaultAction;
+	}
+
+	/**
+	 * Mask a map of event details, recursing into nested maps
+	 */
+	public Map<String, Object> mask(Map<String, Object> details) {
+		return mask(details, null);
+	}
+
+	private Map<String, Object> mask(Map<String, Object> details, String parentPath) {
+		Map<String, Object> masked = new HashMap<>();
+		for (Map.Entry<String, Object> entry : details.entrySet()) {
+			String path = byPath.isEmpty() ? null
+					: parentPath == null ? entry.getKey() : parentPath + "." + entry.getKey();
+			masked.put(entry.getKey(), mask(entry.getKey(), path, entry.getValue()));
+		}
+		return masked;
+	}
+
+	@SuppressWarnings("unchecked")
+	private Object mask(String field, String path, Object value) {
+		Action action = actionFor(field, path);
+		if (value == null || action == Action.SKIP) {
+			return value;
+		}
+		if (action == Action.MASK) {
+			return SensitiveDataMasker.MASK;
+		}
+		if (value instanceof String) {
+			return masker.mask((String) value);
+		}
+		if (value instanceof Map) {
+			return mask((Map<String, Object>) value, path);
+		}
+		return value;
+	}
+}
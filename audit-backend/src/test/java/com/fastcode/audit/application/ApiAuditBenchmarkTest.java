@@ -0,0 +1,109 @@
+package com.fastcode.audit.application;
+
+import com.fastcode.audit.AuditPropertiesConfiguration;
+import com.fastcode.audit.benchmark.AuditBenchmark;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.zalando.logbook.Correlation;
+import org.zalando.logbook.HttpHeaders;
+import org.zalando.logbook.HttpRequest;
+import org.zalando.logbook.HttpResponse;
+import org.zalando.logbook.Precorrelation;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.when;
+
+/**
+ * Request-thread latency of the API audit sink, with events built inline and with deferral enabled
+ * Calls arrive at a fixed rate the two default workers can keep up with, as a closed loop would only measure
+ * the wait for a full lane; 1.3 KB JSON bodies are captured and masked
+ * AuditService is stubbed, so the inline numbers leave out event submission and understate the gap
+ * Deferral only helps with spare cores: on a single CPU the workers preempt the request thread
+ */
+@Tag(AuditBenchmark.TAG)
+class ApiAuditBenchmarkTest {
+
+    private static final int ITERATIONS = 10_000;
+    private static final long INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    void requestThreadLatency() throws Exception {
+        run("api audit sink, inline", false);
+        run("api audit sink, deferred", true);
+    }
+
+    private void run(String name, boolean deferred) throws Exception {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("audit.api.body.max.bytes", "4096")
+                .withProperty("sensitive.data.masking.enabled", "true")
+                .withProperty("audit.api.deferred.enabled", String.valueOf(deferred));
+        AuditPropertiesConfiguration auditConfig = new AuditPropertiesConfiguration();
+        ReflectionTestUtils.setField(auditConfig, "env", environment);
+        AuditService auditService = Mockito.mock(AuditService.class, Mockito.withSettings().stubOnly());
+        ApiAuditCorrelator correlator = new ApiAuditCorrelator(auditService, auditConfig);
+        ApiAuditSampler sampler = new ApiAuditSampler(auditConfig);
+        sampler.init();
+        ApiAuditDispatcher dispatcher = new ApiAuditDispatcher(auditConfig);
+        dispatcher.init();
+        ApiAudit apiAudit = new ApiAudit(auditService, auditConfig, correlator, sampler, dispatcher);
+
+        HttpRequest request = request();
+        HttpResponse response = response();
+        Precorrelation precorrelation = Mockito.mock(Precorrelation.class, Mockito.withSettings().stubOnly());
+        when(precorrelation.getId()).thenReturn("benchmark");
+        when(precorrelation.getStart()).thenReturn(Instant.now());
+        Correlation correlation = Mockito.mock(Correlation.class, Mockito.withSettings().stubOnly());
+        when(correlation.getId()).thenReturn("benchmark");
+        when(correlation.getDuration()).thenReturn(Duration.ofMillis(3));
+
+        long[] latencies = AuditBenchmark.pacedLatencies(ITERATIONS, INTERVAL_NANOS, () -> {
+            try {
+                apiAudit.write(precorrelation, request);
+                apiAudit.write(correlation, request, response);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        dispatcher.shutdown();
+        AuditBenchmark.reportLatencies(name, latencies);
+    }
+
+    private static HttpRequest request() throws Exception {
+        HttpRequest request = Mockito.mock(HttpRequest.class, Mockito.withSettings().stubOnly());
+        when(request.getMethod()).thenReturn("POST");
+        when(request.getPath()).thenReturn("/api/orders");
+        when(request.getQuery()).thenReturn("");
+        when(request.getScheme()).thenReturn("https");
+        when(request.getRemote()).thenReturn("10.0.0.1");
+        when(request.getContentType()).thenReturn("application/json");
+        when(request.getCharset()).thenReturn(StandardCharsets.UTF_8);
+        when(request.getHeaders()).thenReturn(HttpHeaders.of("User-Agent", "benchmark"));
+        when(request.getBody()).thenReturn(body());
+        return request;
+    }
+
+    private static HttpResponse response() throws Exception {
+        HttpResponse response = Mockito.mock(HttpResponse.class, Mockito.withSettings().stubOnly());
+        when(response.getStatus()).thenReturn(201);
+        when(response.getContentType()).thenReturn("application/json");
+        when(response.getCharset()).thenReturn(StandardCharsets.UTF_8);
+        when(response.getHeaders()).thenReturn(HttpHeaders.empty());
+        when(response.getBody()).thenReturn(body());
+        return response;
+    }
+
+    private static byte[] body() {
+        StringBuilder body = new StringBuilder("{\"customer\":\"jane.doe@example.com\",\"card\":\"4111 1111 1111 1111\",\"items\":[");
+        for (int i = 0; i < 40; i++) {
+            body.append(i == 0 ? "" : ",").append("{\"sku\":\"SKU-").append(i).append("\",\"quantity\":").append(i % 5 + 1).append('}');
+        }
+        return body.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,88 @@
+package com.fastcode.audit.application;
+
+import com.fastcode.audit.AuditPropertiesConfiguration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ApiAuditDispatcherTest {
+
+    private ApiAuditDispatcher dispatcher;
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    void runsInlineWhenDeferralIsDisabled() {
+        dispatcher = dispatcher(new MockEnvironment());
+        List<Thread> threads = new ArrayList<>();
+
+        dispatcher.execute("a", () -> threads.add(Thread.currentThread()));
+
+        assertThat(dispatcher.isEnabled()).isFalse();
+        assertThat(threads).containsExactly(Thread.currentThread());
+    }
+
+    @Test
+    void keepsTasksOfOneCorrelationInOrderWhenTheLaneIsFull() throws Exception {
+        dispatcher = dispatcher(new MockEnvironment()
+                .withProperty("audit.api.deferred.enabled", "true")
+                .withProperty("audit.api.deferred.threads", "1")
+                .withProperty("audit.api.deferred.queue.capacity", "1"));
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> threads = Collections.synchronizedList(new ArrayList<>());
+
+        dispatcher.execute("a", () -> await(release));
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < 5; i++) {
+                int task = i;
+                dispatcher.execute("a", () -> {
+                    order.add(task);
+                    threads.add(Thread.currentThread());
+                });
+            }
+        });
+        producer.start();
+        // The producer fills the one queue slot and then has to wait for the blocked worker
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (dispatcher.getBlockedSubmits() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+        producer.join(5000);
+        dispatcher.shutdown();
+
+        assertThat(dispatcher.getBlockedSubmits()).isPositive();
+        assertThat(dispatcher.getDroppedTasks()).isZero();
+        assertThat(order).containsExactly(0, 1, 2, 3, 4);
+        assertThat(threads).doesNotContain(producer);
+    }
+
+    private static ApiAuditDispatcher dispatcher(MockEnvironment environment) {
+        AuditPropertiesConfiguration auditConfig = new AuditPropertiesConfiguration();
+        ReflectionTestUtils.setField(auditConfig, "env", environment);
+        ApiAuditDispatcher dispatcher = new ApiAuditDispatcher(auditConfig);
+        dispatcher.init();
+        return dispatcher;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.fastcode.audit.application;
+
+import com.fastcode.audit.AuditPropertiesConfiguration;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ApiAuditSamplerTest {
+
+    @Test
+    void auditsEveryCallWhenDisabled() {
+        ApiAuditSampler sampler = sampler(new MockEnvironment());
+
+        assertThat(sampler.isEnabled()).isFalse();
+        assertThat(sampler.sample("c-1", "GET", "/api/orders", 200)).isEqualTo(1.0);
+    }
+
+    @Test
+    void appliesTheFirstMatchingRule() {
+        ApiAuditSampler sampler = sampler(enabled()
+                .withProperty("audit.api.sampling.rules", "* * 5xx 1; GET /api/** 2xx 0")
+                .withProperty("audit.api.sampling.default.rate", "0"));
+
+        assertThat(sampler.sample("c-1", "GET", "/api/orders", 500)).isEqualTo(1.0);
+        assertThat(sampler.sample("c-1", "GET", "/api/orders", 200)).isZero();
+        assertThat(sampler.sample("c-1", "POST", "/api/orders", 201)).isZero();
+        assertThat(sampler.getSampledCalls()).isEqualTo(1);
+        assertThat(sampler.getDroppedCalls()).isEqualTo(2);
+    }
+
+    @Test
+    void givesBothHalvesOfACallTheSameDecision() {
+        ApiAuditSampler sampler = sampler(enabled().withProperty("audit.api.sampling.default.rate", "0.5"));
+
+        int sampled = 0;
+        for (int i = 0; i < 1000; i++) {
+            String correlationId = "c-" + i;
+            double request = sampler.sample(correlationId, "GET", "/api/orders", null);
+            double response = sampler.sample(correlationId, "GET", "/api/orders", 200);
+            assertThat(response).isEqualTo(request);
+            if (request > 0) {
+                assertThat(request).isEqualTo(2.0);
+                sampled++;
+            }
+        }
+
+        assertThat(sampled).isBetween(400, 600);
+    }
+
+    private static MockEnvironment enabled() {
+        return new MockEnvironment().withProperty("audit.api.sampling.enabled", "true");
+    }
+
+    private static ApiAuditSampler sampler(MockEnvironment environment) {
+        AuditPropertiesConfiguration auditConfig = new AuditPropertiesConfiguration();
+        ReflectionTestUtils.setField(auditConfig, "env", environment);
+        ApiAuditSampler sampler = new ApiAuditSampler(auditConfig);
+        sampler.init();
+        return sampler;
+    }
+}
@@ -0,0 +1,121 @@
+package com.fastcode.audit.application;
+
+import com.fastcode.audit.AuditPropertiesConfiguration;
+import com.fastcode.audit.benchmark.AuditBenchmark;
+import com.fastcode.audit.utils.PrivacyAwareUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Events per second encrypted by AuditCryptoService and by the static PrivacyAwareUtils helpers it replaced
+ * Each event has 15 string fields; the service reuses its derived keys and per-thread Cipher instances, the
+ * helpers look up the Cipher, decode or derive the key and, for the secure layout, create a SecureRandom per value
+ */
+@Tag(AuditBenchmark.TAG)
+class AuditCryptoBenchmarkTest {
+
+    // The service runs need this many events to reach compiled code; the helpers are slow enough with fewer
+    private static final int SERVICE_EVENTS = 200_000;
+    private static final int HELPER_EVENTS = 20_000;
+    private static final String SECRET_KEY = Base64.getEncoder().encodeToString("0123456789abcdef".getBytes(StandardCharsets.UTF_8));
+    private static final String LAYOUT_KEY = "benchmark-layout-key";
+    private static final String LAYOUT_SALT = "benchmark-layout-salt";
+
+    @Test
+    void fieldEncryptionEventsPerSecond() {
+        Map<String, Object> details = details();
+
+        AuditCryptoService secretService = service(new MockEnvironment()
+                .withProperty("encryption.secret.enabled", "true")
+                .withProperty("encryption.secret.key", SECRET_KEY));
+        assertThat(PrivacyAwareUtils.decryptMap(secretService.encrypt(details), SECRET_KEY)).isEqualTo(details);
+        eventsPerSecond("encryption secret, crypto service", SERVICE_EVENTS, () -> secretService.encrypt(details));
+        eventsPerSecond("encryption secret, static helpers", HELPER_EVENTS, () -> PrivacyAwareUtils.encryptMap(details, SECRET_KEY));
+
+        AuditCryptoService layoutService = service(new MockEnvironment()
+                .withProperty("secure.layout.enabled", "true")
+                .withProperty("secure.layout.key", LAYOUT_KEY)
+                .withProperty("secure.layout.salt", LAYOUT_SALT));
+        assertThat(PrivacyAwareUtils.decryptMapWithSecureLayout(layoutService.encrypt(details), LAYOUT_KEY, LAYOUT_SALT))
+                .isEqualTo(details);
+        eventsPerSecond("secure layout, crypto service", SERVICE_EVENTS, () -> layoutService.encrypt(details));
+        eventsPerSecond("secure layout, static helpers", HELPER_EVENTS,
+                () -> PrivacyAwareUtils.encryptMapWithSecureLayout(details, LAYOUT_KEY, LAYOUT_SALT));
+    }
+
+    @Test
+    void envelopeAgainstFieldEncryption() throws Exception {
+        Map<String, Object> details = details();
+        ObjectMapper objectMapper = new ObjectMapper();
+        MockEnvironment secret = new MockEnvironment()
+                .withProperty("encryption.secret.enabled", "true")
+                .withProperty("encryption.secret.key", SECRET_KEY);
+        AuditCryptoService fieldService = service(secret);
+        AuditCryptoService bothLayersService = service(new MockEnvironment()
+                .withProperty("encryption.secret.enabled", "true")
+                .withProperty("encryption.secret.key", SECRET_KEY)
+                .withProperty("secure.layout.enabled", "true")
+                .withProperty("secure.layout.key", LAYOUT_KEY)
+                .withProperty("secure.layout.salt", LAYOUT_SALT));
+        AuditCryptoService envelopeService = service(new MockEnvironment()
+                .withProperty("encryption.secret.enabled", "true")
+                .withProperty("encryption.secret.key", SECRET_KEY)
+                .withProperty("audit.encryption.mode", "envelope"));
+        assertThat(AuditCryptoService.isEnvelope(envelopeService.encrypt(details))).isTrue();
+        assertThat(envelopeService.decrypt(envelopeService.encrypt(details))).isEqualTo(details);
+
+        AuditBenchmark.reportSize("elements column, plain", objectMapper.writeValueAsBytes(details).length);
+        AuditBenchmark.reportSize("elements column, field mode", objectMapper.writeValueAsBytes(fieldService.encrypt(details)).length);
+        AuditBenchmark.reportSize("elements column, field mode with secure layout",
+                objectMapper.writeValueAsBytes(bothLayersService.encrypt(details)).length);
+        AuditBenchmark.reportSize("elements column, envelope", objectMapper.writeValueAsBytes(envelopeService.encrypt(details)).length);
+
+        eventsPerSecond("field mode", SERVICE_EVENTS, () -> fieldService.encrypt(details));
+        eventsPerSecond("field mode with secure layout", SERVICE_EVENTS, () -> bothLayersService.encrypt(details));
+        eventsPerSecond("envelope", SERVICE_EVENTS, () -> envelopeService.encrypt(details));
+    }
+
+    private static void eventsPerSecond(String name, int events, Supplier<Map<String, Object>> encryption) {
+        AuditBenchmark.averageNanos(name, events, () -> AuditBenchmark.consume(encryption.get()));
+    }
+
+    static AuditCryptoService service(MockEnvironment environment) {
+        AuditPropertiesConfiguration auditConfig = new AuditPropertiesConfiguration();
+        ReflectionTestUtils.setField(auditConfig, "env", environment);
+        return new AuditCryptoService(auditConfig, new ObjectMapper());
+    }
+
+    /**
+     * Details of a typical API event, 15 string fields
+     */
+    static Map<String, Object> details() {
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("httpMethod", "POST");
+        details.put("path", "/api/orders/17/items");
+        details.put("query", "expand=items&locale=en-GB");
+        details.put("status", "201");
+        details.put("durationMs", "12");
+        details.put("remoteAddress", "10.0.12.34");
+        details.put("userAgent", "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0");
+        details.put("correlationId", "3f2b8c1e-6d0a-4c5e-9a57-1f0e2d3c4b5a");
+        details.put("sessionId", "9c1d7e2f-0b3a-4d6c-8e5f-7a6b5c4d3e2f");
+        details.put("userId", "42");
+        details.put("username", "jane.doe");
+        details.put("tenant", "acme");
+        details.put("contentType", "application/json");
+        details.put("requestBody", "{\"sku\":\"SKU-17\",\"quantity\":3,\"note\":\"leave at the door\"}");
+        details.put("responseBody", "{\"orderId\":\"A-17\",\"status\":\"created\"}");
+        return details;
+    }
+}
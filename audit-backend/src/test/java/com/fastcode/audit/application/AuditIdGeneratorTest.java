@@ -0,0 +1,83 @@
+package com.fastcode.audit.application;
+
+import com.fastcode.audit.AuditPropertiesConfiguration;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuditIdGeneratorTest {
+
+    @Test
+    void uuidV7IdentifiersIncreaseWithinOneMillisecond() {
+        AuditIdGenerator generator = generator("uuidv7");
+        List<String> identifiers = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            identifiers.add(generator.nextId());
+        }
+
+        assertThat(identifiers).isSortedAccordingTo(String::compareTo).doesNotHaveDuplicates();
+        UUID uuid = UUID.fromString(identifiers.get(0));
+        assertThat(uuid.version()).isEqualTo(7);
+        assertThat(uuid.variant()).isEqualTo(2);
+    }
+
+    @Test
+    void ulidIdentifiersIncreaseAndRoundTripThroughBytes() {
+        AuditIdGenerator generator = generator("ulid");
+        List<String> identifiers = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            identifiers.add(generator.nextId());
+        }
+
+        assertThat(identifiers).isSortedAccordingTo(String::compareTo).doesNotHaveDuplicates();
+        assertThat(identifiers.get(0)).hasSize(26);
+        String identifier = identifiers.get(42);
+        assertThat(AuditIdGenerator.fromBytes(AuditIdGenerator.toBytes(identifier), AuditIdGenerator.Strategy.ULID))
+                .isEqualTo(identifier);
+    }
+
+    @Test
+    void identifiersAreUniqueAcrossThreads() throws Exception {
+        AuditIdGenerator generator = generator("uuidv7");
+        Set<String> identifiers = Collections.synchronizedSet(new HashSet<>());
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    identifiers.add(generator.nextId());
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(identifiers).hasSize(80_000);
+    }
+
+    @Test
+    void fallsBackToUuidV7ForUnknownStrategies() {
+        String identifier = generator("snowflake").nextId();
+
+        assertThat(UUID.fromString(identifier).version()).isEqualTo(7);
+    }
+
+    private static AuditIdGenerator generator(String strategy) {
+        AuditPropertiesConfiguration auditConfig = new AuditPropertiesConfiguration();
+        ReflectionTestUtils.setField(auditConfig, "env", new MockEnvironment().withProperty("audit.identifier.strategy", strategy));
+        AuditIdGenerator generator = new AuditIdGenerator(auditConfig);
+        generator.init();
+        return generator;
+    }
+}
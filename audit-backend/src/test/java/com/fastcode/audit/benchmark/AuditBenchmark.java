@@ -0,0 +1,148 @@
+package com.fastcode.audit.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Timing helpers for the audit benchmarks
+ * Benchmarks are JUnit tests tagged "benchmark" and named *BenchmarkTest; they are excluded from the default
+ * test run and only report numbers, they never fail on a threshold. Run them with
+ * mvn test -Dgroups=benchmark -DexcludedGroups=none
+ * Iterations can be scaled with -Daudit.benchmark.scale (default 1.0)
+ */
+@Slf4j
+public final class AuditBenchmark {
+
+    public static final String TAG = "benchmark";
+
+    private static final double SCALE = Double.parseDouble(System.getProperty("audit.benchmark.scale", "1.0"));
+
+    // Results are folded in here so the JIT cannot discard the measured work
+    private static volatile long blackhole;
+
+    private AuditBenchmark() {
+    }
+
+    /**
+     * @return the iteration count scaled by audit.benchmark.scale, at least 1
+     */
+    public static int iterations(int iterations) {
+        return Math.max(1, (int) (iterations * SCALE));
+    }
+
+    /**
+     * Keep a result alive
+     */
+    public static void consume(Object value) {
+        blackhole += value != null ? value.hashCode() : 0;
+    }
+
+    public static void consume(long value) {
+        blackhole += value;
+    }
+
+    /**
+     * Time each call of the operation after a warmup of the same length
+     * @return latency of every measured call in nanoseconds
+     */
+    public static long[] latencies(int iterations, Runnable operation) {
+        int count = iterations(iterations);
+        for (int i = 0; i < count; i++) {
+            operation.run();
+        }
+        long[] latencies = new long[count];
+        for (int i = 0; i < count; i++) {
+            long start = System.nanoTime();
+            operation.run();
+            latencies[i] = System.nanoTime() - start;
+        }
+        return latencies;
+    }
+
+    /**
+     * Time each call of the operation with calls started at a fixed interval rather than back to back
+     * Used where work is handed to other threads, so the measurement is not just the wait for a saturated queue
+     * @return latency of every measured call in nanoseconds
+     */
+    public static long[] pacedLatencies(int iterations, long intervalNanos, Runnable operation) {
+        int count = iterations(iterations);
+        paced(count, intervalNanos, operation, null);
+        long[] latencies = new long[count];
+        paced(count, intervalNanos, operation, latencies);
+        return latencies;
+    }
+
+    private static void paced(int count, long intervalNanos, Runnable operation, long[] latencies) {
+        long next = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            next += intervalNanos;
+            long start = System.nanoTime();
+            operation.run();
+            if (latencies != null) {
+                latencies[i] = System.nanoTime() - start;
+            }
+            long wait;
+            while ((wait = next - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+        }
+    }
+
+    /**
+     * Log p50, p99, p99.9 and max of the latencies in microseconds
+     */
+    public static void reportLatencies(String name, long[] latencies) {
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        log.info(String.format(Locale.ROOT, "%-48s n=%-8d p50=%9.2fus p99=%9.2fus p99.9=%9.2fus max=%9.2fus",
+                name, sorted.length, micros(percentile(sorted, 50)), micros(percentile(sorted, 99)),
+                micros(percentile(sorted, 99.9)), micros(sorted[sorted.length - 1])));
+    }
+
+    /**
+     * Run the operation the given number of times after a warmup and log the average cost per operation
+     * @return average nanoseconds per operation
+     */
+    public static double averageNanos(String name, int iterations, Runnable operation) {
+        int count = iterations(iterations);
+        for (int i = 0; i < count; i++) {
+            operation.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            operation.run();
+        }
+        double nanosPerOp = (double) (System.nanoTime() - start) / count;
+        log.info(String.format(Locale.ROOT, "%-48s n=%-8d %12.1f ns/op %14.0f ops/s",
+                name, count, nanosPerOp, TimeUnit.SECONDS.toNanos(1) / nanosPerOp));
+        return nanosPerOp;
+    }
+
+    /**
+     * Log a throughput measured by the caller
+     */
+    public static void reportThroughput(String name, long operations, long elapsedNanos) {
+        double perSecond = operations * (double) TimeUnit.SECONDS.toNanos(1) / Math.max(1, elapsedNanos);
+        log.info(String.format(Locale.ROOT, "%-48s n=%-8d %14.0f ops/s", name, operations, perSecond));
+    }
+
+    /**
+     * Log a size in bytes, e.g. of a stored row or column
+     */
+    public static void reportSize(String name, long bytes) {
+        log.info(String.format(Locale.ROOT, "%-48s %8d bytes", name, bytes));
+    }
+
+    static long percentile(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1000.0;
+    }
+}
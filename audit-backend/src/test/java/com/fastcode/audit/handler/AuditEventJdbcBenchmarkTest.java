@@ -0,0 +1,121 @@
+package com.fastcode.audit.handler;
+
+import com.fastcode.audit.benchmark.AuditBenchmark;
+import com.fastcode.audit.domain.AuditEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Rows per second written by COPY, by batched multi-row inserts and by one insert per row
+ * Runs against an in-memory H2 database unless -Daudit.benchmark.jdbc.url (with .user and .password) points at
+ * PostgreSQL; H2 has no COPY, so there the COPY run measures its fallback to batched inserts
+ * Rows go to the audit table and are deleted afterwards, so only point it at a scratch database
+ */
+@Tag(AuditBenchmark.TAG)
+class AuditEventJdbcBenchmarkTest {
+
+    private static final int EVENTS = 20_000;
+    private static final int ROW_BY_ROW_EVENTS = 2_000;
+    private static final int BATCH_SIZE = 500;
+
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private AuditEventJdbcWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        String url = System.getProperty("audit.benchmark.jdbc.url", "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        dataSource = new SingleConnectionDataSource(url, System.getProperty("audit.benchmark.jdbc.user", ""),
+                System.getProperty("audit.benchmark.jdbc.password", ""), true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS audit (identifier VARCHAR(200) PRIMARY KEY, timestamp TIMESTAMP NOT NULL,"
+                + " actor VARCHAR(200) NOT NULL, origin VARCHAR(200), action VARCHAR(200) NOT NULL, http_method VARCHAR(50),"
+                + " path VARCHAR(500), entity_name VARCHAR(200), operation VARCHAR(100), response_status VARCHAR(10),"
+                + " exception_type VARCHAR(200), elements TEXT, session_id_bidx VARCHAR(64), user_id_bidx VARCHAR(64),"
+                + " username_bidx VARCHAR(64))");
+        writer = new AuditEventJdbcWriter(dataSource, new ObjectMapper());
+    }
+
+    @AfterEach
+    void tearDown() {
+        deleteBenchmarkRows();
+        dataSource.destroy();
+    }
+
+    @Test
+    void rowsPerSecond() {
+        // The first pass warms up the JIT and the connection, the second is reported
+        for (int round = 0; round < 2; round++) {
+            boolean report = round == 1;
+            run("jdbc copy, batches of " + BATCH_SIZE, EVENTS, writer::copy, report);
+            run("jdbc multi-row insert, batches of " + BATCH_SIZE, EVENTS, writer::insert, report);
+            run("jdbc insert per row", ROW_BY_ROW_EVENTS, batch -> {
+                int written = 0;
+                for (AuditEvent auditEvent : batch) {
+                    written += writer.insert(auditEvent) ? 1 : 0;
+                }
+                return written;
+            }, report);
+        }
+    }
+
+    private void run(String name, int count, Function<List<AuditEvent>, Integer> write, boolean report) {
+        List<List<AuditEvent>> batches = new ArrayList<>();
+        int events = AuditBenchmark.iterations(count);
+        for (int i = 0; i < events; i += BATCH_SIZE) {
+            List<AuditEvent> batch = new ArrayList<>();
+            for (int j = i; j < Math.min(events, i + BATCH_SIZE); j++) {
+                batch.add(event());
+            }
+            batches.add(batch);
+        }
+
+        long written = 0;
+        long start = System.nanoTime();
+        for (List<AuditEvent> batch : batches) {
+            written += write.apply(batch);
+        }
+        long elapsed = System.nanoTime() - start;
+        if (report) {
+            AuditBenchmark.reportThroughput(name, written, elapsed);
+        }
+        deleteBenchmarkRows();
+    }
+
+    private void deleteBenchmarkRows() {
+        jdbcTemplate.update("DELETE FROM audit WHERE identifier LIKE 'benchmark-%'");
+    }
+
+    private static AuditEvent event() {
+        AuditEvent auditEvent = new AuditEvent();
+        auditEvent.setIdentifier("benchmark-" + UUID.randomUUID());
+        auditEvent.setTimestamp(new Timestamp(System.currentTimeMillis()));
+        auditEvent.setActor("benchmark");
+        auditEvent.setOrigin("10.0.0.1");
+        auditEvent.setAction("API_REQUEST");
+        auditEvent.setHttpMethod("POST");
+        auditEvent.setPath("/api/orders");
+        auditEvent.setResponseStatus("201");
+        Map<String, Object> elements = new LinkedHashMap<>();
+        elements.put("path", "/api/orders");
+        elements.put("query", "expand=items");
+        elements.put("userAgent", "Mozilla/5.0 (X11; Linux x86_64)");
+        elements.put("durationMs", 12);
+        elements.put("requestBody", "{\"sku\":\"SKU-17\",\"quantity\":3}");
+        auditEvent.setElements(elements);
+        return auditEvent;
+    }
+}
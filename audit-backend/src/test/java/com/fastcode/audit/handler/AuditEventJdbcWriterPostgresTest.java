@@ -0,0 +1,102 @@
+package com.fastcode.audit.handler;
+
+import com.fastcode.audit.domain.AuditEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.sql.Connection;
+import java.sql.Timestamp;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs COPY against a real PostgreSQL server, which the default build does not have
+ * Enable with -Daudit.test.postgres.url=jdbc:postgresql://host/db plus .user and .password;
+ * writes to the audit table and deletes its own rows afterwards
+ */
+@EnabledIfSystemProperty(named = "audit.test.postgres.url", matches = ".+")
+class AuditEventJdbcWriterPostgresTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private AuditEventJdbcWriter writer;
+    private String prefix;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new SingleConnectionDataSource(System.getProperty("audit.test.postgres.url"),
+                System.getProperty("audit.test.postgres.user", ""), System.getProperty("audit.test.postgres.password", ""), true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS audit (identifier VARCHAR(200) PRIMARY KEY, timestamp TIMESTAMP NOT NULL,"
+                + " actor VARCHAR(200) NOT NULL, origin VARCHAR(200), action VARCHAR(200) NOT NULL, http_method VARCHAR(50),"
+                + " path VARCHAR(500), entity_name VARCHAR(200), operation VARCHAR(100), response_status VARCHAR(10),"
+                + " exception_type VARCHAR(200), elements TEXT, session_id_bidx VARCHAR(64), user_id_bidx VARCHAR(64),"
+                + " username_bidx VARCHAR(64))");
+        writer = new AuditEventJdbcWriter(dataSource, objectMapper);
+        prefix = "copy-test-" + UUID.randomUUID() + "-";
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM audit WHERE identifier LIKE ?", prefix + "%");
+        dataSource.destroy();
+    }
+
+    @Test
+    void copiesQuotesNewlinesAndNulls() throws Exception {
+        AuditEvent auditEvent = event(prefix + "a");
+        auditEvent.setOrigin("");
+        auditEvent.setPath("/items,\"quoted\"");
+        auditEvent.setExceptionType("IllegalStateException: first line\r\nsecond line");
+        Map<String, Object> elements = new LinkedHashMap<>();
+        elements.put("requestBody", "{\"note\":\"line one\nline two\",\"dir\":\"C:\\\\tmp\"}");
+        elements.put("userAgent", "Mozilla/5.0 (X11; \"quoted\", comma)");
+        auditEvent.setElements(elements);
+
+        Connection connection = dataSource.getConnection();
+        connection.setAutoCommit(false);
+        assertThat(writer.copyRows(connection.unwrap(PGConnection.class), List.of(auditEvent, event(prefix + "b")))).isEqualTo(2);
+        connection.commit();
+        connection.setAutoCommit(true);
+
+        Map<String, Object> row = jdbcTemplate.queryForMap("SELECT * FROM audit WHERE identifier = ?", prefix + "a");
+        assertThat(row.get("origin")).isEqualTo("");
+        assertThat(row.get("http_method")).isNull();
+        assertThat(row.get("path")).isEqualTo("/items,\"quoted\"");
+        assertThat(row.get("exception_type")).isEqualTo("IllegalStateException: first line\r\nsecond line");
+        assertThat(objectMapper.readValue(row.get("elements").toString(), Map.class)).isEqualTo(elements);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM audit WHERE identifier LIKE ?", Integer.class, prefix + "%"))
+                .isEqualTo(2);
+    }
+
+    @Test
+    void fallsBackToInsertsThatSkipRowsAlreadyWritten() {
+        writer.insert(event(prefix + "a"));
+
+        assertThat(writer.copy(List.of(event(prefix + "a"), event(prefix + "b")))).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM audit WHERE identifier LIKE ?", Integer.class, prefix + "%"))
+                .isEqualTo(2);
+    }
+
+    private static AuditEvent event(String identifier) {
+        AuditEvent auditEvent = new AuditEvent();
+        auditEvent.setIdentifier(identifier);
+        auditEvent.setTimestamp(new Timestamp(System.currentTimeMillis()));
+        auditEvent.setActor("tester");
+        auditEvent.setAction("API_REQUEST");
+        auditEvent.setElements(Map.of("path", "/items"));
+        return auditEvent;
+    }
+}
@@ -0,0 +1,146 @@
+package com.fastcode.audit.handler;
+
+import com.fastcode.audit.domain.AuditEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.h2.jdbcx.JdbcDataSource;
+import org.h2.tools.Csv;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.StringReader;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuditEventJdbcWriterTest {
+
+    private JdbcDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private AuditEventJdbcWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE audit (identifier VARCHAR(200) PRIMARY KEY, timestamp TIMESTAMP NOT NULL,"
+                + " actor VARCHAR(200) NOT NULL, origin VARCHAR(200), action VARCHAR(200) NOT NULL, http_method VARCHAR(50),"
+                + " path VARCHAR(500), entity_name VARCHAR(200), operation VARCHAR(100), response_status VARCHAR(10),"
+                + " exception_type VARCHAR(200), elements TEXT, session_id_bidx VARCHAR(64), user_id_bidx VARCHAR(64),"
+                + " username_bidx VARCHAR(64))");
+        writer = new AuditEventJdbcWriter(dataSource, new ObjectMapper());
+    }
+
+    @Test
+    void commitsOnItsOwnWithoutATransaction() {
+        assertThat(writer.insert(List.of(event("a"), event("b")))).isEqualTo(2);
+
+        assertThat(count()).isEqualTo(2);
+    }
+
+    @Test
+    void keepsGoodRowsWhenOneRowFails() {
+        List<AuditEvent> rejected = new ArrayList<>();
+
+        assertThat(writer.insert(List.of(event("a"), invalidEvent("b"), event("c")), rejected)).isEqualTo(2);
+        assertThat(count()).isEqualTo(2);
+        assertThat(rejected).extracting(AuditEvent::getIdentifier).containsExactly("b");
+    }
+
+    @Test
+    void countsRowsAlreadyWrittenWhenABatchIsRetried() {
+        writer.insert(event("a"));
+        List<AuditEvent> rejected = new ArrayList<>();
+
+        assertThat(writer.insert(List.of(event("a"), event("b")), rejected)).isEqualTo(2);
+        assertThat(count()).isEqualTo(2);
+        assertThat(rejected).isEmpty();
+    }
+
+    @Test
+    void joinsTheCallersTransaction() {
+        TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        transaction.executeWithoutResult(status -> {
+            assertThat(writer.insert(List.of(event("a"), event("b")))).isEqualTo(2);
+            status.setRollbackOnly();
+        });
+
+        assertThat(count()).isZero();
+    }
+
+    @Test
+    void failedRowDoesNotAbortTheCallersTransaction() {
+        writer.insert(event("a"));
+        TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        transaction.executeWithoutResult(status -> {
+            assertThat(writer.insert(List.of(invalidEvent("c"), event("b")))).isEqualTo(1);
+            jdbcTemplate.update("UPDATE audit SET actor = 'caller' WHERE identifier = 'a'");
+        });
+
+        assertThat(count()).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForObject("SELECT actor FROM audit WHERE identifier = 'a'", String.class))
+                .isEqualTo("caller");
+    }
+
+    @Test
+    void rendersCopyRowsThatACsvReaderReadsBack() throws Exception {
+        AuditEvent auditEvent = event("a");
+        auditEvent.setOrigin("");
+        auditEvent.setPath("/items,\"quoted\"");
+        auditEvent.setExceptionType("IllegalStateException: first line\r\nsecond line");
+        Map<String, Object> elements = new LinkedHashMap<>();
+        elements.put("requestBody", "{\"note\":\"line one\nline two\",\"dir\":\"C:\\\\tmp\"}");
+        elements.put("userAgent", "Mozilla/5.0 (X11; \"quoted\", comma)");
+        auditEvent.setElements(elements);
+        StringBuilder rows = new StringBuilder();
+        writer.appendCsvRow(rows, auditEvent);
+        writer.appendCsvRow(rows, event("b"));
+
+        // H2's reader follows the same csv rules as COPY: "" escapes a quote, an unquoted empty field is NULL
+        ResultSet read = new Csv().read(new StringReader(rows.toString()), AuditEventJdbcWriter.COLUMNS);
+
+        assertThat(read.next()).isTrue();
+        assertThat(read.getString("identifier")).isEqualTo("a");
+        assertThat(read.getString("origin")).isEmpty();
+        assertThat(read.getString("http_method")).isNull();
+        assertThat(read.getString("path")).isEqualTo("/items,\"quoted\"");
+        assertThat(read.getString("exception_type")).isEqualTo("IllegalStateException: first line\r\nsecond line");
+        assertThat(new ObjectMapper().readValue(read.getString("elements"), Map.class)).isEqualTo(elements);
+        assertThat(read.getString("session_id_bidx")).isNull();
+        assertThat(read.next()).isTrue();
+        assertThat(read.getString("identifier")).isEqualTo("b");
+        assertThat(read.next()).isFalse();
+    }
+
+    private int count() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM audit", Integer.class);
+    }
+
+    private static AuditEvent event(String identifier) {
+        AuditEvent auditEvent = new AuditEvent();
+        auditEvent.setIdentifier(identifier);
+        auditEvent.setTimestamp(new Timestamp(System.currentTimeMillis()));
+        auditEvent.setActor("tester");
+        auditEvent.setAction("API_REQUEST");
+        auditEvent.setElements(Map.of("path", "/items"));
+        return auditEvent;
+    }
+
+    // The actor column is NOT NULL
+    private static AuditEvent invalidEvent(String identifier) {
+        AuditEvent auditEvent = event(identifier);
+        auditEvent.setActor(null);
+        return auditEvent;
+    }
+}
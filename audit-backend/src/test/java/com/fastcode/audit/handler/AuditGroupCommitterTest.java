@@ -0,0 +1,133 @@
+package com.fastcode.audit.handler;
+
+import com.fastcode.audit.domain.AuditEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AuditGroupCommitterTest {
+
+    @Test
+    void completesSubmittedEventsOnceCommitted() throws Exception {
+        RecordingHandler handler = new RecordingHandler();
+        AuditGroupCommitter committer = committer(handler);
+        committer.start();
+
+        committer.submit(event("0")).get(5, TimeUnit.SECONDS);
+        committer.submit(event("1")).get(5, TimeUnit.SECONDS);
+        committer.stop(deadline());
+
+        assertThat(handler.identifiers()).containsExactly("0", "1");
+        assertThat(committer.getCommittedEvents()).isEqualTo(2);
+    }
+
+    @Test
+    void failsCallersWhenTheHandlerFails() {
+        RecordingHandler handler = new RecordingHandler();
+        handler.failure = new IllegalStateException("disk full");
+        AuditGroupCommitter committer = committer(handler);
+        committer.start();
+
+        CompletableFuture<Void> future = committer.submit(event("0"));
+
+        assertThatThrownBy(() -> future.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasRootCauseMessage("disk full");
+        committer.stop(deadline());
+    }
+
+    @Test
+    void rejectsSubmissionsAfterStop() {
+        AuditGroupCommitter committer = committer(new RecordingHandler());
+        committer.start();
+        committer.stop(deadline());
+
+        CompletableFuture<Void> future = committer.submit(event("0"));
+
+        assertThat(future).isCompletedExceptionally();
+    }
+
+    @Test
+    void neverLeavesACallerWaitingAcrossStop() throws Exception {
+        for (int round = 0; round < 50; round++) {
+            AuditGroupCommitter committer = committer(new RecordingHandler());
+            committer.start();
+            List<CompletableFuture<Void>> futures = Collections.synchronizedList(new ArrayList<>());
+            CountDownLatch started = new CountDownLatch(4);
+            List<Thread> producers = new ArrayList<>();
+            for (int p = 0; p < 4; p++) {
+                Thread producer = new Thread(() -> {
+                    started.countDown();
+                    for (int i = 0; i < 200; i++) {
+                        futures.add(committer.submit(event(String.valueOf(i))));
+                    }
+                });
+                producer.start();
+                producers.add(producer);
+            }
+            started.await();
+            committer.stop(deadline());
+            for (Thread producer : producers) {
+                producer.join();
+            }
+
+            for (CompletableFuture<Void> future : futures) {
+                assertThat(future).isDone();
+            }
+        }
+    }
+
+    private static AuditGroupCommitter committer(AuditHandler handler) {
+        return new AuditGroupCommitter(List.of(handler), 16, Thread::new);
+    }
+
+    private static long deadline() {
+        return System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    }
+
+    private static AuditEvent event(String identifier) {
+        AuditEvent auditEvent = new AuditEvent();
+        auditEvent.setIdentifier(identifier);
+        return auditEvent;
+    }
+
+    private static final class RecordingHandler implements AuditHandler {
+
+        private final List<AuditEvent> handled = Collections.synchronizedList(new ArrayList<>());
+        private volatile RuntimeException failure;
+
+        @Override
+        public void handle(AuditEvent auditEvent) {
+            if (failure != null) {
+                throw failure;
+            }
+            handled.add(auditEvent);
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return true;
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        private List<String> identifiers() {
+            List<String> identifiers = new ArrayList<>();
+            for (AuditEvent auditEvent : handled) {
+                identifiers.add(auditEvent.getIdentifier());
+            }
+            return identifiers;
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.fastcode.audit.handler;
+
+import com.fastcode.audit.AuditPropertiesConfiguration;
+import com.fastcode.audit.domain.AuditEvent;
+import com.fastcode.audit.performance.AuditBackpressure;
+import com.fastcode.audit.performance.AuditBackpressurePolicy;
+import com.fastcode.audit.performance.AuditEventCategory;
+import com.fastcode.audit.performance.AuditOverflowJournal;
+import com.fastcode.audit.performance.AuditPriorityLane;
+import com.fastcode.audit.performance.AuditPublishOutcome;
+import com.fastcode.audit.performance.AuditSinkStats;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuditHandlerConsumerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private AuditBackpressure backpressure;
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void setUp() {
+        AuditPropertiesConfiguration auditConfig = new AuditPropertiesConfiguration();
+        ReflectionTestUtils.setField(auditConfig, "env", new MockEnvironment());
+        backpressure = new AuditBackpressure(auditConfig);
+        backpressure.init();
+    }
+
+    @Test
+    void securityAndComplianceDefaultToBlockSync() {
+        assertThat(backpressure.getPolicy(AuditEventCategory.SECURITY)).hasToString("block-sync:200");
+        assertThat(backpressure.getPolicy(AuditEventCategory.COMPLIANCE)).hasToString("block-sync:200");
+        assertThat(backpressure.getPolicy(AuditEventCategory.API)).hasToString("spill");
+    }
+
+    @Test
+    void writesThroughOnTheCallerWhenTheRingStaysFull() {
+        RecordingHandler handler = new RecordingHandler();
+        // Never started, so nothing drains the ring
+        AuditHandlerConsumer consumer = consumer(handler, AuditBackpressurePolicy.parse("block-sync:5"));
+
+        AuditPublishOutcome outcome;
+        int published = 0;
+        do {
+            outcome = consumer.publish(event(String.valueOf(published++), "SECURITY_AUTH_FAILURE"), AuditEventCategory.SECURITY);
+        } while (outcome == AuditPublishOutcome.ACCEPTED);
+
+        assertThat(outcome).isEqualTo(AuditPublishOutcome.WRITTEN_SYNC);
+        assertThat(handler.durable).hasSize(1);
+        assertThat(consumer.getStats().getHandledEvents()).isEqualTo(1);
+    }
+
+    @Test
+    void countsOnlyAcceptedBatchesAsHandled() throws Exception {
+        RecordingHandler handler = new RecordingHandler();
+        handler.failing = true;
+        AuditHandlerConsumer consumer = consumer(handler, AuditBackpressurePolicy.SPILL);
+        consumer.start();
+
+        for (int i = 0; i < 3; i++) {
+            consumer.publish(event(String.valueOf(i), "ENTITY_CREATE"), AuditEventCategory.ENTITY);
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (consumer.getStats().getFailedEvents() < 3 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        consumer.signalStop(System.nanoTime() + TimeUnit.SECONDS.toNanos(1));
+        consumer.awaitStop(System.nanoTime() + TimeUnit.SECONDS.toNanos(1));
+
+        AuditSinkStats stats = consumer.getStats();
+        assertThat(stats.getPublishedEvents()).isEqualTo(3);
+        assertThat(stats.getHandledEvents()).isZero();
+        assertThat(stats.getFailedEvents()).isEqualTo(3);
+        assertThat(stats.getFailedBatches()).isPositive();
+    }
+
+    @Test
+    void movesRowsTheDatabaseRejectsOutOfTheJournal() throws Exception {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE audit (identifier VARCHAR(200) PRIMARY KEY, timestamp TIMESTAMP NOT NULL,"
+                + " actor VARCHAR(200) NOT NULL, origin VARCHAR(200), action VARCHAR(200) NOT NULL, http_method VARCHAR(50),"
+                + " path VARCHAR(500), entity_name VARCHAR(200), operation VARCHAR(100), response_status VARCHAR(10),"
+                + " exception_type VARCHAR(200), elements TEXT, session_id_bidx VARCHAR(64), user_id_bidx VARCHAR(64),"
+                + " username_bidx VARCHAR(64))");
+        AuditEventJdbcWriter writer = new AuditEventJdbcWriter(dataSource, objectMapper);
+        DatabaseAuditHandler handler = databaseHandler(writer);
+        AuditOverflowJournal journal = new AuditOverflowJournal(directory.resolve("database.journal"), 64 * 1024, objectMapper);
+        AuditEvent missingActor = storedEvent("b");
+        missingActor.setActor(null);
+        journal.append(storedEvent("a"));
+        journal.append(missingActor);
+        journal.append(storedEvent("c"));
+        // An earlier replay of the batch got as far as the first row
+        writer.insert(storedEvent("a"));
+
+        AuditHandlerConsumer consumer = consumer(handler, AuditBackpressurePolicy.SPILL, journal);
+        consumer.start();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (journal.hasPending() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        consumer.signalStop(System.nanoTime() + TimeUnit.SECONDS.toNanos(1));
+        consumer.awaitStop(System.nanoTime() + TimeUnit.SECONDS.toNanos(1));
+
+        assertThat(journal.hasPending()).isFalse();
+        assertThat(jdbcTemplate.queryForList("SELECT identifier FROM audit ORDER BY identifier", String.class))
+                .containsExactly("a", "c");
+        assertThat(Files.readAllLines(journal.getDeadLetterFile())).hasSize(1)
+                .allSatisfy(line -> assertThat(objectMapper.readValue(line, AuditEvent.class).getIdentifier()).isEqualTo("b"));
+        AuditSinkStats stats = consumer.getStats();
+        assertThat(stats.getDeadLetteredEvents()).isEqualTo(1);
+        assertThat(stats.getHandledEvents()).isEqualTo(2);
+        assertThat(stats.getFailedEvents()).isEqualTo(1);
+    }
+
+    @Test
+    void countsEventsTheDatabaseHandlerCouldNotWrite() throws Exception {
+        DataSource unavailable = new DelegatingDataSource() {
+            @Override
+            public Connection getConnection() throws SQLException {
+                throw new SQLException("database down", "08001");
+            }
+        };
+        AuditHandlerConsumer consumer = consumer(databaseHandler(new AuditEventJdbcWriter(unavailable, objectMapper)),
+                AuditBackpressurePolicy.SPILL);
+        consumer.start();
+
+        for (int i = 0; i < 3; i++) {
+            consumer.publish(storedEvent(String.valueOf(i)), AuditEventCategory.ENTITY);
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (consumer.getStats().getFailedEvents() < 3 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        consumer.signalStop(System.nanoTime() + TimeUnit.SECONDS.toNanos(1));
+        consumer.awaitStop(System.nanoTime() + TimeUnit.SECONDS.toNanos(1));
+
+        AuditSinkStats stats = consumer.getStats();
+        assertThat(stats.getPublishedEvents()).isEqualTo(3);
+        assertThat(stats.getHandledEvents()).isZero();
+        assertThat(stats.getFailedEvents()).isEqualTo(3);
+    }
+
+    @Test
+    void backsOffAndBypassesAJournalThatKeepsFailing() throws Exception {
+        RecordingHandler handler = new RecordingHandler();
+        handler.durableFailing = true;
+        AuditOverflowJournal journal = new AuditOverflowJournal(directory.resolve("test.journal"), 64 * 1024, objectMapper);
+        journal.append(storedEvent("poison"));
+        AuditHandlerConsumer consumer = consumer(handler, AuditBackpressurePolicy.SPILL, journal);
+        consumer.start();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!consumer.getStats().isJournalStuck() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        AuditPublishOutcome outcome = consumer.publish(storedEvent("next"), AuditEventCategory.API);
+        deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (handler.handled.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(500);
+        consumer.signalStop(System.nanoTime() + TimeUnit.SECONDS.toNanos(1));
+        consumer.awaitStop(System.nanoTime() + TimeUnit.SECONDS.toNanos(1));
+
+        AuditSinkStats stats = consumer.getStats();
+        assertThat(stats.isJournalStuck()).isTrue();
+        assertThat(stats.getJournalDepth()).isEqualTo(1);
+        // 100, 200, 400 and 800 ms apart; without backoff the consumer retries every idle pass
+        assertThat(handler.durableAttempts.get()).isBetween(3, 5);
+        assertThat(outcome).isEqualTo(AuditPublishOutcome.ACCEPTED);
+        assertThat(handler.handled).extracting(AuditEvent::getIdentifier).containsExactly("next");
+    }
+
+    // Writes every batch as soon as it is handed over
+    private static DatabaseAuditHandler databaseHandler(AuditEventJdbcWriter writer) {
+        AuditPropertiesConfiguration auditConfig = new AuditPropertiesConfiguration();
+        ReflectionTestUtils.setField(auditConfig, "env", new MockEnvironment()
+                .withProperty("audit.database.enabled", "true")
+                .withProperty("audit.database.batch.size", "1"));
+        DatabaseAuditHandler handler = new DatabaseAuditHandler(writer, auditConfig);
+        handler.init();
+        return handler;
+    }
+
+    private AuditHandlerConsumer consumer(AuditHandler handler, AuditBackpressurePolicy sinkPolicy) {
+        return consumer(handler, sinkPolicy, null);
+    }
+
+    private AuditHandlerConsumer consumer(AuditHandler handler, AuditBackpressurePolicy sinkPolicy, AuditOverflowJournal journal) {
+        AuditLaneQueue[] lanes = new AuditLaneQueue[AuditPriorityLane.values().length];
+        for (AuditPriorityLane lane : AuditPriorityLane.values()) {
+            lanes[lane.ordinal()] = new AuditLaneQueue(lane, 4, lane.getDefaultWeight(), lane.getDefaultSloMs());
+        }
+        return new AuditHandlerConsumer(handler, "test", sinkPolicy, lanes, 16, journal, backpressure, Thread::new);
+    }
+
+    private static AuditEvent event(String identifier, String action) {
+        AuditEvent auditEvent = new AuditEvent();
+        auditEvent.setIdentifier(identifier);
+        auditEvent.setAction(action);
+        return auditEvent;
+    }
+
+    private static AuditEvent storedEvent(String identifier) {
+        AuditEvent auditEvent = event(identifier, "API_REQUEST");
+        auditEvent.setTimestamp(new Timestamp(System.currentTimeMillis()));
+        auditEvent.setActor("tester");
+        return auditEvent;
+    }
+
+    private static final class RecordingHandler implements AuditHandler {
+
+        private final List<AuditEvent> durable = Collections.synchronizedList(new ArrayList<>());
+        private final List<AuditEvent> handled = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicInteger durableAttempts = new AtomicInteger();
+        private volatile boolean failing;
+        private volatile boolean durableFailing;
+
+        @Override
+        public void handle(AuditEvent auditEvent) {
+            if (failing) {
+                throw new IllegalStateException("sink down");
+            }
+            handled.add(auditEvent);
+        }
+
+        @Override
+        public void handleBatchDurable(List<AuditEvent> auditEvents) {
+            durableAttempts.incrementAndGet();
+            if (durableFailing) {
+                throw new IllegalStateException("sink down");
+            }
+            handleBatch(auditEvents);
+            durable.addAll(auditEvents);
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return true;
+        }
+
+        @Override
+        public void shutdown() {
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.fastcode.audit.handler;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fastcode.audit.AuditPropertiesConfiguration;
+import com.fastcode.audit.benchmark.AuditBenchmark;
+import com.fastcode.audit.domain.AuditEvent;
+import com.fastcode.audit.performance.AuditBackpressure;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Events published per second by the calling thread and delivered per second to three handlers by the ring buffer
+ * pipeline and by the executor chain it replaced
+ * The old chain is rebuilt from the code before the pipeline: the interceptor's pool (2 to 5 threads, 1000 queued,
+ * dropping when full), the handler manager's pool of 3 and one single thread executor per handler
+ * The pipeline runs with the block policy and no journal, so it delivers every event; the old chain drops what
+ * does not fit and the dropped count is reported next to its throughput; a second run of the old chain runs
+ * rejected tasks on the caller instead, which is lossless but still pays for every hop
+ */
+@Tag(AuditBenchmark.TAG)
+class AuditPipelineBenchmarkTest {
+
+    private static final int EVENTS = 200_000;
+    private static final int HANDLERS = 3;
+
+    @Test
+    void deliveredEventsPerSecond() throws Exception {
+        // Alternate so both sides get a warm JIT
+        for (int round = 0; round < 2; round++) {
+            boolean report = round == 1;
+            runPipeline(report);
+            runExecutorChain(report, false);
+            runExecutorChain(report, true);
+        }
+    }
+
+    private void runPipeline(boolean report) {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("audit.overflow.journal.enabled", "false")
+                .withProperty("audit.backpressure.entity", "block:1000");
+        AuditPropertiesConfiguration auditConfig = new AuditPropertiesConfiguration();
+        ReflectionTestUtils.setField(auditConfig, "env", environment);
+        AuditBackpressure backpressure = new AuditBackpressure(auditConfig);
+        backpressure.init();
+        List<CountingHandler> handlers = handlers();
+        AuditHandlerManager manager = new AuditHandlerManager(new ArrayList<>(handlers), auditConfig, new ObjectMapper(), backpressure);
+        manager.start();
+
+        int events = AuditBenchmark.iterations(EVENTS);
+        AuditEvent auditEvent = event();
+        long start = System.nanoTime();
+        for (int i = 0; i < events; i++) {
+            manager.handle(auditEvent);
+        }
+        long published = System.nanoTime() - start;
+        manager.shutdown();
+        long elapsed = System.nanoTime() - start;
+
+        if (report) {
+            AuditBenchmark.reportThroughput("ring pipeline, published by caller", events, published);
+            AuditBenchmark.reportThroughput("ring pipeline, delivered (dropped " + manager.getDroppedEventCount() + ")",
+                    delivered(handlers), elapsed);
+        }
+    }
+
+    private void runExecutorChain(boolean report, boolean callerRuns) throws Exception {
+        List<CountingHandler> handlers = handlers();
+        LongAdder dropped = new LongAdder();
+        ThreadPoolExecutor interceptorExecutor = new ThreadPoolExecutor(2, 5, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(1000), (task, executor) -> {
+                    if (callerRuns) {
+                        task.run();
+                    } else {
+                        dropped.increment();
+                    }
+                });
+        ExecutorService managerExecutor = Executors.newFixedThreadPool(3);
+        List<ExecutorService> handlerExecutors = new ArrayList<>();
+        for (int i = 0; i < HANDLERS; i++) {
+            handlerExecutors.add(Executors.newSingleThreadExecutor());
+        }
+
+        int events = AuditBenchmark.iterations(EVENTS);
+        AuditEvent auditEvent = event();
+        long start = System.nanoTime();
+        for (int i = 0; i < events; i++) {
+            CompletableFuture.runAsync(() -> CompletableFuture.runAsync(() -> {
+                for (int h = 0; h < HANDLERS; h++) {
+                    CountingHandler handler = handlers.get(h);
+                    CompletableFuture.runAsync(() -> handler.handle(auditEvent), handlerExecutors.get(h));
+                }
+            }, managerExecutor), interceptorExecutor);
+        }
+        long published = System.nanoTime() - start;
+        long expected = (events - dropped.sum()) * HANDLERS;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (delivered(handlers) < expected && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+            expected = (events - dropped.sum()) * HANDLERS;
+        }
+        long elapsed = System.nanoTime() - start;
+
+        interceptorExecutor.shutdown();
+        managerExecutor.shutdown();
+        handlerExecutors.forEach(ExecutorService::shutdown);
+        interceptorExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        if (report) {
+            String name = "executor chain" + (callerRuns ? " caller runs" : "");
+            AuditBenchmark.reportThroughput(name + ", published by caller", events, published);
+            AuditBenchmark.reportThroughput(name + ", delivered (dropped " + dropped.sum() * HANDLERS + ")",
+                    delivered(handlers), elapsed);
+        }
+    }
+
+    private static List<CountingHandler> handlers() {
+        List<CountingHandler> handlers = new ArrayList<>();
+        for (int i = 0; i < HANDLERS; i++) {
+            handlers.add(new CountingHandler());
+        }
+        return handlers;
+    }
+
+    private static long delivered(List<CountingHandler> handlers) {
+        return handlers.stream().mapToLong(handler -> handler.handled.sum()).sum();
+    }
+
+    private static AuditEvent event() {
+        AuditEvent auditEvent = new AuditEvent();
+        auditEvent.setIdentifier("benchmark");
+        auditEvent.setAction("ENTITY_CREATE");
+        return auditEvent;
+    }
+
+    private static final class CountingHandler implements AuditHandler {
+
+        private final LongAdder handled = new LongAdder();
+
+        @Override
+        public void handle(AuditEvent auditEvent) {
+            AuditBenchmark.consume(auditEvent.getAction());
+            handled.increment();
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return true;
+        }
+
+        @Override
+        public void shutdown() {
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.fastcode.audit.performance;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AuditBackpressurePolicyTest {
+
+    @Test
+    void parsesBlockSyncWithTimeout() {
+        AuditBackpressurePolicy policy = AuditBackpressurePolicy.parse("block-sync:200");
+
+        assertThat(policy.getType()).isEqualTo(AuditBackpressurePolicy.Type.BLOCK_SYNC);
+        assertThat(policy.getBlockTimeoutMs()).isEqualTo(200);
+        assertThat(policy).hasToString("block-sync:200");
+    }
+
+    @Test
+    void defaultsBlockTimeout() {
+        assertThat(AuditBackpressurePolicy.parse("block").getBlockTimeoutMs()).isEqualTo(50);
+        assertThat(AuditBackpressurePolicy.parse("BLOCK_SYNC").getBlockTimeoutMs()).isEqualTo(50);
+    }
+
+    @Test
+    void parsesSampleRate() {
+        AuditBackpressurePolicy policy = AuditBackpressurePolicy.parse(" sample:0.25 ");
+
+        assertThat(policy.getType()).isEqualTo(AuditBackpressurePolicy.Type.SAMPLE);
+        assertThat(policy.getSampleRate()).isEqualTo(0.25);
+    }
+
+    @Test
+    void rejectsInvalidDefinitions() {
+        assertThatThrownBy(() -> AuditBackpressurePolicy.parse("block:-1")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> AuditBackpressurePolicy.parse("sample")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> AuditBackpressurePolicy.parse("sample:2")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> AuditBackpressurePolicy.parse("discard")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void syncWritesCountAsDelivered() {
+        assertThat(AuditPublishOutcome.WRITTEN_SYNC.isDelivered()).isTrue();
+        assertThat(AuditPublishOutcome.REJECTED.isDelivered()).isFalse();
+    }
+}
@@ -0,0 +1,178 @@
+package com.fastcode.audit.performance;
+
+import com.fastcode.audit.domain.AuditEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileChannel;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AuditOverflowJournalTest {
+
+    private static final int SIZE = 4096;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysEventsInAppendOrder() {
+        AuditOverflowJournal journal = journal();
+        for (int i = 0; i < 5; i++) {
+            assertThat(journal.append(event(i))).isTrue();
+        }
+
+        List<AuditEvent> events = new ArrayList<>();
+        assertThat(journal.read(events, 10)).isEqualTo(5);
+        journal.acknowledge();
+
+        assertThat(identifiers(events)).containsExactly("0", "1", "2", "3", "4");
+        assertThat(journal.hasPending()).isFalse();
+    }
+
+    @Test
+    void keepsEventsUntilAcknowledged() {
+        AuditOverflowJournal journal = journal();
+        journal.append(event(0));
+        journal.append(event(1));
+
+        List<AuditEvent> first = new ArrayList<>();
+        journal.read(first, 10);
+        List<AuditEvent> retry = new ArrayList<>();
+        journal.read(retry, 10);
+
+        assertThat(identifiers(retry)).containsExactly("0", "1");
+        assertThat(journal.getDepth()).isEqualTo(2);
+        journal.acknowledge();
+        assertThat(journal.getDepth()).isZero();
+    }
+
+    @Test
+    void wrapsAroundUnderSustainedSpill() {
+        AuditOverflowJournal journal = journal();
+        List<AuditEvent> replayed = new ArrayList<>();
+        int appended = 0;
+        // Far more than the file holds at once, drained a few events at a time without ever emptying
+        while (appended < 500) {
+            while (journal.append(event(appended))) {
+                appended++;
+            }
+            assertThat(journal.read(replayed, 3)).isPositive();
+            journal.acknowledge();
+            assertThat(journal.hasPending()).isTrue();
+        }
+        while (journal.read(replayed, 10) > 0) {
+            journal.acknowledge();
+        }
+
+        assertThat(replayed).hasSize(appended);
+        for (int i = 0; i < appended; i++) {
+            assertThat(replayed.get(i).getIdentifier()).isEqualTo(String.valueOf(i));
+        }
+    }
+
+    @Test
+    void recoversUnacknowledgedEventsAfterRestart() {
+        AuditOverflowJournal journal = journal();
+        journal.append(event(0));
+        journal.append(event(1));
+        journal.append(event(2));
+        journal.read(new ArrayList<>(), 1);
+        journal.acknowledge();
+        journal.read(new ArrayList<>(), 1);
+        journal.close();
+
+        AuditOverflowJournal reopened = journal();
+        List<AuditEvent> events = new ArrayList<>();
+        reopened.read(events, 10);
+
+        assertThat(reopened.getDepth()).isEqualTo(2);
+        assertThat(identifiers(events)).containsExactly("1", "2");
+    }
+
+    @Test
+    void discardsCorruptRecordAndEverythingAfterIt() throws Exception {
+        AuditOverflowJournal journal = journal();
+        journal.append(event(0));
+        journal.append(event(1));
+        journal.append(event(2));
+        journal.close();
+        // Flip a byte inside the second record's payload
+        int secondRecord = 24 + 8 + objectMapper.writeValueAsBytes(event(0)).length;
+        try (FileChannel channel = FileChannel.open(file(), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{'#'}), secondRecord + 12);
+        }
+
+        AuditOverflowJournal reopened = journal();
+        List<AuditEvent> events = new ArrayList<>();
+        reopened.read(events, 10);
+
+        assertThat(identifiers(events)).containsExactly("0");
+        assertThat(reopened.getDepth()).isEqualTo(1);
+    }
+
+    @Test
+    void discardsRecordWithImpossibleLength() throws Exception {
+        AuditOverflowJournal journal = journal();
+        journal.append(event(0));
+        journal.close();
+        try (FileChannel channel = FileChannel.open(file(), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4).putInt(0, -7), 24);
+        }
+
+        AuditOverflowJournal reopened = journal();
+
+        assertThat(reopened.read(new ArrayList<>(), 10)).isZero();
+        assertThat(reopened.hasPending()).isFalse();
+        assertThat(reopened.append(event(1))).isTrue();
+    }
+
+    @Test
+    void rejectsAppendsOnceClosed() {
+        AuditOverflowJournal journal = journal();
+        journal.append(event(0));
+        journal.close();
+
+        assertThat(journal.append(event(1))).isFalse();
+        assertThat(journal.getRejectedEvents()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsSizesThatCannotBeMapped() {
+        assertThatThrownBy(() -> new AuditOverflowJournal(file(), 2048L * 1024 * 1024, objectMapper))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private AuditOverflowJournal journal() {
+        return new AuditOverflowJournal(file(), SIZE, objectMapper);
+    }
+
+    private Path file() {
+        return directory.resolve("test.journal");
+    }
+
+    private static AuditEvent event(int id) {
+        AuditEvent auditEvent = new AuditEvent();
+        auditEvent.setIdentifier(String.valueOf(id));
+        auditEvent.setAction("API_REQUEST");
+        auditEvent.setActor("tester");
+        return auditEvent;
+    }
+
+    private static List<String> identifiers(List<AuditEvent> events) {
+        List<String> identifiers = new ArrayList<>();
+        for (AuditEvent auditEvent : events) {
+            identifiers.add(auditEvent.getIdentifier());
+        }
+        return identifiers;
+    }
+}
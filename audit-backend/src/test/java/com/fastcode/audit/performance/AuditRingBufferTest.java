@@ -0,0 +1,124 @@
+package com.fastcode.audit.performance;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AuditRingBufferTest {
+
+    @Test
+    void roundsCapacityUpToAPowerOfTwo() {
+        assertThat(new AuditRingBuffer<String>(5).capacity()).isEqualTo(8);
+        assertThat(new AuditRingBuffer<String>(8).capacity()).isEqualTo(8);
+        assertThatThrownBy(() -> new AuditRingBuffer<String>(1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsOffersOnceFull() {
+        AuditRingBuffer<String> ringBuffer = new AuditRingBuffer<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertThat(ringBuffer.offer("e" + i)).isTrue();
+        }
+
+        assertThat(ringBuffer.offer("e4")).isFalse();
+        assertThat(ringBuffer.size()).isEqualTo(4);
+        assertThat(ringBuffer.remainingCapacity()).isZero();
+    }
+
+    @Test
+    void pollsInPublicationOrderAcrossWrapAround() {
+        AuditRingBuffer<Integer> ringBuffer = new AuditRingBuffer<>(4);
+        List<Integer> polled = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            assertThat(ringBuffer.offer(i)).isTrue();
+            if (ringBuffer.size() == 3) {
+                polled.add(ringBuffer.poll());
+            }
+        }
+        Integer element;
+        while ((element = ringBuffer.poll()) != null) {
+            polled.add(element);
+        }
+
+        assertThat(polled).containsExactly(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+        assertThat(ringBuffer.isEmpty()).isTrue();
+    }
+
+    @Test
+    void drainsAtMostTheRequestedCountAndReportsWaits() {
+        AuditRingBuffer<Integer> ringBuffer = new AuditRingBuffer<>(8);
+        for (int i = 0; i < 5; i++) {
+            ringBuffer.offer(i);
+        }
+        List<Integer> drained = new ArrayList<>();
+        List<Long> waits = new ArrayList<>();
+
+        assertThat(ringBuffer.drain(drained::add, 3, waits::add)).isEqualTo(3);
+
+        assertThat(drained).containsExactly(0, 1, 2);
+        assertThat(waits).hasSize(3).allMatch(wait -> wait >= 0);
+        assertThat(ringBuffer.size()).isEqualTo(2);
+    }
+
+    @Test
+    void rejectsNullElements() {
+        assertThatThrownBy(() -> new AuditRingBuffer<String>(2).offer(null)).isInstanceOf(NullPointerException.class);
+    }
+
+    @Test
+    void keepsEachProducersOrderUnderContention() throws Exception {
+        int producers = 4;
+        int perProducer = 50_000;
+        AuditRingBuffer<long[]> ringBuffer = new AuditRingBuffer<>(1024);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            Thread thread = new Thread(() -> {
+                await(start);
+                for (long i = 0; i < perProducer; i++) {
+                    long[] element = {producer, i};
+                    while (!ringBuffer.offer(element)) {
+                        Thread.onSpinWait();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        long[] next = new long[producers];
+        int consumed = 0;
+        start.countDown();
+        while (consumed < producers * perProducer) {
+            long[] element = ringBuffer.poll();
+            if (element == null) {
+                Thread.onSpinWait();
+                continue;
+            }
+            int producer = (int) element[0];
+            assertThat(element[1]).isEqualTo(next[producer]);
+            next[producer]++;
+            consumed++;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(next).containsOnly(perProducer);
+        assertThat(ringBuffer.isEmpty()).isTrue();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
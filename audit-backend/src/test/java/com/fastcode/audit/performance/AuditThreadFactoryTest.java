@@ -0,0 +1,19 @@
+package com.fastcode.audit.performance;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuditThreadFactoryTest {
+
+    @Test
+    void threadsAreNumberedDaemons() {
+        AuditThreadFactory threadFactory = new AuditThreadFactory("audit-test");
+        Thread first = threadFactory.newThread(() -> { });
+        Thread second = threadFactory.newThread(() -> { });
+
+        assertThat(first.getName()).isEqualTo("audit-test-0");
+        assertThat(second.getName()).isEqualTo("audit-test-1");
+        assertThat(first.isDaemon()).isTrue();
+    }
+}
@@ -0,0 +1,55 @@
+package com.fastcode.audit.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuditBodyCaptureTest {
+
+	private static final SensitiveDataMasker CARD_MASKER =
+			SensitiveDataMasker.compile(Map.of("creditcard", "\\b(?:\\d[ -]*?){13,16}\\b"));
+
+	@Test
+	void masksValuesAnywhereInTheCapturedText() {
+		// Puts the card number across what used to be a 1 KB masking window boundary
+		String body = "x".repeat(1015) + " 4111 1111 1111 1111 end";
+		AuditBodyCapture capture = AuditBodyCapture.of(4096, AuditBodyCapture.DEFAULT_BINARY_TYPES);
+
+		String captured = capture.capture(bytes(body), "application/json", StandardCharsets.UTF_8, CARD_MASKER);
+
+		assertThat(captured).doesNotContain("4111").endsWith(SensitiveDataMasker.MASK + " end");
+	}
+
+	@Test
+	void truncatesWithoutSplittingAMultiByteCharacter() {
+		AuditBodyCapture capture = AuditBodyCapture.of(4, AuditBodyCapture.DEFAULT_BINARY_TYPES);
+
+		// "a" then "é" (2 bytes) then "€" (3 bytes): byte 4 falls inside the euro sign
+		String captured = capture.capture(bytes("aé€z"), "text/plain", StandardCharsets.UTF_8, null);
+
+		assertThat(captured).isEqualTo("aé...[truncated, 3 of 7 bytes captured]");
+	}
+
+	@Test
+	void omitsBinaryBodies() {
+		AuditBodyCapture capture = AuditBodyCapture.of(4096, AuditBodyCapture.DEFAULT_BINARY_TYPES);
+
+		assertThat(capture.capture(new byte[32], "Image/PNG", null, null)).isEqualTo("[binary body omitted, 32 bytes]");
+		assertThat(capture.isBinary("application/json")).isFalse();
+	}
+
+	@Test
+	void capturesNothingWhenDisabled() {
+		AuditBodyCapture capture = AuditBodyCapture.of(0, AuditBodyCapture.DEFAULT_BINARY_TYPES);
+
+		assertThat(capture.isEnabled()).isFalse();
+		assertThat(capture.capture(bytes("{}"), "application/json", StandardCharsets.UTF_8, null)).isNull();
+	}
+
+	private static byte[] bytes(String text) {
+		return text.getBytes(StandardCharsets.UTF_8);
+	}
+}
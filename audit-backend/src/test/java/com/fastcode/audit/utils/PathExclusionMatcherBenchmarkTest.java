@@ -0,0 +1,54 @@
+package com.fastcode.audit.utils;
+
+import com.fastcode.audit.benchmark.AuditBenchmark;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Cost per request of the path exclusion check with the compiled trie and with the check it replaced
+ * The legacy check is the one from before the trie: split the configured paths on every request and compare
+ * each one with the request path; it only supports exact paths, so the exclusions here are all literal
+ * Before timing, both are checked to agree on every path
+ */
+@Tag(AuditBenchmark.TAG)
+class PathExclusionMatcherBenchmarkTest {
+
+	private static final int ITERATIONS = 2_000_000;
+
+	private static final String EXCLUDED_PATHS = "/, /health, /actuator/health, /actuator/info, /actuator/prometheus, "
+			+ "/favicon.ico, /swagger-ui.html, /v3/api-docs, /error, /api/ping";
+
+	private static final List<String> PATHS = List.of(
+			"/api/orders/17/items",
+			"/actuator/health",
+			"/api/customers/42",
+			"/favicon.ico",
+			"/api/orders",
+			"/api/ping");
+
+	@Test
+	void costPerRequest() {
+		PathExclusionMatcher matcher = PathExclusionMatcher.compile(Arrays.asList(EXCLUDED_PATHS.split("\\s*,\\s*")));
+		for (String path : PATHS) {
+			assertThat(matcher.matches(path)).as(path).isEqualTo(legacyIsPathExcluded(path));
+		}
+
+		int[] next = new int[1];
+		AuditBenchmark.averageNanos("path exclusion, segment trie", ITERATIONS, () -> {
+			AuditBenchmark.consume(matcher.matches(PATHS.get(next[0]++ % PATHS.size())) ? 1 : 0);
+		});
+		AuditBenchmark.averageNanos("path exclusion, legacy split and compare", ITERATIONS, () -> {
+			AuditBenchmark.consume(legacyIsPathExcluded(PATHS.get(next[0]++ % PATHS.size())) ? 1 : 0);
+		});
+	}
+
+	private static boolean legacyIsPathExcluded(String requestPath) {
+		List<String> pathsList = Arrays.asList(EXCLUDED_PATHS.split("\\s*,\\s*"));
+		return pathsList.stream().anyMatch(requestPath::equals);
+	}
+}
@@ -0,0 +1,58 @@
+package com.fastcode.audit.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PathExclusionMatcherTest {
+
+	@Test
+	void matchesLiteralPathsIgnoringTrailingSlashes() {
+		PathExclusionMatcher matcher = PathExclusionMatcher.compile(List.of("/health"));
+
+		assertThat(matcher.matches("/health")).isTrue();
+		assertThat(matcher.matches("/health/")).isTrue();
+		assertThat(matcher.matches("/health/live")).isFalse();
+		assertThat(matcher.matches("/healthz")).isFalse();
+	}
+
+	@Test
+	void singleStarMatchesExactlyOneSegment() {
+		PathExclusionMatcher matcher = PathExclusionMatcher.compile(List.of("/api/*/ping"));
+
+		assertThat(matcher.matches("/api/orders/ping")).isTrue();
+		assertThat(matcher.matches("/api/ping")).isFalse();
+		assertThat(matcher.matches("/api/a/b/ping")).isFalse();
+	}
+
+	@Test
+	void doubleStarMatchesAnyNumberOfSegments() {
+		PathExclusionMatcher matcher = PathExclusionMatcher.compile(List.of("/actuator/**", "/static/**/app.js"));
+
+		assertThat(matcher.matches("/actuator")).isTrue();
+		assertThat(matcher.matches("/actuator/health/liveness")).isTrue();
+		assertThat(matcher.matches("/static/app.js")).isTrue();
+		assertThat(matcher.matches("/static/v1/js/app.js")).isTrue();
+		assertThat(matcher.matches("/static/v1/js/main.js")).isFalse();
+	}
+
+	@Test
+	void matchesGlobSegments() {
+		PathExclusionMatcher matcher = PathExclusionMatcher.compile(List.of("/assets/*.css", "/api/v?/status"));
+
+		assertThat(matcher.matches("/assets/site.css")).isTrue();
+		assertThat(matcher.matches("/assets/site.js")).isFalse();
+		assertThat(matcher.matches("/api/v2/status")).isTrue();
+		assertThat(matcher.matches("/api/v10/status")).isFalse();
+	}
+
+	@Test
+	void matchesNothingWithoutPatterns() {
+		PathExclusionMatcher matcher = PathExclusionMatcher.compile(List.of());
+
+		assertThat(matcher.matches("/")).isFalse();
+		assertThat(matcher.matches(null)).isFalse();
+	}
+}
@@ -0,0 +1,76 @@
+package com.fastcode.audit.utils;
+
+import com.fastcode.audit.AuditPropertiesConfiguration;
+import com.fastcode.audit.benchmark.AuditBenchmark;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Cost per string value of the compiled masker against the masking it replaced, with the default sensitive keys
+ * The legacy version is the one from before the masker: Pattern.compile and replaceAll per key on every value
+ * The values are a mix of typical element values, most of which contain nothing sensitive
+ * Before timing, every value is checked to be masked at least as thoroughly as the legacy version masks it
+ */
+@Tag(AuditBenchmark.TAG)
+class SensitiveDataMaskerBenchmarkTest {
+
+	private static final int ITERATIONS = 200_000;
+
+	private static final List<String> VALUES = List.of(
+			"ENTITY_UPDATE",
+			"/api/orders/17/items",
+			"3f2b8c1e-6d0a-4c5e-9a57-1f0e2d3c4b5a",
+			"Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0 Safari/537.36",
+			"{\"orderId\":\"A-17\",\"status\":\"shipped\",\"items\":[{\"sku\":\"SKU-1\",\"quantity\":2}]}",
+			"jane.doe@example.com",
+			"{\"username\":\"jane\",\"password\":\"hunter2\"}",
+			"card 4111 1111 1111 1111 expires 12/27",
+			"ssn 123-45-6789");
+
+	@Test
+	void costPerValue() {
+		AuditPropertiesConfiguration auditConfig = new AuditPropertiesConfiguration();
+		ReflectionTestUtils.setField(auditConfig, "env", new MockEnvironment());
+		Map<String, String> sensitiveKeys = auditConfig.getSensitiveDataKeys();
+		SensitiveDataMasker masker = auditConfig.getSensitiveDataMasker();
+		for (String value : VALUES) {
+			assertMasksAtLeastAsMuch(value, masker.mask(value), legacyMask(value, sensitiveKeys), sensitiveKeys);
+		}
+
+		int[] next = new int[1];
+		AuditBenchmark.averageNanos("masking, compiled masker", ITERATIONS, () -> {
+			AuditBenchmark.consume(masker.mask(VALUES.get(next[0]++ % VALUES.size())));
+		});
+		AuditBenchmark.averageNanos("masking, legacy compile and replaceAll per key", ITERATIONS, () -> {
+			AuditBenchmark.consume(legacyMask(VALUES.get(next[0]++ % VALUES.size()), sensitiveKeys));
+		});
+	}
+
+	/**
+	 * Nothing any pattern still finds in the masker's output may have been masked by the legacy version
+	 */
+	private static void assertMasksAtLeastAsMuch(String value, String masked, String legacyMasked, Map<String, String> sensitiveKeys) {
+		for (String pattern : sensitiveKeys.values()) {
+			if (Pattern.compile(pattern).matcher(masked).find()) {
+				assertThat(Pattern.compile(pattern).matcher(legacyMasked).find())
+						.as("'%s' masked as '%s', legacy '%s'", value, masked, legacyMasked)
+						.isTrue();
+			}
+		}
+	}
+
+	private static String legacyMask(String message, Map<String, String> sensitiveKeys) {
+		for (String pattern : sensitiveKeys.values()) {
+			message = Pattern.compile(pattern).matcher(message).replaceAll(SensitiveDataMasker.MASK);
+		}
+		return message;
+	}
+}
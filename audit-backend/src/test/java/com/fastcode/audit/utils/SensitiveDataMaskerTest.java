@@ -0,0 +1,52 @@
+package com.fastcode.audit.utils;
+
+import com.fastcode.audit.AuditPropertiesConfiguration;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SensitiveDataMaskerTest {
+
+	private final SensitiveDataMasker masker = defaultMasker();
+
+	@Test
+	void returnsTheSameInstanceWhenNothingMatches() {
+		String value = "{\"orderId\":\"A-17\",\"status\":\"shipped\"}";
+
+		assertThat(masker.mask(value)).isSameAs(value);
+	}
+
+	@Test
+	void masksTheDefaultSensitiveValues() {
+		String masked = masker.mask("password=hunter2 mail jane.doe@example.com card 4111 1111 1111 1111 ssn 123-45-6789");
+
+		assertThat(masked)
+				.doesNotContain("hunter2", "jane.doe@example.com", "4111 1111 1111 1111", "123-45-6789")
+				.contains(SensitiveDataMasker.MASK);
+	}
+
+	@Test
+	void masksOverlappingMatchesOnce() {
+		SensitiveDataMasker overlapping = SensitiveDataMasker.compile(Map.of("digits", "\\d{4}", "code", "code \\d+"));
+
+		assertThat(overlapping.mask("code 12345678 done")).isEqualTo(SensitiveDataMasker.MASK + " done");
+	}
+
+	@Test
+	void leavesValuesAloneWithoutPatterns() {
+		SensitiveDataMasker empty = SensitiveDataMasker.compile(Map.of());
+
+		assertThat(empty.isEmpty()).isTrue();
+		assertThat(empty.mask("password=hunter2")).isEqualTo("password=hunter2");
+	}
+
+	private static SensitiveDataMasker defaultMasker() {
+		AuditPropertiesConfiguration auditConfig = new AuditPropertiesConfiguration();
+		ReflectionTestUtils.setField(auditConfig, "env", new MockEnvironment());
+		return auditConfig.getSensitiveDataMasker();
+	}
+}